@@ -0,0 +1,171 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.benchmark;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the {@link InitializationBenchmark} with the GC profiler and checks the bytes allocated per initialization.
+ * The arguments are:
+ * <ol>
+ * <li>the budgets properties file, the key is the name of the benchmark method and the value is the allowed bytes per
+ * operation; an optional {@code <benchmark>.nanos} key holds the time baseline of the benchmark in ns/op</li>
+ * <li>the allowed relative regression of the time, {@code 0.25} by default</li>
+ * <li>{@code true} to write the measured values into the budgets file instead of checking them</li>
+ * </ol>
+ * The time depends on the machine, so it is checked only for the benchmarks with a time baseline. The process exits
+ * with status 1 if a budget is exceeded, a benchmark has no budget or its time regresses beyond the tolerance. When
+ * the file is updated, the budget is the measured allocation with {@value #HEADROOM_PERCENT}% headroom and the time
+ * baseline is written only for the benchmarks which already have one.
+ * <p>
+ * @author Balazs Berkes
+ */
+public final class AllocationGuard {
+
+    private static final String[] ALLOCATION_RESULTS = {"gc.alloc.rate.norm", "\u00b7gc.alloc.rate.norm"};
+    private static final String NANOS = ".nanos";
+    private static final double DEFAULT_TIME_TOLERANCE = 0.25D;
+    private static final int HEADROOM_PERCENT = 10;
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        if (args.length < 1) {
+            throw new IllegalArgumentException("Usage: AllocationGuard <budgets> [time tolerance] [update]");
+        }
+        File budgetsFile = new File(args[0]);
+        double timeTolerance = args.length > 1 ? Double.parseDouble(args[1]) : DEFAULT_TIME_TOLERANCE;
+        boolean update = args.length > 2 && Boolean.parseBoolean(args[2]);
+        Properties budgets = loadBudgets(budgetsFile);
+        Options options = new OptionsBuilder()
+                .include(InitializationBenchmark.class.getName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        Map<String, String> measured = new TreeMap<String, String>();
+        List<String> violations = new ArrayList<String>();
+        for (RunResult runResult : new Runner(options).run()) {
+            String benchmark = getMethodName(runResult.getParams().getBenchmark());
+            double bytesPerOperation = getAllocatedBytes(runResult);
+            System.out.printf(Locale.ROOT, "%s: %.1f bytes/op%n", benchmark, bytesPerOperation);
+            measured.put(benchmark, String.valueOf(roundUp(bytesPerOperation * (100 + HEADROOM_PERCENT) / 100D)));
+            String budget = budgets.getProperty(benchmark);
+            if (budget == null) {
+                violations.add(String.format(Locale.ROOT, "%s allocates %.1f bytes/op, it has no budget", benchmark,
+                        bytesPerOperation));
+            } else if (bytesPerOperation > Double.parseDouble(budget)) {
+                violations.add(String.format(Locale.ROOT, "%s allocates %.1f bytes/op, budget is %s", benchmark,
+                        bytesPerOperation, budget));
+            }
+            String nanosBaseline = budgets.getProperty(benchmark + NANOS);
+            if (nanosBaseline != null) {
+                double nanos = runResult.getPrimaryResult().getScore();
+                measured.put(benchmark + NANOS, String.format(Locale.ROOT, "%.1f", nanos));
+                checkTime(benchmark, nanos, Double.parseDouble(nanosBaseline), timeTolerance, violations);
+            }
+        }
+        if (update) {
+            writeBudgets(budgetsFile, measured);
+            System.out.println("Budgets are written into " + budgetsFile.getAbsolutePath());
+            return;
+        }
+        for (String violation : violations) {
+            System.err.println(violation);
+        }
+        if (!violations.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    private static void checkTime(String benchmark, double nanos, double baseline, double tolerance,
+            List<String> violations) {
+        System.out.printf(Locale.ROOT, "%s: %.1f ns/op, baseline %.1f (%+.1f%%)%n", benchmark, nanos, baseline,
+                (nanos - baseline) / baseline * 100D);
+        if (nanos > baseline * (1D + tolerance)) {
+            violations.add(String.format(Locale.ROOT, "%s regressed to %.1f ns/op, baseline is %.1f, tolerance is "
+                    + "%.0f%%", benchmark, nanos, baseline, tolerance * 100D));
+        }
+    }
+
+    private static long roundUp(double bytes) {
+        return (long) Math.ceil(bytes / 10D) * 10L;
+    }
+
+    private static Properties loadBudgets(File file) throws IOException {
+        Properties budgets = new Properties();
+        if (file.isFile()) {
+            InputStream input = new FileInputStream(file);
+            try {
+                budgets.load(input);
+            } finally {
+                input.close();
+            }
+        }
+        return budgets;
+    }
+
+    private static void writeBudgets(File file, Map<String, String> measured) throws IOException {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "ISO-8859-1");
+        try {
+            writer.write("# Allowed bytes allocated per operation of the InitializationBenchmark methods, checked by "
+                    + "AllocationGuard.\n"
+                    + "# Written by mvn -Pbenchmark verify -Dbenchmark.updateBudgets=true from gc.alloc.rate.norm with "
+                    + HEADROOM_PERCENT + "% headroom.\n"
+                    + "# Every benchmark must have a budget. <benchmark>.nanos is the optional time baseline in ns/op, "
+                    + "measured on the\n# machine running the guard.\n");
+            for (Map.Entry<String, String> entry : measured.entrySet()) {
+                writer.write(entry.getKey() + "=" + entry.getValue() + "\n");
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    static double getAllocatedBytes(RunResult runResult) {
+        for (String name : ALLOCATION_RESULTS) {
+            Result<?> result = runResult.getSecondaryResults().get(name);
+            if (result != null) {
+                return result.getScore();
+            }
+        }
+        String benchmark = runResult.getParams().getBenchmark();
+        throw new IllegalStateException("GC profiler did not report the allocations of " + benchmark);
+    }
+
+    static String getMethodName(String benchmark) {
+        return benchmark.substring(benchmark.lastIndexOf('.') + 1);
+    }
+
+    private AllocationGuard() {
+    }
+}
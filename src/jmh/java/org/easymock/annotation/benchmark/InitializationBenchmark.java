@@ -0,0 +1,154 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.easymock.IMocksControl;
+
+import org.easymock.annotation.EasyMockAnnotations;
+import org.easymock.annotation.FixtureTemplate;
+import org.easymock.annotation.Injected;
+import org.easymock.annotation.Mock;
+import org.easymock.annotation.MockControl;
+import org.easymock.annotation.Stub;
+
+/**
+ * Measures the time and the allocations of a single {@link EasyMockAnnotations#initialize(Object)} call. Run with
+ * {@code -prof gc} to see the bytes allocated per initialization.
+ * <p>
+ * @author Balazs Berkes
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InitializationBenchmark {
+
+    @Benchmark
+    public Object initializeWithoutAnnotations() {
+        Object testClass = new EmptyTestClass();
+        EasyMockAnnotations.initialize(testClass);
+        return testClass;
+    }
+
+    @Benchmark
+    public Object initializeStubs() {
+        StubTestClass testClass = new StubTestClass();
+        EasyMockAnnotations.initialize(testClass);
+        return testClass;
+    }
+
+    @Benchmark
+    public Object initializeMocks() {
+        MockTestClass testClass = new MockTestClass();
+        EasyMockAnnotations.initialize(testClass);
+        return testClass;
+    }
+
+    @Benchmark
+    public Object initializeControlledMocks() {
+        ControlledTestClass testClass = new ControlledTestClass();
+        EasyMockAnnotations.initialize(testClass);
+        return testClass;
+    }
+
+    @Benchmark
+    public Object initializeFixtureTemplate() {
+        TemplateTestClass testClass = new TemplateTestClass();
+        EasyMockAnnotations.initialize(testClass);
+        return testClass;
+    }
+
+    public interface Repository {
+
+        Object find(String id);
+    }
+
+    public interface Clock {
+
+        long now();
+    }
+
+    public interface Notifier {
+
+        void notify(Object event);
+    }
+
+    public static class Service {
+
+        private Repository repository;
+        private Clock clock;
+        private Notifier notifier;
+    }
+
+    public static class EmptyTestClass {
+    }
+
+    public static class StubTestClass {
+
+        @Stub
+        private Repository repository;
+        @Stub
+        private Clock clock;
+        @Stub
+        private Notifier notifier;
+        @Injected
+        private Service service;
+    }
+
+    public static class MockTestClass {
+
+        @Mock
+        private Repository repository;
+        @Mock
+        private Clock clock;
+        @Mock
+        private Notifier notifier;
+        @Injected
+        private Service service;
+    }
+
+    public static class ControlledTestClass {
+
+        @MockControl
+        private IMocksControl control;
+        @Mock
+        private Repository repository;
+        @Mock
+        private Clock clock;
+        @Mock
+        private Notifier notifier;
+        @Injected
+        private Service service;
+    }
+
+    @FixtureTemplate
+    public static class TemplateTestClass extends MockTestClass {
+    }
+}
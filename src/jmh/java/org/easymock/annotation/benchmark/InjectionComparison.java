@@ -0,0 +1,84 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.benchmark;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the {@link InjectionComparisonBenchmark} and prints the time of every setup of every fixture relative to the
+ * hand-written setup, so it shows whether the annotations are a net cost or a net gain compared to the injection of
+ * EasyMock and where they lose. The raw JMH results are written in JSON into the file given as the first argument,
+ * {@code target/injection-comparison.json} by default.
+ * <p>
+ * @author Balazs Berkes
+ */
+public final class InjectionComparison {
+
+    private static final String SEPARATOR = "By";
+    private static final String BASELINE = "Hand";
+
+    public static void main(String[] args) throws RunnerException {
+        File resultFile = new File(args.length > 0 ? args[0] : "target/injection-comparison.json");
+        resultFile.getAbsoluteFile().getParentFile().mkdirs();
+        Options options = new OptionsBuilder()
+                .include(InjectionComparisonBenchmark.class.getName())
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultFile.getPath())
+                .build();
+        Map<String, Map<String, RunResult>> fixtures = groupByFixture(new Runner(options).run());
+        System.out.printf("%-12s %-22s %14s %10s%n", "fixture", "setup", "ns/op", "vs hand");
+        for (Map.Entry<String, Map<String, RunResult>> fixture : fixtures.entrySet()) {
+            RunResult baseline = fixture.getValue().get(BASELINE);
+            for (Map.Entry<String, RunResult> setup : fixture.getValue().entrySet()) {
+                double score = setup.getValue().getPrimaryResult().getScore();
+                String ratio = baseline == null ? "-"
+                        : String.format("%.2fx", score / baseline.getPrimaryResult().getScore());
+                System.out.printf("%-12s %-22s %14.1f %10s%n", fixture.getKey(), setup.getKey(), score, ratio);
+            }
+        }
+        System.out.println("Results are written into " + resultFile.getAbsolutePath());
+    }
+
+    private static Map<String, Map<String, RunResult>> groupByFixture(Collection<RunResult> results) {
+        Map<String, Map<String, RunResult>> fixtures = new TreeMap<String, Map<String, RunResult>>();
+        for (RunResult result : results) {
+            String benchmark = result.getParams().getBenchmark();
+            String method = benchmark.substring(benchmark.lastIndexOf('.') + 1);
+            int separator = method.indexOf(SEPARATOR);
+            String fixture = method.substring(0, separator);
+            Map<String, RunResult> setups = fixtures.get(fixture);
+            if (setups == null) {
+                setups = new TreeMap<String, RunResult>();
+                fixtures.put(fixture, setups);
+            }
+            setups.put(method.substring(separator + SEPARATOR.length()), result);
+        }
+        return fixtures;
+    }
+
+    private InjectionComparison() {
+    }
+}
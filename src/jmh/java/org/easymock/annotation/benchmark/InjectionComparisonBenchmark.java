@@ -0,0 +1,213 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.benchmark;
+
+import static org.easymock.EasyMock.createMock;
+
+import java.util.concurrent.TimeUnit;
+
+import integrationtest.support.IndependentObject;
+import integrationtest.support.Repository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.easymock.EasyMockSupport;
+import org.easymock.TestSubject;
+
+import org.easymock.annotation.EasyMockAnnotations;
+import org.easymock.annotation.Injected;
+import org.easymock.annotation.Mock;
+
+/**
+ * Compares the setup of the same fixtures by {@link EasyMockAnnotations#initialize(Object)}, by the injection of
+ * EasyMock ({@link EasyMockSupport#injectMocks(Object)}, which is also what {@code EasyMockRunner} calls before every
+ * test) and by hand-written code. Benchmark methods are named {@code <fixture>By<setup>}, {@link InjectionComparison}
+ * runs them and reports every setup relative to the hand-written one.
+ * <p>
+ * @author Balazs Berkes
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InjectionComparisonBenchmark {
+
+    @Benchmark
+    public Object serviceByEasyMockAnnotations() {
+        AnnotatedServiceTest testClass = new AnnotatedServiceTest();
+        EasyMockAnnotations.initialize(testClass);
+        return testClass;
+    }
+
+    @Benchmark
+    public Object serviceByEasyMock() {
+        EasyMockServiceTest testClass = new EasyMockServiceTest();
+        EasyMockSupport.injectMocks(testClass);
+        return testClass;
+    }
+
+    @Benchmark
+    public Object serviceByHand() {
+        Service service = new Service();
+        service.setRepository(createMock(Repository.class));
+        service.setIndependentObject(createMock(IndependentObject.class));
+        return service;
+    }
+
+    @Benchmark
+    public Object facadeByEasyMockAnnotations() {
+        AnnotatedFacadeTest testClass = new AnnotatedFacadeTest();
+        EasyMockAnnotations.initialize(testClass);
+        return testClass;
+    }
+
+    @Benchmark
+    public Object facadeByEasyMock() {
+        EasyMockFacadeTest testClass = new EasyMockFacadeTest();
+        EasyMockSupport.injectMocks(testClass);
+        return testClass;
+    }
+
+    @Benchmark
+    public Object facadeByHand() {
+        Facade facade = new Facade();
+        facade.setRepository(createMock(Repository.class));
+        facade.setIndependentObject(createMock(IndependentObject.class));
+        facade.setClock(createMock(Clock.class));
+        facade.setNotifier(createMock(Notifier.class));
+        return facade;
+    }
+
+    public interface Clock {
+
+        long now();
+    }
+
+    public interface Notifier {
+
+        void notify(Object event);
+    }
+
+    /**
+     * Tested class with an interface and a class collaborator, modeled on
+     * {@link integrationtest.support.ServiceWithRepository}.
+     */
+    public static class Service {
+
+        private Repository repository;
+        private IndependentObject independentObject;
+
+        public Repository getRepository() {
+            return repository;
+        }
+
+        public void setRepository(Repository repository) {
+            this.repository = repository;
+        }
+
+        public IndependentObject getIndependentObject() {
+            return independentObject;
+        }
+
+        public void setIndependentObject(IndependentObject independentObject) {
+            this.independentObject = independentObject;
+        }
+    }
+
+    /**
+     * Tested class with the collaborators of the {@link Service} and two more interfaces.
+     */
+    public static class Facade {
+
+        private Repository repository;
+        private IndependentObject independentObject;
+        private Clock clock;
+        private Notifier notifier;
+
+        public void setRepository(Repository repository) {
+            this.repository = repository;
+        }
+
+        public void setIndependentObject(IndependentObject independentObject) {
+            this.independentObject = independentObject;
+        }
+
+        public void setClock(Clock clock) {
+            this.clock = clock;
+        }
+
+        public void setNotifier(Notifier notifier) {
+            this.notifier = notifier;
+        }
+    }
+
+    public static class AnnotatedServiceTest {
+
+        @Mock
+        private Repository repository;
+        @Mock
+        private IndependentObject independentObject;
+        @Injected
+        private Service service;
+    }
+
+    public static class EasyMockServiceTest {
+
+        @org.easymock.Mock
+        private Repository repository;
+        @org.easymock.Mock
+        private IndependentObject independentObject;
+        @TestSubject
+        private Service service = new Service();
+    }
+
+    public static class AnnotatedFacadeTest {
+
+        @Mock
+        private Repository repository;
+        @Mock
+        private IndependentObject independentObject;
+        @Mock
+        private Clock clock;
+        @Mock
+        private Notifier notifier;
+        @Injected
+        private Facade facade;
+    }
+
+    public static class EasyMockFacadeTest {
+
+        @org.easymock.Mock
+        private Repository repository;
+        @org.easymock.Mock
+        private IndependentObject independentObject;
+        @org.easymock.Mock
+        private Clock clock;
+        @org.easymock.Mock
+        private Notifier notifier;
+        @TestSubject
+        private Facade facade = new Facade();
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import integrationtest.support.FixtureGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.easymock.annotation.EasyMockAnnotations;
+
+/**
+ * Measures {@link EasyMockAnnotations#initialize(Object)} of test classes generated by {@link FixtureGenerator} with
+ * growing number of mocks, inheritance depth, generic mocks and injected objects. {@link ScalingGuard} checks how the
+ * time grows with each parameter.
+ * <p>
+ * @author Balazs Berkes
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class ScalingBenchmark {
+
+    @Param({"25", "100"})
+    public int mockCount;
+    @Param({"1", "4"})
+    public int inheritanceDepth;
+    @Param({"5", "20"})
+    public int genericFieldCount;
+    @Param({"2", "8"})
+    public int targetWidth;
+
+    private Class<?> testClass;
+
+    @Setup(Level.Trial)
+    public void generateFixture() {
+        testClass = new FixtureGenerator(mockCount, inheritanceDepth, genericFieldCount, targetWidth).generate();
+    }
+
+    @Benchmark
+    public Object initialize() throws Exception {
+        Object fixture = testClass.newInstance();
+        EasyMockAnnotations.initialize(fixture);
+        return fixture;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the {@link ScalingBenchmark} and estimates how the initialization time grows with each parameter. For every
+ * parameter and every combination of the other parameters the growth exponent is {@code log(t2 / t1) / log(p2 / p1)}
+ * between the smallest and the largest value of the parameter: 1 means linear, 2 means quadratic growth. The
+ * allowed exponent is the first argument, 1.5 by default. The process exits with status 1 if it is exceeded.
+ * <p>
+ * The parameter values can be changed by the {@code -p} option of the JMH runner, e.g. to run larger fixtures.
+ * <p>
+ * @author Balazs Berkes
+ */
+public final class ScalingGuard {
+
+    private static final double DEFAULT_MAX_EXPONENT = 1.5;
+
+    public static void main(String[] args) throws RunnerException {
+        double maxExponent = args.length > 0 ? Double.parseDouble(args[0]) : DEFAULT_MAX_EXPONENT;
+        Options options = new OptionsBuilder()
+                .include(ScalingBenchmark.class.getName())
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+        List<String> violations = new ArrayList<String>();
+        for (String parameter : getParameterNames(results)) {
+            for (Map.Entry<String, List<RunResult>> group : groupByOtherParameters(results, parameter).entrySet()) {
+                double exponent = getGrowthExponent(group.getValue(), parameter);
+                System.out.printf("%s [%s]: exponent %.2f%n", parameter, group.getKey(), exponent);
+                if (exponent > maxExponent) {
+                    violations.add(String.format("Initialization time grows by %s with exponent %.2f [%s], "
+                            + "allowed is %.2f", parameter, exponent, group.getKey(), maxExponent));
+                }
+            }
+        }
+        for (String violation : violations) {
+            System.err.println(violation);
+        }
+        if (!violations.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    private static Collection<String> getParameterNames(Collection<RunResult> results) {
+        return results.isEmpty() ? new ArrayList<String>()
+                : results.iterator().next().getParams().getParamsKeys();
+    }
+
+    private static Map<String, List<RunResult>> groupByOtherParameters(Collection<RunResult> results,
+            String parameter) {
+        Map<String, List<RunResult>> groups = new TreeMap<String, List<RunResult>>();
+        for (RunResult result : results) {
+            BenchmarkParams params = result.getParams();
+            StringBuilder key = new StringBuilder();
+            for (String name : params.getParamsKeys()) {
+                if (!name.equals(parameter)) {
+                    key.append(key.length() == 0 ? "" : ", ").append(name).append('=').append(params.getParam(name));
+                }
+            }
+            List<RunResult> group = groups.get(key.toString());
+            if (group == null) {
+                group = new ArrayList<RunResult>();
+                groups.put(key.toString(), group);
+            }
+            group.add(result);
+        }
+        return groups;
+    }
+
+    private static double getGrowthExponent(List<RunResult> group, String parameter) {
+        Map<Double, Double> scores = new HashMap<Double, Double>();
+        double smallest = Double.MAX_VALUE;
+        double largest = 0D;
+        for (RunResult result : group) {
+            double value = Double.parseDouble(result.getParams().getParam(parameter));
+            scores.put(value, result.getPrimaryResult().getScore());
+            smallest = Math.min(smallest, value);
+            largest = Math.max(largest, value);
+        }
+        if (smallest <= 0D || smallest == largest) {
+            return 0D;
+        }
+        return Math.log(scores.get(largest) / scores.get(smallest)) / Math.log(largest / smallest);
+    }
+
+    private ScalingGuard() {
+    }
+}
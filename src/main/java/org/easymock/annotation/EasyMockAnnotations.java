@@ -15,7 +15,6 @@
  */
 package org.easymock.annotation;
 
-import static org.mockannotations.utils.MockAnnotationReflectionUtils.getAllDeclaredFields;
 import static org.mockannotations.utils.MockAnnotationReflectionUtils.getField;
 import static org.mockannotations.utils.MockAnnotationReflectionUtils.setField;
 import static org.mockannotations.utils.MockAnnotationValidationUtils.assertNotNull;
@@ -23,32 +22,68 @@ import static org.mockannotations.utils.MockAnnotationValidationUtils.isNull;
 import static org.mockannotations.utils.MockAnnotationValidationUtils.notNull;
 
 import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
-import java.util.NavigableMap;
-import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.mockannotations.ClassInitializer;
 import org.mockannotations.MockHolder;
 import org.mockannotations.MockInjector;
 import org.mockannotations.SetterMockInjector;
-import org.mockannotations.utils.AnnotationScanner;
 
+import org.easymock.EasyMock;
 import org.easymock.IMocksControl;
-import org.easymock.MockType;
-import org.easymock.TestSubject;
 
+import org.easymock.annotation.internal.CacheType;
+import org.easymock.annotation.internal.ClassScopedMockFactory;
+import org.easymock.annotation.internal.ControlDefinition;
 import org.easymock.annotation.internal.FallbackMockHolderFactory;
-import org.easymock.annotation.internal.IMockControlFactory;
+import org.easymock.annotation.internal.InitializationCostReport;
+import org.easymock.annotation.internal.InitializationListeners;
+import org.easymock.annotation.internal.InitializationPlan;
+import org.easymock.annotation.internal.InitializationPlanCache;
+import org.easymock.annotation.internal.InitializationRecord;
+import org.easymock.annotation.internal.InitializationRegistry;
+import org.easymock.annotation.internal.InjectionTemplate;
+import org.easymock.annotation.internal.InjectionTemplateCache;
+import org.easymock.annotation.internal.InvocationMetricsReport;
+import org.easymock.annotation.internal.LeakDetector;
+import org.easymock.annotation.internal.MockBuilderDefinition;
+import org.easymock.annotation.internal.MockControlPool;
+import org.easymock.annotation.internal.MockDefinition;
+import org.easymock.annotation.internal.MockUsageTracker;
+import org.easymock.annotation.internal.QualifiedMockIndex.TargetInjection;
+import org.easymock.annotation.internal.RecordedExpectations;
+import org.easymock.annotation.internal.RecordedExpectationsCache;
+import org.easymock.annotation.internal.ReplacedMocks;
+import org.easymock.annotation.internal.StubFactory;
+import org.easymock.annotation.management.EasyMockAnnotationsStats;
 
 /**
- * Initialize the test class. Scans for the {@link Mock @Mock}, {@link MockControl @MockControl} and
- * {@link Injected @Injected} annotations.
+ * Initialize the test class. Scans for the {@link Mock @Mock}, {@link Stub @Stub}, {@link MockControl @MockControl}
+ * and {@link Injected @Injected} annotations.
  * <p>
  * @author Balazs Berkes
  */
 public class EasyMockAnnotations {
 
+    private static final InitializationPlanCache PLAN_CACHE = InitializationPlanCache.getSingleton();
+    private static final InitializationRegistry REGISTRY = InitializationRegistry.getSingleton();
+    private static final MockControlPool CONTROL_POOL = MockControlPool.getSingleton();
+
+    static {
+        EasyMockAnnotationsStats.registerIfEnabled();
+        InitializationCostReport.registerIfEnabled();
+        InvocationMetricsReport.registerIfEnabled();
+    }
+
     /**
      * Initialize the test class. Scans the test class for {@code @Mock}, {@code @MockControl} and {@code @Injected}
      * annotations. If {@code @MockControl} is presented mocks will be created by the first annotated
@@ -56,9 +91,16 @@ public class EasyMockAnnotations {
      * {@link Mock#control() @Mock.control()}. If no {@code @MockControl} annotation is presented mocks are created by
      * EasyMock (equals to {@code EasyMock.createMock(Class)}) or if the test class is an instance of
      * {@link org.easymock.EasyMockSupport EasyMockSupport} (equals to {@code createMock(class)}).
-     * Initialize all field annotated with {@link Mock @Mock}.
+     * Initialize all field annotated with {@link Mock @Mock}. Fields annotated with {@link Stub @Stub} are initialized
+     * with lightweight stubs which are not controlled by EasyMock. Mocks with {@link MockScope#CLASS} scope are created
+     * once per test class and thread, later initializations reset and inject the same mock.
      * <p>
-     * All the mocks are injected to field annotated with {@link Injected @Injected}. When the
+     * If the test class is annotated with {@link FixtureTemplate @FixtureTemplate} the injection into the tested
+     * classes is recorded on the first initialization and replayed by direct field assignments later. Methods annotated
+     * with {@link ExpectationTemplate @ExpectationTemplate} are run after the injection, their expectations are
+     * recorded on the first initialization and applied to the new mocks later.
+     * <p>
+     * All the mocks and stubs are injected to field annotated with {@link Injected @Injected}. When the
      * {@code Injected @Injected} field is not initialized a new instance will be created if it has default constructor.
      * <p>
      * Usage:
@@ -73,108 +115,569 @@ public class EasyMockAnnotations {
      */
     public static void initialize(Object testClass) {
         assertNotNull(testClass, "Test class cannot be null!");
-        new EasyMockAnnotationsInitializer().initialize(testClass);
+        new EasyMockAnnotationsInitializer(PLAN_CACHE.get(testClass.getClass())).initialize(testClass);
+
+    }
+
+    /**
+     * Initializes the test class again, filling only what changed since its last initialization. Controls, mocks and
+     * stubs are created only for the annotated fields which are {@code null}, and for the mocks of a control which
+     * was replaced. Fields replaced by the test are kept. The tested classes which are {@code null} or replaced are
+     * instantiated and injected as by {@link #initialize(Object)}. In the tested classes which were already injected
+     * only the fields (or their setters) referencing a replaced mock are updated. {@link ExpectationTemplate
+     * &#064;ExpectationTemplate} methods are not run again.
+     * <p>
+     * A test class which was not initialized or was released is initialized by {@link #initialize(Object)}.
+     * <p>
+     * Usage:
+     * <pre>
+     *     repository = new InMemoryRepository();
+     *     EasyMockAnnotations.reinitialize(this);
+     * </pre>
+     *
+     * @param testClass the test class
+     */
+    public static void reinitialize(Object testClass) {
+        assertNotNull(testClass, "Test class cannot be null!");
+        InitializationRecord record = REGISTRY.get(testClass);
+        if (isNull(record)) {
+            initialize(testClass);
+        } else {
+            new EasyMockAnnotationsInitializer(record.getPlan()).reinitialize(testClass, record);
+        }
+    }
+
+    /**
+     * Initialize all the given test classes. Equivalent to calling {@link #initialize(Object)} for each test class,
+     * every test class gets its own mocks and controls. The annotations are resolved once for consecutive test classes
+     * of the same type.
+     * <p>
+     * Usage:
+     * <pre>
+     *     EasyMockAnnotations.initializeAll(testCases);
+     * </pre>
+     *
+     * @param testClasses the test classes
+     */
+    public static void initializeAll(Object... testClasses) {
+        assertNotNull(testClasses, "Test classes cannot be null!");
+        initializeAll(Arrays.asList(testClasses));
+    }
+
+    /**
+     * Initialize all the given test classes. Equivalent to calling {@link #initialize(Object)} for each test class,
+     * every test class gets its own mocks and controls. The annotations are resolved once for consecutive test classes
+     * of the same type.
+     *
+     * @param testClasses the test classes
+     */
+    public static void initializeAll(Collection<?> testClasses) {
+        assertNotNull(testClasses, "Test classes cannot be null!");
+        InitializationPlan plan = null;
+        for (Object testClass : testClasses) {
+            assertNotNull(testClass, "Test class cannot be null!");
+            plan = getPlan(plan, testClass);
+            new EasyMockAnnotationsInitializer(plan).initialize(testClass);
+        }
+    }
+
+    /**
+     * Initialize all the given test classes in parallel by the given {@link Executor}. The method returns when every
+     * test class is initialized. Mocks with {@link MockScope#CLASS} scope are shared by the test classes initialized
+     * on the same thread of the executor.
+     *
+     * @param executor executor which runs the initializations
+     * @param testClasses the test classes
+     * @throws RuntimeException if the initialization of any test class fails, the first failure is thrown after all
+     * the initializations finished, {@link Error}s are thrown as they are
+     */
+    public static void initializeAll(Executor executor, Collection<?> testClasses) {
+        assertNotNull(executor, "Executor cannot be null!");
+        assertNotNull(testClasses, "Test classes cannot be null!");
+        ParallelInitialization initialization = new ParallelInitialization(testClasses.size());
+        InitializationPlan plan = null;
+        for (Object testClass : testClasses) {
+            assertNotNull(testClass, "Test class cannot be null!");
+            plan = getPlan(plan, testClass);
+            executor.execute(initialization.task(plan, testClass));
+        }
+        initialization.await();
+    }
+
+    /**
+     * Initialize the test class asynchronously by the given {@link Executor}. Creating the controls and the mocks and
+     * injecting them run on the executor, so the caller can do its own setup in the meantime. The fields of the test
+     * class are safely published to the thread which waits for the returned {@link Future}.
+     * <p>
+     * Mocks with {@link MockScope#CLASS} scope are cached for the thread of the executor.
+     * <p>
+     * Usage:
+     * <pre>
+     *     &#064;Before
+     *     public void setUp() throws Exception {
+     *         Future&lt;Void&gt; initialization = EasyMockAnnotations.initializeAsync(this, executor);
+     *         testData = loadTestData();
+     *         initialization.get();
+     *     }
+     * </pre>
+     *
+     * @param testClass the test class
+     * @param executor executor which runs the initialization
+     * @return future which completes when the test class is initialized, it fails with the exception of the
+     * initialization
+     */
+    public static Future<Void> initializeAsync(final Object testClass, Executor executor) {
+        assertNotNull(testClass, "Test class cannot be null!");
+        assertNotNull(executor, "Executor cannot be null!");
+        FutureTask<Void> initialization = new FutureTask<Void>(new Runnable() {
+            @Override
+            public void run() {
+                initialize(testClass);
+            }
+        }, null);
+        executor.execute(initialization);
+        return initialization;
+    }
 
+    /**
+     * Releases the objects created by the initialization of the test class. The fields annotated with
+     * {@link Mock @Mock}, {@link Stub @Stub} and {@link MockControl @MockControl} and the {@link Injected @Injected}
+     * fields instantiated by the initialization are set to {@code null}, so the mocks with their expectations and
+     * captured arguments can be garbage collected while the test class is still referenced by the test runner.
+     * {@code @Injected} fields which were initialized by the test class are kept. If the {@link MockControlPool} is
+     * enabled the controls of the test class are reset and returned to the pool of the current thread.
+     * <p>
+     * Usage:
+     * <pre>
+     *     &#064;After
+     *     public void tearDown() {
+     *         EasyMockAnnotations.release(this);
+     *     }
+     * </pre>
+     * or by the {@link ReleaseMocksRule}.
+     *
+     * @param testClass the test class
+     */
+    public static void release(Object testClass) {
+        assertNotNull(testClass, "Test class cannot be null!");
+        InitializationRecord record = REGISTRY.remove(testClass);
+        InitializationPlan plan = isNull(record) ? PLAN_CACHE.lookup(testClass.getClass()) : record.getPlan();
+        for (ControlDefinition control : plan.getControls()) {
+            if (notNull(record)) {
+                CONTROL_POOL.release(control.getType(), (IMocksControl) getField(control.getField(), testClass));
+            }
+            setField(control.getField(), testClass, null);
+        }
+        for (MockDefinition mock : plan.getMocks()) {
+            setField(mock.getField(), testClass, null);
+        }
+        if (notNull(record)) {
+            record.markReleased();
+            List<Field> testedClasses = plan.getTestedClasses();
+            for (int i = 0; i < testedClasses.size(); i++) {
+                if (record.isInstantiated(i)) {
+                    setField(testedClasses.get(i), testClass, null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Releases the mocks with {@link MockScope#CLASS} scope of the given test class on every thread. They are created
+     * again by the next initialization of the test class. Should be called when all the tests of the test class
+     * finished, e.g. by the {@link ReleaseClassScopedMocksRule}.
+     * <p>
+     * Usage:
+     * <pre>
+     *     &#064;AfterClass
+     *     public static void tearDownClass() {
+     *         EasyMockAnnotations.releaseClassScopedMocks(TestedObjectTest.class);
+     *     }
+     * </pre>
+     *
+     * @param testClass type of the test class
+     */
+    public static void releaseClassScopedMocks(Class<?> testClass) {
+        assertNotNull(testClass, "Test class cannot be null!");
+        ClassScopedMockFactory.getSingleton().release(testClass);
+    }
+
+    /**
+     * Switches the mocks of the initialized test class to replay state. Every {@link MockControl @MockControl} of the
+     * test class is replayed once, so are the mocks which are not created by a control. Stubs are not affected.
+     * <p>
+     * Usage:
+     * <pre>
+     *     expect(repository.find("key")).andReturn("value");
+     *     EasyMockAnnotations.replay(this);
+     * </pre>
+     *
+     * @param testClass the initialized test class
+     */
+    public static void replay(Object testClass) {
+        assertNotNull(testClass, "Test class cannot be null!");
+        InitializationPlan plan = getPlan(testClass);
+        for (ControlDefinition definition : plan.getControls()) {
+            IMocksControl control = (IMocksControl) getField(definition.getField(), testClass);
+            if (notNull(control)) {
+                control.replay();
+            }
+        }
+        for (MockDefinition definition : plan.getUncontrolledMocks()) {
+            Object mock = getField(definition.getField(), testClass);
+            if (notNull(mock)) {
+                EasyMock.replay(mock);
+            }
+        }
+    }
+
+    /**
+     * Verifies the mocks of the initialized test class. Every {@link MockControl @MockControl} of the test class is
+     * verified once, so are the mocks which are not created by a control. Stubs are not affected.
+     * <p>
+     * Usage:
+     * <pre>
+     *     EasyMockAnnotations.verify(this);
+     * </pre>
+     *
+     * @param testClass the initialized test class
+     */
+    public static void verify(Object testClass) {
+        assertNotNull(testClass, "Test class cannot be null!");
+        InitializationPlan plan = getPlan(testClass);
+        for (ControlDefinition definition : plan.getControls()) {
+            IMocksControl control = (IMocksControl) getField(definition.getField(), testClass);
+            if (notNull(control)) {
+                control.verify();
+            }
+        }
+        for (MockDefinition definition : plan.getUncontrolledMocks()) {
+            Object mock = getField(definition.getField(), testClass);
+            if (notNull(mock)) {
+                EasyMock.verify(mock);
+            }
+        }
+    }
+
+    private static InitializationPlan getPlan(Object testClass) {
+        InitializationRecord record = REGISTRY.get(testClass);
+        return isNull(record) ? PLAN_CACHE.lookup(testClass.getClass()) : record.getPlan();
+    }
+
+    private static InitializationPlan getPlan(InitializationPlan previous, Object testClass) {
+        if (notNull(previous) && previous.getTestClass() == testClass.getClass()) {
+            return previous;
+        }
+        return PLAN_CACHE.get(testClass.getClass());
     }
 
     private EasyMockAnnotations() {
     }
 
+    private static class ParallelInitialization {
+
+        private final CountDownLatch latch;
+        private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+        private ParallelInitialization(int count) {
+            latch = new CountDownLatch(count);
+        }
+
+        private Runnable task(final InitializationPlan plan, final Object testClass) {
+            return new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        new EasyMockAnnotationsInitializer(plan).initialize(testClass);
+                    } catch (Throwable ex) {
+                        failure.compareAndSet(null, ex);
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            };
+        }
+
+        private void await() {
+            try {
+                latch.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Initialization of test classes was interrupted!", ex);
+            }
+            Throwable ex = failure.get();
+            if (ex instanceof RuntimeException) {
+                throw (RuntimeException) ex;
+            } else if (ex instanceof Error) {
+                throw (Error) ex;
+            } else if (notNull(ex)) {
+                throw new RuntimeException("Initialization of test classes failed!", ex);
+            }
+        }
+    }
+
+    /**
+     * Initializes one test class by its plan. Everything which does not depend on the test class is resolved by the
+     * plan or shared by the initializers, the injectors and the mock factories are created only when they are needed.
+     * The mocks are kept in slots in the order of the mock definitions of the plan, {@link MockHolder}s are created
+     * only for the injectors of the tested classes.
+     */
     private static class EasyMockAnnotationsInitializer {
 
-        private final AnnotationScanner<MockControl> controlScanner = AnnotationScanner.getScanner(MockControl.class);
-        private final NavigableMap<String, IMocksControl> namedControls = new TreeMap<String, IMocksControl>();
-        private final IMockControlFactory controlFactory = IMockControlFactory.getSingleton();
-        private final ClassInitializer classInitializer = new ClassInitializer();
-        private final List<MockHolder> mocks = new ArrayList<MockHolder>();
-        private final MockInjector mockInjector = new MockInjector(mocks);
-        private final SetterMockInjector setterMockInjector = new SetterMockInjector(mocks);
+        private static final boolean[] NOT_INSTANTIATED = new boolean[0];
+        private static final Object[] NO_TESTED_CLASSES = new Object[0];
+        private static final StubFactory STUB_FACTORY = StubFactory.getSingleton();
+        private static final ClassScopedMockFactory CLASS_SCOPED_MOCK_FACTORY = ClassScopedMockFactory.getSingleton();
+        private static final InjectionTemplateCache TEMPLATE_CACHE = InjectionTemplateCache.getSingleton();
+        private static final RecordedExpectationsCache EXPECTATIONS_CACHE = RecordedExpectationsCache.getSingleton();
+        private static final InitializationListeners LISTENERS = InitializationListeners.getSingleton();
+        private static final MockUsageTracker USAGE_TRACKER = MockUsageTracker.getSingleton();
+        private static final LeakDetector LEAK_DETECTOR = LeakDetector.getSingleton();
 
+        private final InitializationPlan plan;
+        private final IMocksControl[] controls;
+        private final Object[] mocks;
+        private final Object[] testedClasses;
+
+        private List<MockHolder> mockHolders;
         private FallbackMockHolderFactory fallbackFactory;
+        private MockInjector mockInjector;
+        private SetterMockInjector setterMockInjector;
+        private ClassInitializer classInitializer;
         private Object testClass;
 
+        private EasyMockAnnotationsInitializer(InitializationPlan plan) {
+            this.plan = plan;
+            this.controls = new IMocksControl[plan.getControls().size()];
+            this.mocks = new Object[plan.getMocks().size()];
+            this.testedClasses = plan.getTestedClasses().isEmpty() ? NO_TESTED_CLASSES
+                    : new Object[plan.getTestedClasses().size()];
+        }
+
         private void initialize(Object testClass) {
+            long start = System.nanoTime();
             this.testClass = testClass;
             initializeMockControls();
-            initializeMockFactories();
             initializeMocks();
-            initializeTestedClasses();
+            boolean[] instantiated = initializeTestedClasses();
+            InitializationRecord record = new InitializationRecord(plan, instantiated, controls, mocks, testedClasses);
+            applyExpectationTemplates();
+            REGISTRY.register(testClass, record);
+            LEAK_DETECTOR.track(testClass, record, mocks);
+            LISTENERS.initializationFinished(plan.getTestClass(), System.nanoTime() - start);
         }
 
-        private void initializeMockControls() {
-            for (Field field : controlScanner.scan(testClass)) {
-                createAndInjectControl(field);
+        private void reinitialize(Object testClass, InitializationRecord previous) {
+            this.testClass = testClass;
+            boolean[] replacedControls = reinitializeMockControls(previous);
+            ReplacedMocks replacedMocks = reinitializeMocks(previous, replacedControls);
+            boolean[] instantiated = reinitializeTestedClasses(previous, replacedMocks);
+            InitializationRecord record = new InitializationRecord(plan, instantiated, controls, mocks, testedClasses);
+            REGISTRY.register(testClass, record);
+            LEAK_DETECTOR.track(testClass, record, mocks);
+        }
+
+        private boolean[] reinitializeMockControls(InitializationRecord previous) {
+            List<ControlDefinition> definitions = plan.getControls();
+            boolean[] replaced = new boolean[controls.length];
+            for (int i = 0; i < controls.length; i++) {
+                controls[i] = (IMocksControl) getField(definitions.get(i).getField(), testClass);
+                if (isNull(controls[i])) {
+                    controls[i] = createAndInjectControl(definitions.get(i));
+                }
+                replaced[i] = controls[i] != previous.getControl(i);
             }
+            return replaced;
         }
 
-        private void createAndInjectControl(Field field) {
-            assertFieldType(field);
-            IMocksControl control = createControl(field);
-            injectToTestclass(field, control);
-            namedControls.put(field.getName(), control);
+        private ReplacedMocks reinitializeMocks(InitializationRecord previous, boolean[] replacedControls) {
+            List<MockDefinition> definitions = plan.getMocks();
+            ReplacedMocks replacedMocks = new ReplacedMocks();
+            for (int i = 0; i < mocks.length; i++) {
+                int controlIndex = plan.getControlIndex(i);
+                Object previousMock = previous.getMock(i);
+                mocks[i] = getField(definitions.get(i).getField(), testClass);
+                if (isNull(mocks[i])
+                        || (mocks[i] == previousMock && controlIndex >= 0 && replacedControls[controlIndex])) {
+                    mocks[i] = createAndInjectMock(definitions.get(i), controlIndex);
+                }
+                if (notNull(previousMock) && mocks[i] != previousMock) {
+                    replacedMocks.add(previousMock, mocks[i]);
+                }
+            }
+            return replacedMocks;
         }
 
-        private void assertFieldType(Field field) throws RuntimeException {
-            if (field.getType() != IMocksControl.class) {
-                throw new RuntimeException("Field annotated with @MockControl must be type of org.easymock.IMocksControl!");
+        private boolean[] reinitializeTestedClasses(InitializationRecord previous, ReplacedMocks replacedMocks) {
+            List<Field> testedFields = plan.getTestedClasses();
+            boolean[] instantiated = new boolean[testedFields.size()];
+            for (int i = 0; i < instantiated.length; i++) {
+                Field field = testedFields.get(i);
+                Object testedClass = getField(field, testClass);
+                if (notNull(testedClass) && testedClass == previous.getTestedClass(i)) {
+                    instantiated[i] = previous.isInstantiated(i);
+                    testedClasses[i] = testedClass;
+                    if (!replacedMocks.isEmpty()) {
+                        replacedMocks.applyTo(testedClass);
+                    }
+                } else {
+                    instantiated[i] = isNull(testedClass);
+                    injectTestedClass(field, i);
+                }
             }
+            return instantiated;
         }
 
-        private IMocksControl createControl(Field field) {
-            MockControl annotation = field.getAnnotation(MockControl.class);
-            IMocksControl control = controlFactory.createControl(annotation.value());
-            return control;
+        private void applyExpectationTemplates() {
+            List<Method> templates = plan.getExpectationTemplates();
+            if (templates.isEmpty()) {
+                return;
+            }
+            RecordedExpectations expectations = EXPECTATIONS_CACHE.get(testClass.getClass());
+            boolean applied = notNull(expectations) && expectations.applyTo(controls, mocks);
+            LISTENERS.cacheAccessed(plan.getTestClass(), CacheType.EXPECTATION_TEMPLATE, applied);
+            if (applied) {
+                return;
+            }
+            if (isNull(expectations)) {
+                EXPECTATIONS_CACHE.put(testClass.getClass(),
+                        RecordedExpectations.record(testClass, templates, controls, mocks));
+            } else {
+                RecordedExpectations.runTemplates(testClass, templates);
+            }
+        }
+
+        private void initializeMockControls() {
+            List<ControlDefinition> definitions = plan.getControls();
+            for (int i = 0; i < controls.length; i++) {
+                controls[i] = createAndInjectControl(definitions.get(i));
+            }
         }
 
-        private void initializeMockFactories() {
-            fallbackFactory = new FallbackMockHolderFactory(namedControls, testClass);
+        private IMocksControl createAndInjectControl(ControlDefinition definition) {
+            IMocksControl control = CONTROL_POOL.checkout(definition.getType());
+            LISTENERS.controlCreated(plan.getTestClass(), definition.getType());
+            injectToTestclass(definition.getField(), control);
+            return control;
         }
 
         private void initializeMocks() {
-            for (Field field : getAllDeclaredFields(testClass.getClass())) {
-                createAndInjectMock(field);
+            List<MockDefinition> definitions = plan.getMocks();
+            for (int i = 0; i < definitions.size(); i++) {
+                mocks[i] = createAndInjectMock(definitions.get(i), plan.getControlIndex(i));
+            }
+        }
+
+        private boolean[] initializeTestedClasses() {
+            if (plan.getTestedClasses().isEmpty()) {
+                return NOT_INSTANTIATED;
+            } else if (plan.isFixtureTemplate()) {
+                return initializeTestedClassesByTemplate();
+            } else {
+                return injectTestedClasses(plan.getTestedClasses());
             }
         }
 
-        private void initializeTestedClasses() {
-            for (Field field : getAllDeclaredFields(testClass.getClass())) {
-                if (field.isAnnotationPresent(Injected.class) || field.isAnnotationPresent(TestSubject.class)) {
-                    Object testedClass = createInstanceIfNull(field);
-                    setterMockInjector.injectTo(testedClass);
-                    mockInjector.injectTo(testedClass);
+        private boolean[] initializeTestedClassesByTemplate() {
+            InjectionTemplate template = TEMPLATE_CACHE.get(testClass.getClass());
+            boolean applied = notNull(template) && template.applyTo(testClass, mocks, testedClasses);
+            LISTENERS.cacheAccessed(plan.getTestClass(), CacheType.FIXTURE_TEMPLATE, applied);
+            if (applied) {
+                return template.getInstantiated();
+            }
+            List<Field> testedFields = plan.getTestedClasses();
+            boolean[] instantiated = injectTestedClasses(testedFields);
+            if (isNull(template) || template.isSupported()) {
+                TEMPLATE_CACHE.put(testClass.getClass(),
+                        InjectionTemplate.record(testClass, testedFields, instantiated, mocks));
+            }
+            return instantiated;
+        }
+
+        private boolean[] injectTestedClasses(List<Field> testedFields) {
+            boolean[] instantiated = new boolean[testedFields.size()];
+            for (int i = 0; i < instantiated.length; i++) {
+                Field field = testedFields.get(i);
+                instantiated[i] = isNull(getField(field, testClass));
+                injectTestedClass(field, i);
+            }
+            return instantiated;
+        }
+
+        private void injectTestedClass(Field field, int index) {
+            Object testedClass = createInstanceIfNull(field);
+            testedClasses[index] = testedClass;
+            TargetInjection injection = plan.getQualifiedMocks().getInjection(testedClass.getClass());
+            if (!injection.isComplete()) {
+                if (isNull(mockInjector)) {
+                    mockInjector = new MockInjector(getMockHolders());
+                    setterMockInjector = new SetterMockInjector(getMockHolders());
                 }
+                setterMockInjector.injectTo(testedClass);
+                mockInjector.injectTo(testedClass);
             }
+            injection.injectTo(testedClass, mocks);
         }
 
         private Object createInstanceIfNull(Field field) {
             Object testedClass = getField(field, testClass);
             if (isNull(testedClass)) {
-                testedClass = classInitializer.initialize(field.getType(), mocks);
+                if (isNull(classInitializer)) {
+                    classInitializer = new ClassInitializer();
+                }
+                testedClass = classInitializer.initialize(field.getType(), getMockHolders());
+                LISTENERS.testedClassInstantiated(plan.getTestClass(), field);
                 injectToTestclass(field, testedClass);
             }
             return testedClass;
         }
 
-        private void createAndInjectMock(Field field) {
-            Mock annotation = field.getAnnotation(Mock.class);
-            if (notNull(annotation)) {
-                processMockAnnotation(field, annotation.name(), annotation.value(), annotation.control());
-            } else {
-                processEasyMockAnnotationIfPresented(field);
+        private Object createAndInjectMock(MockDefinition definition, int controlIndex) {
+            Object mock = createMock(definition, controlIndex);
+            if (definition.getKind() != MockDefinition.Kind.STUB) {
+                USAGE_TRACKER.track(plan.getTestClass(), definition.getField(), mock);
+            }
+            injectToTestclass(definition.getField(), mock);
+            return mock;
+        }
+
+        private List<MockHolder> getMockHolders() {
+            if (isNull(mockHolders)) {
+                List<MockDefinition> definitions = plan.getMocks();
+                mockHolders = new ArrayList<MockHolder>(mocks.length);
+                for (int i = 0; i < mocks.length; i++) {
+                    MockDefinition definition = definitions.get(i);
+                    mockHolders.add(MockHolder.create(mocks[i], definition.getField(), definition.getName()));
+                }
+            }
+            return mockHolders;
+        }
+
+        private Object createMock(MockDefinition definition, int controlIndex) {
+            Field field = definition.getField();
+            switch (definition.getKind()) {
+                case STUB:
+                    LISTENERS.mockCreated(plan.getTestClass(), field, null, StubFactory.class);
+                    return STUB_FACTORY.createStub(field.getType(), definition.getName());
+                case CLASS_SCOPED:
+                    return CLASS_SCOPED_MOCK_FACTORY.getMock(testClass.getClass(), field, definition.getName(),
+                            definition.getType(), bindBuilder(definition));
+                case MOCK:
+                default:
+                    return getFallbackFactory().createMock(field, definition.getName(), definition.getType(),
+                            controlIndex, bindBuilder(definition));
             }
         }
 
-        private void processMockAnnotation(Field field, String name, MockType type, String control) {
-            MockHolder mock = fallbackFactory.createMock(field, name, type, control);
-            mocks.add(mock);
-            injectToTestclass(field, mock.getMock());
+        private MockBuilderDefinition bindBuilder(MockDefinition definition) {
+            return isNull(definition.getBuilder()) ? null : definition.getBuilder().bind(testClass);
         }
 
-        private void processEasyMockAnnotationIfPresented(Field field) {
-            org.easymock.Mock easyMockAnnotation = field.getAnnotation(org.easymock.Mock.class);
-            if (notNull(easyMockAnnotation)) {
-                processMockAnnotation(field, easyMockAnnotation.name(), easyMockAnnotation.type(), "");
+        private FallbackMockHolderFactory getFallbackFactory() {
+            if (isNull(fallbackFactory)) {
+                fallbackFactory = new FallbackMockHolderFactory(plan, controls, testClass);
             }
+            return fallbackFactory;
         }
 
         private void injectToTestclass(Field field, Object control) {
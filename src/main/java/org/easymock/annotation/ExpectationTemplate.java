@@ -0,0 +1,51 @@
+/* 
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Methods annotated with {@code @ExpectationTemplate} record expectations on the mocks of the test class. They are run
+ * by {@link EasyMockAnnotations#initialize(Object)} after the mocks are injected, superclass methods first and the
+ * methods of a class in the order of their names.
+ * <p>
+ * The expectations recorded by the first initialization of a test class are stored: the invoked methods with their
+ * arguments and matchers, the return values, thrown exceptions, call counts and settings of the controls. Later
+ * initializations apply them to the controls of the new mocks directly and do not run the methods again. References
+ * to the mocks of the test class in arguments and return values are replaced by the new mocks.
+ * <p>
+ * Templates must only record expectations. They are run at every initialization if they use answers, delegates,
+ * captures, custom matchers, varargs methods, mocks of the test class inside matchers, or argument, return or matcher
+ * values other than mocks of the test class, {@code null}, strings, boxed primitives, enums and classes, because those
+ * cannot be shared by the test instances. Calls on stubs are not recorded.
+ * <p>
+ * Usage:
+ * <pre>
+ *     &#064;ExpectationTemplate
+ *     public void repositoryContent() {
+ *         expect(repository.find("key")).andReturn("value").anyTimes();
+ *     }
+ * </pre>
+ *
+ * @author Balazs Berkes
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ExpectationTemplate {
+}
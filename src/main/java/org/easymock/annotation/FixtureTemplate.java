@@ -0,0 +1,43 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Test classes annotated with {@code @FixtureTemplate} are initialized in template mode by
+ * {@link EasyMockAnnotations#initialize(Object)}.
+ * <p>
+ * The first initialization injects the mocks into the {@link Injected @Injected} fields as usual and records the
+ * resolved wiring: which mock was written into which field of which tested object. Later initializations of the same
+ * test class replay the recorded wiring as direct field assignments with the new mocks, without matching mocks to
+ * fields again. The template is recorded again when the layout of the fixture changes, e.g. an {@code @Injected} field
+ * holds an instance of another class.
+ * <p>
+ * The template stores the state of the fields, setters are not invoked when it is replayed. Tested classes which are
+ * instantiated by the framework must have a default constructor, otherwise the template mode is not used.
+ * <p>
+ * @author Balazs Berkes
+ */
+@Inherited
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface FixtureTemplate {
+}
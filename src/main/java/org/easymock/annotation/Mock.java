@@ -41,7 +41,8 @@ public @interface Mock {
     MockType value() default MockType.DEFAULT;
 
     /**
-     * Name of the mock.
+     * Name of the mock. A named mock is injected into the fields and setters of the {@link Injected @Injected} objects
+     * which have the same name and a type the mock is assignable to.
      * <p>
      * @return the name of the mock object.
      */
@@ -54,4 +55,34 @@ public @interface Mock {
      */
     String control() default "";
 
+    /**
+     * Lifecycle of the mock. Default is {@link MockScope#METHOD}.
+     * <p>
+     * Mocks with {@link MockScope#CLASS} scope are created by their own {@link org.easymock.IMocksControl
+     * IMocksControl}, so they cannot be associated with a control by {@link #control()}.
+     * <p>
+     * @return the scope of the mock
+     */
+    MockScope scope() default MockScope.METHOD;
+
+    /**
+     * Methods of a partial mock. Only the given methods are mocked, the other methods keep their implementation. A
+     * method is given by its name, or by its name and parameter types if it is overloaded, e.g.
+     * {@code "save(java.lang.String)"}. The mock is created by
+     * {@link org.easymock.EasyMock#createMockBuilder(Class) createMockBuilder}, the field must be a class.
+     * <p>
+     * @return signatures of the mocked methods, all methods are mocked if empty
+     */
+    String[] mockedMethods() default {};
+
+    /**
+     * Name of the method of the test class which provides the constructor arguments of a class mock. The method has
+     * no parameters and returns an {@code Object[]}, it is called for every created mock. The mock is created by
+     * {@link org.easymock.IMockBuilder#withConstructor(java.lang.reflect.Constructor) withConstructor}, the
+     * constructor is chosen by the types of the provided arguments.
+     * <p>
+     * @return name of the constructor arguments provider, the constructor is not called if empty
+     */
+    String constructorArgs() default "";
+
 }
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation;
+
+/**
+ * Defines the lifecycle of a mock created for a field annotated with {@link Mock @Mock}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public enum MockScope {
+
+    /**
+     * A new mock is created every time the test class is initialized.
+     */
+    METHOD,
+    /**
+     * The mock and its own {@link org.easymock.IMocksControl IMocksControl} are created once per test class and thread.
+     * Later initializations of the same test class reset the mock and inject the same instance again.
+     */
+    CLASS
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation;
+
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+/**
+ * JUnit class rule which {@link EasyMockAnnotations#releaseClassScopedMocks(Class) releases} the mocks with
+ * {@link MockScope#CLASS} scope of the test class after all of its tests, after the {@code @AfterClass} methods were
+ * run.
+ * <p>
+ * Usage:
+ * <pre>
+ *     &#064;ClassRule
+ *     public static ReleaseClassScopedMocksRule releaseClassScopedMocks = new ReleaseClassScopedMocksRule();
+ * </pre>
+ *
+ * @author Balazs Berkes
+ */
+public class ReleaseClassScopedMocksRule implements TestRule {
+
+    @Override
+    public Statement apply(final Statement base, final Description description) {
+        return new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                try {
+                    base.evaluate();
+                } finally {
+                    EasyMockAnnotations.releaseClassScopedMocks(description.getTestClass());
+                }
+            }
+        };
+    }
+}
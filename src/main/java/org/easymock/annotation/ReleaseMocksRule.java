@@ -0,0 +1,49 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation;
+
+import org.junit.rules.MethodRule;
+import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.Statement;
+
+/**
+ * JUnit rule which {@link EasyMockAnnotations#release(Object) releases} the mocks of the test class after each test,
+ * after the {@code @After} methods were run.
+ * <p>
+ * Usage:
+ * <pre>
+ *     &#064;Rule
+ *     public ReleaseMocksRule releaseMocks = new ReleaseMocksRule();
+ * </pre>
+ *
+ * @author Balazs Berkes
+ */
+public class ReleaseMocksRule implements MethodRule {
+
+    @Override
+    public Statement apply(final Statement base, FrameworkMethod method, final Object target) {
+        return new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                try {
+                    base.evaluate();
+                } finally {
+                    EasyMockAnnotations.release(target);
+                }
+            }
+        };
+    }
+}
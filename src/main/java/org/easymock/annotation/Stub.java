@@ -0,0 +1,46 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Fields annotated with {@code @Stub} will be filled up with a stub object after the test class is initialized by
+ * {@link EasyMockAnnotations#initialize(Object)}.
+ * <p>
+ * Stubs are not EasyMock mocks: they have no record/replay state and cannot be verified. Every method returns the
+ * default value of its return type ({@code null}, {@code 0} or {@code false}) unless a fixed value is set by
+ * {@link Stubs#stubReturn(Object, String, Object)}. Interfaces are stubbed by a cached
+ * {@link java.lang.reflect.Proxy Proxy}, classes fall back to an already replayed nice mock.
+ * <p>
+ * Stubs are injected to the fields annotated with {@link Injected @Injected} like mocks.
+ * <p>
+ * @author Balazs Berkes
+ */
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Stub {
+
+    /**
+     * Name of the stub. A named stub is injected like a {@link Mock#name() named mock}.
+     * <p>
+     * @return the name of the stub object.
+     */
+    String name() default "";
+}
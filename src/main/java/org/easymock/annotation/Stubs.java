@@ -0,0 +1,48 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation;
+
+import org.easymock.annotation.internal.StubFactory;
+
+/**
+ * Configures stubs created for fields annotated with {@link Stub @Stub}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public final class Stubs {
+
+    /**
+     * Sets a fixed return value for every method of the stub with the given name. This is the stub equivalent of
+     * {@code expect(mock.method()).andStubReturn(value)} for any arguments.
+     * <p>
+     * Usage:
+     * <pre>
+     *     Stubs.stubReturn(repository, "count", 42);
+     * </pre>
+     *
+     * @param stub interface stub injected into a {@code @Stub} field
+     * @param methodName name of the stubbed method
+     * @param value the value to return, must be compatible with the return type of the method
+     * @throws IllegalArgumentException if the object is not an interface stub, the method does not exist or the value is
+     * incompatible
+     */
+    public static void stubReturn(Object stub, String methodName, Object value) {
+        StubFactory.getSingleton().stubReturn(stub, methodName, value);
+    }
+
+    private Stubs() {
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+/**
+ * Caches used by the initialization of test classes.
+ * <p>
+ * @author Balazs Berkes
+ */
+public enum CacheType {
+
+    /**
+     * {@link InitializationPlan}s of the test classes.
+     */
+    PLAN,
+    /**
+     * Recorded {@link InjectionTemplate}s of test classes annotated with
+     * {@link org.easymock.annotation.FixtureTemplate @FixtureTemplate}.
+     */
+    FIXTURE_TEMPLATE,
+    /**
+     * Mocks with {@link org.easymock.annotation.MockScope#CLASS CLASS} scope.
+     */
+    CLASS_SCOPED_MOCK,
+    /**
+     * {@link RecordedExpectations} of test classes with {@link org.easymock.annotation.ExpectationTemplate
+     * @ExpectationTemplate} methods.
+     */
+    EXPECTATION_TEMPLATE
+}
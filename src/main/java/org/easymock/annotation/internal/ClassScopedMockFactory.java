@@ -0,0 +1,128 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+import static org.mockannotations.utils.MockAnnotationValidationUtils.isEmpty;
+import static org.mockannotations.utils.MockAnnotationValidationUtils.notNull;
+
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.easymock.IMocksControl;
+import org.easymock.MockType;
+
+/**
+ * Creates mocks which live as long as their test class. Mocks are cached per test class and thread, every mock has
+ * its own {@link IMocksControl} which is reset when the cached mock is returned again. The mocks of a test class are
+ * kept until the test class is {@link #release(Class) released}, the mocks of a terminated thread can be garbage
+ * collected.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class ClassScopedMockFactory {
+
+    private static ClassScopedMockFactory singleton;
+
+    private final IMockControlFactory controlFactory;
+    private final InitializationListeners listeners = InitializationListeners.getSingleton();
+    private final ConcurrentMap<Class<?>, Map<Thread, Map<Field, ScopedMock>>> cache
+            = new ConcurrentHashMap<Class<?>, Map<Thread, Map<Field, ScopedMock>>>();
+
+    public static synchronized ClassScopedMockFactory getSingleton() {
+        if (singleton == null) {
+            singleton = new ClassScopedMockFactory(IMockControlFactory.getSingleton());
+        }
+        return singleton;
+    }
+
+    /**
+     * Returns the mock of the given field for the given test class. The mock is created on the first call on the
+     * current thread, later calls reset and return the same mock.
+     * <p>
+     * @param testClass type of the test class
+     * @param field the annotated field
+     * @param name name of the mock, can be empty
+     * @param type {@link MockType} of the mock
+     * @param builder configuration of the builder which creates the mock, {@code null} if no builder is used
+     * @return returns the mocked object in record state.
+     */
+    public Object getMock(Class<?> testClass, Field field, String name, MockType type, MockBuilderDefinition builder) {
+        Map<Field, ScopedMock> mocks = getMocksOf(testClass);
+        ScopedMock scopedMock = mocks.get(field);
+        listeners.cacheAccessed(testClass, CacheType.CLASS_SCOPED_MOCK, scopedMock != null);
+        if (scopedMock == null) {
+            scopedMock = new ScopedMock(controlFactory.createControl(type), field.getType(), name, builder);
+            mocks.put(field, scopedMock);
+            listeners.controlCreated(testClass, type);
+            listeners.mockCreated(testClass, field, type, ClassScopedMockFactory.class);
+        } else {
+            scopedMock.control.reset();
+        }
+        return scopedMock.mock;
+    }
+
+    /**
+     * Drops the mocks of the given test class on every thread. The next initialization of the test class creates new
+     * mocks.
+     * <p>
+     * @param testClass type of the test class
+     */
+    public void release(Class<?> testClass) {
+        cache.remove(testClass);
+    }
+
+    private Map<Field, ScopedMock> getMocksOf(Class<?> testClass) {
+        Map<Thread, Map<Field, ScopedMock>> threads = cache.get(testClass);
+        if (threads == null) {
+            threads = Collections.synchronizedMap(new WeakHashMap<Thread, Map<Field, ScopedMock>>());
+            Map<Thread, Map<Field, ScopedMock>> previous = cache.putIfAbsent(testClass, threads);
+            if (previous != null) {
+                threads = previous;
+            }
+        }
+        Thread thread = Thread.currentThread();
+        Map<Field, ScopedMock> mocks = threads.get(thread);
+        if (mocks == null) {
+            mocks = new HashMap<Field, ScopedMock>();
+            threads.put(thread, mocks);
+        }
+        return mocks;
+    }
+
+    ClassScopedMockFactory(IMockControlFactory controlFactory) {
+        this.controlFactory = controlFactory;
+    }
+
+    private static final class ScopedMock {
+
+        private final IMocksControl control;
+        private final Object mock;
+
+        private ScopedMock(IMocksControl control, Class<?> clazz, String name, MockBuilderDefinition builder) {
+            this.control = control;
+            if (notNull(builder)) {
+                this.mock = new ControlledMockFactory(control).createMock(clazz, MockType.DEFAULT, name, builder);
+            } else {
+                this.mock = isEmpty(name) ? control.createMock(clazz) : control.createMock(name, clazz);
+            }
+        }
+    }
+}
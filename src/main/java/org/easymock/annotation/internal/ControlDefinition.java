@@ -0,0 +1,49 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+import java.lang.reflect.Field;
+
+import org.easymock.MockType;
+
+/**
+ * Immutable description of a field of the test class which has to be filled up with an
+ * {@link org.easymock.IMocksControl IMocksControl}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public final class ControlDefinition {
+
+    private final Field field;
+    private final MockType type;
+
+    public ControlDefinition(Field field, MockType type) {
+        this.field = field;
+        this.type = type;
+    }
+
+    public Field getField() {
+        return field;
+    }
+
+    public String getName() {
+        return field.getName();
+    }
+
+    public MockType getType() {
+        return type;
+    }
+}
@@ -15,15 +15,21 @@
  */
 package org.easymock.annotation.internal;
 
+import static org.mockannotations.utils.MockAnnotationValidationUtils.isEmpty;
+
+import org.easymock.EasyMock;
+import org.easymock.IMockBuilder;
 import org.easymock.IMocksControl;
 import org.easymock.MockType;
 
+import org.easymock.annotation.spi.MockFactory;
+
 /**
  * Creates mock via the given {@link IMocksControl}.
  *
  * @author Balazs Berkes
  */
-public class ControlledMockFactory implements MockFactory {
+public class ControlledMockFactory implements MockFactory, MockBuilderFactory {
 
     private final IMocksControl control;
 
@@ -55,4 +61,19 @@ public class ControlledMockFactory implements MockFactory {
     public <T> T createMock(Class<T> clazz, MockType type, String name) {
         return control.createMock(name, clazz);
     }
+
+    /**
+     * Creates a mock of the given class by the control and configured by the given definition.
+     * <p>
+     * @param clazz type of the mock
+     * @param type {@link MockType} will be ignored
+     * @param name name of the mock, can be empty
+     * @param definition configuration of the builder
+     * @return returns a mocked object.
+     */
+    @Override
+    public <T> T createMock(Class<T> clazz, MockType type, String name, MockBuilderDefinition definition) {
+        IMockBuilder<T> builder = definition.configure(EasyMock.createMockBuilder(clazz));
+        return isEmpty(name) ? builder.createMock(control) : builder.createMock(name, control);
+    }
 }
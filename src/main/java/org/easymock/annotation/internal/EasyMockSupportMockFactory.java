@@ -15,15 +15,20 @@
  */
 package org.easymock.annotation.internal;
 
+import static org.mockannotations.utils.MockAnnotationValidationUtils.isEmpty;
+
 import org.easymock.EasyMockSupport;
+import org.easymock.IMockBuilder;
 import org.easymock.MockType;
 
+import org.easymock.annotation.spi.MockFactory;
+
 /**
  * Creates mock via the given class which inherits from {@link EasyMockSupport}.
  *
  * @author Balazs Berkes
  */
-public class EasyMockSupportMockFactory implements MockFactory {
+public class EasyMockSupportMockFactory implements MockFactory, MockBuilderFactory {
 
     private final EasyMockSupport easyMockSupport;
 
@@ -66,4 +71,10 @@ public class EasyMockSupportMockFactory implements MockFactory {
         }
         return mock;
     }
+
+    @Override
+    public <T> T createMock(Class<T> clazz, MockType type, String name, MockBuilderDefinition definition) {
+        IMockBuilder<T> builder = definition.configure(easyMockSupport.createMockBuilder(clazz));
+        return isEmpty(name) ? builder.createMock(type) : builder.createMock(name, type);
+    }
 }
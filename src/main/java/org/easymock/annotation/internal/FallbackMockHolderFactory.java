@@ -17,132 +17,120 @@ package org.easymock.annotation.internal;
 
 import static org.mockannotations.utils.MockAnnotationValidationUtils.isEmpty;
 import static org.mockannotations.utils.MockAnnotationValidationUtils.isNull;
+import static org.mockannotations.utils.MockAnnotationValidationUtils.notNull;
 
 import java.lang.reflect.Field;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.NavigableMap;
-
-import org.mockannotations.MockHolder;
 
 import org.easymock.EasyMockSupport;
 import org.easymock.IMocksControl;
 import org.easymock.MockType;
 
+import org.easymock.annotation.spi.MockFactory;
+
 /**
- * Creates mock by according to the given rules.
+ * Creates mock by according to the given rules. Mocks associated with a control are created by the control, other
+ * mocks by the factory of a {@link org.easymock.annotation.spi.MockFactoryProvider MockFactoryProvider}, by the
+ * {@link EasyMockSupport} test class or by EasyMock. The control and the provided factory of a mock are resolved by
+ * the {@link InitializationPlan}, factories are created only when they are used. Partial and constructor mocks which
+ * cannot be created by the provided factory are created by the {@link EasyMockSupport} test class or by EasyMock.
  * <p>
  * @author Balazs Berkes
  */
 public class FallbackMockHolderFactory {
 
-    private List<FallbackFactory> factories = new ArrayList<FallbackFactory>();
-
-    public FallbackMockHolderFactory(NavigableMap<String, IMocksControl> namedContols, Object testClass) {
-        if (!namedContols.isEmpty()) {
-            factories.add(new NamedControlledFactory(namedContols));
-            factories.add(new DefaultControlledFactory(namedContols.firstEntry().getValue()));
-        }
-        factories.add(new NonControlledFactory(testClass));
-    }
-
-    public MockHolder createMock(Field field, String name, MockType mockType, String contolName) {
-        Object mock = createMockByFallback(field, name, mockType, contolName);
-
-        return MockHolder.create(mock, field, name);
+    private static final MockFactory STATIC_FACTORY = new StaticMockFactory();
+    private static final InitializationListeners LISTENERS = InitializationListeners.getSingleton();
+    private static final InvocationMetrics INVOCATION_METRICS = InvocationMetrics.getSingletonIfEnabled();
+
+    private final InitializationPlan plan;
+    private final IMocksControl[] controls;
+    private final MockFactory[] controlledFactories;
+    private final Object testClass;
+    private final MockFactory providedFactory;
+    private MockFactory nonControlledFactory;
+    private MockFactory defaultFactory;
+    private Class<?> nonControlledFactoryType;
+
+    /**
+     * Creates the factory of a test class.
+     * <p>
+     * @param plan the initialization plan of the test class
+     * @param controls the controls of the test class in the order of {@link InitializationPlan#getControls()}
+     * @param testClass the test class
+     */
+    public FallbackMockHolderFactory(InitializationPlan plan, IMocksControl[] controls, Object testClass) {
+        this.plan = plan;
+        this.controls = controls;
+        this.controlledFactories = new MockFactory[controls.length];
+        this.testClass = testClass;
+        this.providedFactory = plan.getMockFactory();
     }
 
-    private Object createMockByFallback(Field field, String name, MockType mockType, String contolName) {
-        Object mock = null;
-        for (FallbackFactory f : factories) {
-            mock = f.create(field.getType(), name, mockType, contolName);
-            if (mock != null) {
-                break;
-            }
+    /**
+     * Creates the mock of the given field.
+     * <p>
+     * @param field the annotated field
+     * @param name name of the mock, can be empty
+     * @param mockType {@link MockType} of the mock, ignored if the mock is created by a control
+     * @param controlIndex index of the control which creates the mock, {@code -1} if the mock is not controlled
+     * @param builder configuration of the builder which creates the mock, {@code null} if no builder is used
+     * @return the created mock
+     */
+    public Object createMock(Field field, String name, MockType mockType, int controlIndex,
+            MockBuilderDefinition builder) {
+        MockFactory factory;
+        Class<?> factoryType;
+        MockType createdType = mockType;
+        if (controlIndex >= 0) {
+            factory = getControlledFactory(controlIndex);
+            factoryType = ControlledMockFactory.class;
+            createdType = plan.getControls().get(controlIndex).getType();
+        } else {
+            factory = getNonControlledFactory();
+            factoryType = nonControlledFactoryType;
         }
-        return mock;
-    }
-
-    private abstract class FallbackFactory {
-
-        public Object create(Class<?> clazz, String name, MockType mockType, String contolName) {
-            if (isEmpty(name)) {
-                return createWithoutName(clazz, mockType, contolName);
-            } else {
-                return createWithName(clazz, mockType, name, contolName);
+        Object mock;
+        if (notNull(builder)) {
+            if (!(factory instanceof MockBuilderFactory)) {
+                factory = getDefaultFactory();
+                factoryType = factory.getClass();
             }
+            mock = ((MockBuilderFactory) factory).createMock(field.getType(), mockType, name, builder);
+        } else {
+            mock = isEmpty(name)
+                    ? factory.createMock(field.getType(), mockType)
+                    : factory.createMock(field.getType(), mockType, name);
         }
-
-        abstract Object createWithoutName(Class<?> clazz, MockType mockType, String contolName);
-
-        abstract Object createWithName(Class<?> clazz, MockType mockType, String name, String contolName);
-
-    }
-
-    private class DefaultControlledFactory extends FallbackFactory {
-
-        private MockFactory factory;
-
-        public DefaultControlledFactory(IMocksControl control) {
-            factory = new ControlledMockFactory(control);
-        }
-
-        @Override
-        Object createWithoutName(Class<?> clazz, MockType mockType, String contolName) {
-            return factory.createMock(clazz, mockType);
-        }
-
-        @Override
-        Object createWithName(Class<?> clazz, MockType mockType, String name, String contolName) {
-            return factory.createMock(clazz, mockType, name);
+        if (notNull(INVOCATION_METRICS)) {
+            INVOCATION_METRICS.instrument(mock, testClass.getClass(), field);
         }
+        LISTENERS.mockCreated(testClass.getClass(), field, createdType, factoryType);
+        return mock;
     }
 
-    private class NamedControlledFactory extends FallbackFactory {
-
-        private Map<String, MockFactory> factories = new HashMap<String, MockFactory>();
-
-        public NamedControlledFactory(Map<String, IMocksControl> namedContols) {
-            for (Map.Entry<String, IMocksControl> entry : namedContols.entrySet()) {
-                factories.put(entry.getKey(), new ControlledMockFactory(entry.getValue()));
-            }
-        }
-
-        @Override
-        Object createWithoutName(Class<?> clazz, MockType mockType, String contolName) {
-            MockFactory factory = factories.get(contolName);
-            return isNull(factory) ? null : factory.createMock(clazz, mockType);
-        }
-
-        @Override
-        Object createWithName(Class<?> clazz, MockType mockType, String name, String contolName) {
-            MockFactory factory = factories.get(contolName);
-            return isNull(factory) ? null : factory.createMock(clazz, mockType, name);
+    private MockFactory getControlledFactory(int controlIndex) {
+        MockFactory factory = controlledFactories[controlIndex];
+        if (isNull(factory)) {
+            factory = new ControlledMockFactory(controls[controlIndex]);
+            controlledFactories[controlIndex] = factory;
         }
+        return factory;
     }
 
-    private class NonControlledFactory extends FallbackFactory {
-
-        private MockFactory factory;
-
-        public NonControlledFactory(Object testClass) {
-            if (testClass instanceof EasyMockSupport) {
-                factory = new EasyMockSupportMockFactory((EasyMockSupport) testClass);
-            } else {
-                factory = new StaticMockFactory();
-            }
-        }
-
-        @Override
-        Object createWithoutName(Class<?> clazz, MockType mockType, String contolName) {
-            return factory.createMock(clazz, mockType);
+    private MockFactory getNonControlledFactory() {
+        if (isNull(nonControlledFactory)) {
+            nonControlledFactory = notNull(providedFactory) ? providedFactory : getDefaultFactory();
+            nonControlledFactoryType = nonControlledFactory.getClass();
         }
+        return nonControlledFactory;
+    }
 
-        @Override
-        Object createWithName(Class<?> clazz, MockType mockType, String name, String contolName) {
-            return factory.createMock(clazz, mockType, name);
+    private MockFactory getDefaultFactory() {
+        if (isNull(defaultFactory)) {
+            defaultFactory = testClass instanceof EasyMockSupport
+                    ? new EasyMockSupportMockFactory((EasyMockSupport) testClass)
+                    : STATIC_FACTORY;
         }
+        return defaultFactory;
     }
 }
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+import org.easymock.internal.ExpectedInvocation;
+import org.easymock.internal.IMocksBehavior;
+import org.easymock.internal.Invocation;
+import org.easymock.internal.Range;
+import org.easymock.internal.RecordState;
+import org.easymock.internal.Result;
+
+/**
+ * {@link IMocksBehavior} which forwards every call to another behavior. Subclasses override the methods they observe.
+ * <p>
+ * @author Balazs Berkes
+ */
+abstract class ForwardingMocksBehavior implements IMocksBehavior {
+
+    private final IMocksBehavior delegate;
+
+    ForwardingMocksBehavior(IMocksBehavior delegate) {
+        this.delegate = delegate;
+    }
+
+    IMocksBehavior getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Creates the record state of the control when this behavior is installed. EasyMock recognizes the record state
+     * by its type, so a decorator which observes the record state has to subclass {@link RecordState}. By default the
+     * record state of the delegate is used, so such a decorator is kept when other decorators are installed later.
+     * <p>
+     * @param behavior the installed behavior which the record state has to use
+     * @return the record state of the control
+     */
+    RecordState createRecordState(IMocksBehavior behavior) {
+        if (delegate instanceof ForwardingMocksBehavior) {
+            return ((ForwardingMocksBehavior) delegate).createRecordState(behavior);
+        }
+        return new RecordState(behavior);
+    }
+
+    @Override
+    public void addExpected(ExpectedInvocation expected, Result result, Range count) {
+        delegate.addExpected(expected, result, count);
+    }
+
+    @Override
+    public void addStub(ExpectedInvocation expected, Result result) {
+        delegate.addStub(expected, result);
+    }
+
+    @Override
+    public void checkOrder(boolean value) {
+        delegate.checkOrder(value);
+    }
+
+    @Override
+    public void makeThreadSafe(boolean isThreadSafe) {
+        delegate.makeThreadSafe(isThreadSafe);
+    }
+
+    @Override
+    public void shouldBeUsedInOneThread(boolean shouldBeUsedInOneThread) {
+        delegate.shouldBeUsedInOneThread(shouldBeUsedInOneThread);
+    }
+
+    @Override
+    public Result addActual(Invocation actual) {
+        return delegate.addActual(actual);
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return delegate.isThreadSafe();
+    }
+
+    @Override
+    public void checkThreadSafety() {
+        delegate.checkThreadSafety();
+    }
+
+    @Override
+    public void verify() {
+        delegate.verify();
+    }
+}
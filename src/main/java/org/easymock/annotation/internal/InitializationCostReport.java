@@ -0,0 +1,253 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+import static org.easymock.annotation.internal.ReportFiles.csvField;
+import static org.easymock.annotation.internal.ReportFiles.jsonString;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.easymock.MockType;
+
+/**
+ * Aggregates the initialization cost per test class and writes it into {@value #JSON_REPORT} and {@value #CSV_REPORT}
+ * of the {@link ReportFiles report directory} when the JVM exits. Test classes are sorted by the total time spent in
+ * their initialization, the cumulative share shows which test classes are responsible for most of the mock setup time.
+ * <p>
+ * The report is enabled by setting the {@value #ENABLED_PROPERTY} system property to {@code true}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class InitializationCostReport implements InitializationListener {
+
+    /**
+     * System property which enables the report when it is {@code true}.
+     */
+    public static final String ENABLED_PROPERTY = "easymock.annotations.report";
+    /**
+     * Name of the JSON report.
+     */
+    public static final String JSON_REPORT = "initialization-cost.json";
+    /**
+     * Name of the CSV report.
+     */
+    public static final String CSV_REPORT = "initialization-cost.csv";
+
+    private static final String CSV_HEADER = "testClass,initializations,totalNanos,meanNanos,share,cumulativeShare,"
+            + "interfaceMocks,classMocks,stubs,controls,testedClassesInstantiated,"
+            + "planCacheHitRatio,fixtureTemplateHitRatio,classScopedMockHitRatio,expectationTemplateHitRatio\n";
+
+    private static InitializationCostReport registered;
+
+    private final ConcurrentMap<Class<?>, TestClassCost> costs = new ConcurrentHashMap<Class<?>, TestClassCost>();
+
+    /**
+     * Registers the report if the {@value #ENABLED_PROPERTY} system property is {@code true}. The report is written
+     * when the JVM exits.
+     */
+    public static synchronized void registerIfEnabled() {
+        if (registered == null && Boolean.getBoolean(ENABLED_PROPERTY)) {
+            registered = new InitializationCostReport();
+            InitializationListeners.getSingleton().add(registered);
+            ReportFiles.writeOnShutdown("easymock-annotations-report", new Runnable() {
+                @Override
+                public void run() {
+                    registered.write();
+                }
+            });
+        }
+    }
+
+    @Override
+    public void initializationFinished(Class<?> testClass, long nanos) {
+        TestClassCost cost = getCost(testClass);
+        cost.initializations.incrementAndGet();
+        cost.totalNanos.addAndGet(nanos);
+    }
+
+    @Override
+    public void controlCreated(Class<?> testClass, MockType type) {
+        getCost(testClass).controls.incrementAndGet();
+    }
+
+    @Override
+    public void mockCreated(Class<?> testClass, Field field, MockType type, Class<?> factory) {
+        TestClassCost cost = getCost(testClass);
+        if (type == null) {
+            cost.stubs.incrementAndGet();
+        } else if (field.getType().isInterface()) {
+            cost.interfaceMocks.incrementAndGet();
+        } else {
+            cost.classMocks.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void testedClassInstantiated(Class<?> testClass, Field field) {
+        getCost(testClass).testedClassesInstantiated.incrementAndGet();
+    }
+
+    @Override
+    public void cacheAccessed(Class<?> testClass, CacheType cache, boolean hit) {
+        TestClassCost cost = getCost(testClass);
+        cost.cacheAccesses.incrementAndGet(cache.ordinal());
+        if (hit) {
+            cost.cacheHits.incrementAndGet(cache.ordinal());
+        }
+    }
+
+    @Override
+    public void mockInvoked(Class<?> testClass, Field field, Method method, long nanos) {
+    }
+
+    /**
+     * Writes the JSON and CSV reports of the costs aggregated so far.
+     */
+    public void write() {
+        List<TestClassCost> sorted = sortByTotalTime();
+        ReportFiles.write(JSON_REPORT, toJson(sorted));
+        ReportFiles.write(CSV_REPORT, toCsv(sorted));
+    }
+
+    String toJson(List<TestClassCost> sorted) {
+        long total = sumOfTotalTime(sorted);
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"totalNanos\": ").append(total).append(",\n  \"testClasses\": [");
+        long cumulative = 0L;
+        for (int i = 0; i < sorted.size(); i++) {
+            TestClassCost cost = sorted.get(i);
+            cumulative += cost.totalNanos.get();
+            json.append(i == 0 ? "\n" : ",\n").append("    {\"testClass\": ").append(jsonString(cost.name))
+                    .append(", \"initializations\": ").append(cost.initializations.get())
+                    .append(", \"totalNanos\": ").append(cost.totalNanos.get())
+                    .append(", \"meanNanos\": ").append(cost.getMeanNanos())
+                    .append(", \"share\": ").append(ratio(cost.totalNanos.get(), total))
+                    .append(", \"cumulativeShare\": ").append(ratio(cumulative, total))
+                    .append(", \"interfaceMocks\": ").append(cost.interfaceMocks.get())
+                    .append(", \"classMocks\": ").append(cost.classMocks.get())
+                    .append(", \"stubs\": ").append(cost.stubs.get())
+                    .append(", \"controls\": ").append(cost.controls.get())
+                    .append(", \"testedClassesInstantiated\": ").append(cost.testedClassesInstantiated.get())
+                    .append(", \"planCacheHitRatio\": ").append(cost.getHitRatio(CacheType.PLAN))
+                    .append(", \"fixtureTemplateHitRatio\": ").append(cost.getHitRatio(CacheType.FIXTURE_TEMPLATE))
+                    .append(", \"classScopedMockHitRatio\": ").append(cost.getHitRatio(CacheType.CLASS_SCOPED_MOCK))
+                    .append(", \"expectationTemplateHitRatio\": ")
+                    .append(cost.getHitRatio(CacheType.EXPECTATION_TEMPLATE))
+                    .append('}');
+        }
+        return json.append("\n  ]\n}\n").toString();
+    }
+
+    String toCsv(List<TestClassCost> sorted) {
+        long total = sumOfTotalTime(sorted);
+        StringBuilder csv = new StringBuilder(CSV_HEADER);
+        long cumulative = 0L;
+        for (TestClassCost cost : sorted) {
+            cumulative += cost.totalNanos.get();
+            csv.append(csvField(cost.name)).append(',')
+                    .append(cost.initializations.get()).append(',')
+                    .append(cost.totalNanos.get()).append(',')
+                    .append(cost.getMeanNanos()).append(',')
+                    .append(ratio(cost.totalNanos.get(), total)).append(',')
+                    .append(ratio(cumulative, total)).append(',')
+                    .append(cost.interfaceMocks.get()).append(',')
+                    .append(cost.classMocks.get()).append(',')
+                    .append(cost.stubs.get()).append(',')
+                    .append(cost.controls.get()).append(',')
+                    .append(cost.testedClassesInstantiated.get()).append(',')
+                    .append(emptyIfNull(cost.getHitRatio(CacheType.PLAN))).append(',')
+                    .append(emptyIfNull(cost.getHitRatio(CacheType.FIXTURE_TEMPLATE))).append(',')
+                    .append(emptyIfNull(cost.getHitRatio(CacheType.CLASS_SCOPED_MOCK))).append(',')
+                    .append(emptyIfNull(cost.getHitRatio(CacheType.EXPECTATION_TEMPLATE))).append('\n');
+        }
+        return csv.toString();
+    }
+
+    List<TestClassCost> sortByTotalTime() {
+        List<TestClassCost> sorted = new ArrayList<TestClassCost>(costs.values());
+        Collections.sort(sorted, new Comparator<TestClassCost>() {
+            @Override
+            public int compare(TestClassCost first, TestClassCost second) {
+                long difference = second.totalNanos.get() - first.totalNanos.get();
+                return difference == 0L ? first.name.compareTo(second.name) : (difference > 0L ? 1 : -1);
+            }
+        });
+        return sorted;
+    }
+
+    private TestClassCost getCost(Class<?> testClass) {
+        TestClassCost cost = costs.get(testClass);
+        if (cost == null) {
+            costs.putIfAbsent(testClass, new TestClassCost(testClass.getName()));
+            cost = costs.get(testClass);
+        }
+        return cost;
+    }
+
+    private static long sumOfTotalTime(List<TestClassCost> costs) {
+        long total = 0L;
+        for (TestClassCost cost : costs) {
+            total += cost.totalNanos.get();
+        }
+        return total;
+    }
+
+    private static String ratio(long part, long total) {
+        return total == 0L ? "0" : String.format(Locale.ROOT, "%.4f", (double) part / total);
+    }
+
+    private static String emptyIfNull(String value) {
+        return value == null ? "" : value;
+    }
+
+    static final class TestClassCost {
+
+        private final String name;
+        private final AtomicLong initializations = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong interfaceMocks = new AtomicLong();
+        private final AtomicLong classMocks = new AtomicLong();
+        private final AtomicLong stubs = new AtomicLong();
+        private final AtomicLong controls = new AtomicLong();
+        private final AtomicLong testedClassesInstantiated = new AtomicLong();
+        private final AtomicLongArray cacheAccesses = new AtomicLongArray(CacheType.values().length);
+        private final AtomicLongArray cacheHits = new AtomicLongArray(CacheType.values().length);
+
+        private TestClassCost(String name) {
+            this.name = name;
+        }
+
+        private long getMeanNanos() {
+            long count = initializations.get();
+            return count == 0L ? 0L : totalNanos.get() / count;
+        }
+
+        private String getHitRatio(CacheType cache) {
+            long accesses = cacheAccesses.get(cache.ordinal());
+            return accesses == 0L ? null : ratio(cacheHits.get(cache.ordinal()), accesses);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+import org.easymock.MockType;
+
+/**
+ * Receives events of the initialization of test classes. Listeners are registered in
+ * {@link InitializationListeners}, they are called on the thread of the initialization.
+ * <p>
+ * @author Balazs Berkes
+ */
+public interface InitializationListener {
+
+    /**
+     * Called when a test class was initialized.
+     * <p>
+     * @param testClass type of the test class
+     * @param nanos elapsed time of the initialization in nanoseconds
+     */
+    void initializationFinished(Class<?> testClass, long nanos);
+
+    /**
+     * Called when an {@link org.easymock.IMocksControl IMocksControl} was created.
+     * <p>
+     * @param testClass type of the test class
+     * @param type {@link MockType} of the control
+     */
+    void controlCreated(Class<?> testClass, MockType type);
+
+    /**
+     * Called when a mock or a stub was created.
+     * <p>
+     * @param testClass type of the test class
+     * @param field the annotated field
+     * @param type {@link MockType} of the mock, the type of the control for mocks created by a control, {@code null}
+     * for stubs
+     * @param factory type of the factory which created the mock
+     */
+    void mockCreated(Class<?> testClass, Field field, MockType type, Class<?> factory);
+
+    /**
+     * Called when the framework instantiated the object of a field annotated with
+     * {@link org.easymock.annotation.Injected @Injected}.
+     * <p>
+     * @param testClass type of the test class
+     * @param field the annotated field
+     */
+    void testedClassInstantiated(Class<?> testClass, Field field);
+
+    /**
+     * Called when a cached object was requested during the initialization.
+     * <p>
+     * @param testClass type of the test class
+     * @param cache the accessed cache
+     * @param hit {@code true} if the cached object was used, {@code false} if it had to be created
+     */
+    void cacheAccessed(Class<?> testClass, CacheType cache, boolean hit);
+
+    /**
+     * Called when a mock instrumented by {@link InvocationMetrics} was invoked in replay state.
+     * <p>
+     * @param testClass type of the test class
+     * @param field the annotated field of the mock
+     * @param method the invoked method
+     * @param nanos time spent in matching the invocation against the expectations in nanoseconds
+     */
+    void mockInvoked(Class<?> testClass, Field field, Method method, long nanos);
+}
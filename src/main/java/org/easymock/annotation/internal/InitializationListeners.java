@@ -0,0 +1,116 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.easymock.MockType;
+
+/**
+ * Registry of the {@link InitializationListener}s. It forwards every event to the registered listeners.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class InitializationListeners implements InitializationListener {
+
+    private static InitializationListeners singleton;
+
+    private final List<InitializationListener> listeners = new CopyOnWriteArrayList<InitializationListener>();
+
+    public static synchronized InitializationListeners getSingleton() {
+        if (singleton == null) {
+            singleton = new InitializationListeners();
+        }
+        return singleton;
+    }
+
+    /**
+     * Registers the given listener if it is not registered yet.
+     * <p>
+     * @param listener the listener
+     */
+    public void add(InitializationListener listener) {
+        if (!listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    /**
+     * Removes the given listener.
+     * <p>
+     * @param listener the listener
+     */
+    public void remove(InitializationListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Returns whether any listener is registered. Callers can skip collecting data of the events if it is not.
+     * <p>
+     * @return {@code true} if at least one listener is registered
+     */
+    public boolean isActive() {
+        return !listeners.isEmpty();
+    }
+
+    @Override
+    public void initializationFinished(Class<?> testClass, long nanos) {
+        for (InitializationListener listener : listeners) {
+            listener.initializationFinished(testClass, nanos);
+        }
+    }
+
+    @Override
+    public void controlCreated(Class<?> testClass, MockType type) {
+        for (InitializationListener listener : listeners) {
+            listener.controlCreated(testClass, type);
+        }
+    }
+
+    @Override
+    public void mockCreated(Class<?> testClass, Field field, MockType type, Class<?> factory) {
+        for (InitializationListener listener : listeners) {
+            listener.mockCreated(testClass, field, type, factory);
+        }
+    }
+
+    @Override
+    public void testedClassInstantiated(Class<?> testClass, Field field) {
+        for (InitializationListener listener : listeners) {
+            listener.testedClassInstantiated(testClass, field);
+        }
+    }
+
+    @Override
+    public void cacheAccessed(Class<?> testClass, CacheType cache, boolean hit) {
+        for (InitializationListener listener : listeners) {
+            listener.cacheAccessed(testClass, cache, hit);
+        }
+    }
+
+    @Override
+    public void mockInvoked(Class<?> testClass, Field field, Method method, long nanos) {
+        for (InitializationListener listener : listeners) {
+            listener.mockInvoked(testClass, field, method, nanos);
+        }
+    }
+
+    InitializationListeners() {
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+import static org.mockannotations.utils.MockAnnotationReflectionUtils.getAllDeclaredFields;
+import static org.mockannotations.utils.MockAnnotationValidationUtils.isEmpty;
+import static org.mockannotations.utils.MockAnnotationValidationUtils.notNull;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.easymock.IMocksControl;
+import org.easymock.TestSubject;
+
+import org.easymock.annotation.ExpectationTemplate;
+import org.easymock.annotation.FixtureTemplate;
+import org.easymock.annotation.Injected;
+import org.easymock.annotation.Mock;
+import org.easymock.annotation.MockControl;
+import org.easymock.annotation.MockScope;
+import org.easymock.annotation.Stub;
+import org.easymock.annotation.spi.MockFactory;
+
+/**
+ * Annotated fields of a test class resolved once. The plan is immutable, it can be shared by every initialization of
+ * the test class.
+ * <p>
+ * @author Balazs Berkes
+ */
+public final class InitializationPlan {
+
+    private final Class<?> testClass;
+    private final List<ControlDefinition> controls;
+    private final List<MockDefinition> mocks;
+    private final List<Field> testedClasses;
+    private final int[] controlIndexes;
+    private final List<MockDefinition> uncontrolledMocks;
+    private final QualifiedMockIndex qualifiedMocks;
+    private final List<Method> expectationTemplates;
+    private final boolean fixtureTemplate;
+    private final MockFactory mockFactory;
+
+    /**
+     * Scans the given test class for {@code @MockControl}, {@code @Mock}, {@code @Stub} and {@code @Injected}
+     * annotations.
+     * <p>
+     * @param testClass type of the test class
+     * @return the plan of the test class
+     * @throws RuntimeException if the annotations are used incorrectly
+     */
+    public static InitializationPlan create(Class<?> testClass) {
+        List<ControlDefinition> controls = new ArrayList<ControlDefinition>();
+        List<MockDefinition> mocks = new ArrayList<MockDefinition>();
+        List<Field> testedClasses = new ArrayList<Field>();
+        for (Field field : getAllDeclaredFields(testClass)) {
+            addControlIfPresented(controls, field);
+            addMockIfPresented(testClass, mocks, field);
+            if (field.isAnnotationPresent(Injected.class) || field.isAnnotationPresent(TestSubject.class)) {
+                testedClasses.add(field);
+            }
+        }
+        return new InitializationPlan(testClass, controls, mocks, testedClasses);
+    }
+
+    public Class<?> getTestClass() {
+        return testClass;
+    }
+
+    public List<ControlDefinition> getControls() {
+        return controls;
+    }
+
+    public List<MockDefinition> getMocks() {
+        return mocks;
+    }
+
+    public List<Field> getTestedClasses() {
+        return testedClasses;
+    }
+
+    public boolean isFixtureTemplate() {
+        return fixtureTemplate;
+    }
+
+    /**
+     * Returns the factory of the mocks which are not created by a control, provided by a
+     * {@link org.easymock.annotation.spi.MockFactoryProvider MockFactoryProvider}.
+     * <p>
+     * @return the provided factory, {@code null} if the default factory is used
+     */
+    public MockFactory getMockFactory() {
+        return mockFactory;
+    }
+
+    /**
+     * Returns the index of the control which creates the mock with the given index. Mocks are created by the control
+     * named by {@link Mock#control()}, or by the control with the lowest name if no control has that name.
+     * <p>
+     * @param mockIndex index of the mock in {@link #getMocks()}
+     * @return index of the control in {@link #getControls()}, {@code -1} if the mock is not created by a control
+     */
+    public int getControlIndex(int mockIndex) {
+        return controlIndexes[mockIndex];
+    }
+
+    /**
+     * Returns the EasyMock mocks which are not created by a control of the test class, so they have to be replayed and
+     * verified one by one. Stubs are not included.
+     * <p>
+     * @return the mocks not created by {@link #getControls()}
+     */
+    public List<MockDefinition> getUncontrolledMocks() {
+        return uncontrolledMocks;
+    }
+
+    /**
+     * Returns the index of the named mocks which are injected into the fields and setters with the same name. The
+     * injection into the declared types of the {@link Injected @Injected} fields is resolved with the plan.
+     * <p>
+     * @return the index of the named mocks
+     */
+    public QualifiedMockIndex getQualifiedMocks() {
+        return qualifiedMocks;
+    }
+
+    /**
+     * Returns the {@link ExpectationTemplate @ExpectationTemplate} methods in the order they are run: superclass
+     * methods first, the methods of a class in the order of their names.
+     * <p>
+     * @return the accessible template methods
+     */
+    public List<Method> getExpectationTemplates() {
+        return expectationTemplates;
+    }
+
+    private static void addControlIfPresented(List<ControlDefinition> controls, Field field) {
+        MockControl annotation = field.getAnnotation(MockControl.class);
+        if (notNull(annotation)) {
+            assertFieldType(field);
+            controls.add(new ControlDefinition(field, annotation.value()));
+        }
+    }
+
+    private static void assertFieldType(Field field) throws RuntimeException {
+        if (field.getType() != IMocksControl.class) {
+            throw new RuntimeException("Field annotated with @MockControl must be type of org.easymock.IMocksControl!");
+        }
+    }
+
+    private static void addMockIfPresented(Class<?> testClass, List<MockDefinition> mocks, Field field) {
+        Mock annotation = field.getAnnotation(Mock.class);
+        Stub stubAnnotation = field.getAnnotation(Stub.class);
+        org.easymock.Mock easyMockAnnotation = field.getAnnotation(org.easymock.Mock.class);
+        if (notNull(annotation)) {
+            mocks.add(createMockDefinition(testClass, field, annotation));
+        } else if (notNull(stubAnnotation)) {
+            mocks.add(new MockDefinition(field, stubAnnotation.name(), null, "", MockDefinition.Kind.STUB));
+        } else if (notNull(easyMockAnnotation)) {
+            mocks.add(new MockDefinition(field, easyMockAnnotation.name(), easyMockAnnotation.type(), "",
+                    MockDefinition.Kind.MOCK));
+        }
+    }
+
+    private static MockDefinition createMockDefinition(Class<?> testClass, Field field, Mock annotation) {
+        MockBuilderDefinition builder = createBuilderDefinition(testClass, field, annotation);
+        if (annotation.scope() == MockScope.CLASS) {
+            assertNoControl(annotation);
+            return new MockDefinition(field, annotation.name(), annotation.value(), "",
+                    MockDefinition.Kind.CLASS_SCOPED, builder);
+        }
+        return new MockDefinition(field, annotation.name(), annotation.value(), annotation.control(),
+                MockDefinition.Kind.MOCK, builder);
+    }
+
+    private static MockBuilderDefinition createBuilderDefinition(Class<?> testClass, Field field, Mock annotation) {
+        if (annotation.mockedMethods().length == 0 && isEmpty(annotation.constructorArgs())) {
+            return null;
+        }
+        return MockBuilderDefinition.create(field.getType(), annotation.mockedMethods(), testClass,
+                annotation.constructorArgs());
+    }
+
+    private static void assertNoControl(Mock annotation) throws RuntimeException {
+        if (!isEmpty(annotation.control())) {
+            throw new RuntimeException("Mock with scope CLASS cannot be associated with @MockControl!");
+        }
+    }
+
+    private InitializationPlan(Class<?> testClass, List<ControlDefinition> controls, List<MockDefinition> mocks,
+            List<Field> testedClasses) {
+        this.testClass = testClass;
+        this.controls = Collections.unmodifiableList(controls);
+        this.mocks = Collections.unmodifiableList(mocks);
+        this.testedClasses = Collections.unmodifiableList(testedClasses);
+        this.controlIndexes = resolveControls(controls, mocks);
+        this.uncontrolledMocks = Collections.unmodifiableList(collectUncontrolledMocks(mocks, controlIndexes));
+        this.qualifiedMocks = QualifiedMockIndex.create(mocks);
+        for (Field testedClass : testedClasses) {
+            if (!testedClass.getType().isInterface() && !Modifier.isAbstract(testedClass.getType().getModifiers())) {
+                qualifiedMocks.getInjection(testedClass.getType());
+            }
+        }
+        this.expectationTemplates = Collections.unmodifiableList(collectExpectationTemplates(testClass));
+        this.fixtureTemplate = testClass.isAnnotationPresent(FixtureTemplate.class);
+        this.mockFactory = MockFactoryProviders.getSingleton().getMockFactory(testClass);
+    }
+
+    private static int[] resolveControls(List<ControlDefinition> controls, List<MockDefinition> mocks) {
+        int defaultControl = -1;
+        for (int i = 0; i < controls.size(); i++) {
+            if (defaultControl < 0 || controls.get(i).getName().compareTo(controls.get(defaultControl).getName()) < 0) {
+                defaultControl = i;
+            }
+        }
+        int[] controlIndexes = new int[mocks.size()];
+        for (int i = 0; i < controlIndexes.length; i++) {
+            MockDefinition mock = mocks.get(i);
+            controlIndexes[i] = mock.getKind() == MockDefinition.Kind.MOCK ? defaultControl : -1;
+            for (int j = 0; j < controls.size(); j++) {
+                if (controlIndexes[i] >= 0 && controls.get(j).getName().equals(mock.getControl())) {
+                    controlIndexes[i] = j;
+                }
+            }
+        }
+        return controlIndexes;
+    }
+
+    private static List<Method> collectExpectationTemplates(Class<?> testClass) {
+        List<Method> templates = new ArrayList<Method>();
+        Set<String> names = new HashSet<String>();
+        for (Class<?> type = testClass; type != null && type != Object.class; type = type.getSuperclass()) {
+            List<Method> declared = new ArrayList<Method>();
+            for (Method method : type.getDeclaredMethods()) {
+                if (method.isAnnotationPresent(ExpectationTemplate.class) && names.add(method.getName())) {
+                    assertTemplateMethod(method);
+                    method.setAccessible(true);
+                    declared.add(method);
+                }
+            }
+            Collections.sort(declared, new Comparator<Method>() {
+                @Override
+                public int compare(Method first, Method second) {
+                    return first.getName().compareTo(second.getName());
+                }
+            });
+            templates.addAll(0, declared);
+        }
+        return templates;
+    }
+
+    private static void assertTemplateMethod(Method method) throws RuntimeException {
+        if (method.getParameterTypes().length != 0 || Modifier.isStatic(method.getModifiers())) {
+            throw new RuntimeException("Method annotated with @ExpectationTemplate must be a non-static method "
+                    + "without parameters!");
+        }
+    }
+
+    private static List<MockDefinition> collectUncontrolledMocks(List<MockDefinition> mocks, int[] controlIndexes) {
+        List<MockDefinition> uncontrolledMocks = new ArrayList<MockDefinition>();
+        for (int i = 0; i < controlIndexes.length; i++) {
+            if (controlIndexes[i] < 0 && mocks.get(i).getKind() != MockDefinition.Kind.STUB) {
+                uncontrolledMocks.add(mocks.get(i));
+            }
+        }
+        return uncontrolledMocks;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Holds the {@link InitializationPlan} of the test classes. Plans are created on the first request.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class InitializationPlanCache {
+
+    private static InitializationPlanCache singleton;
+
+    private final ConcurrentMap<Class<?>, InitializationPlan> plans
+            = new ConcurrentHashMap<Class<?>, InitializationPlan>();
+    private final InitializationListeners listeners = InitializationListeners.getSingleton();
+
+    public static synchronized InitializationPlanCache getSingleton() {
+        if (singleton == null) {
+            singleton = new InitializationPlanCache();
+        }
+        return singleton;
+    }
+
+    /**
+     * Returns the plan of the given test class for its initialization. The access is reported to the
+     * {@link InitializationListeners}.
+     * <p>
+     * @param testClass type of the test class
+     * @return the initialization plan of the test class
+     * @throws RuntimeException if the annotations of the test class are invalid
+     */
+    public InitializationPlan get(Class<?> testClass) {
+        InitializationPlan plan = plans.get(testClass);
+        listeners.cacheAccessed(testClass, CacheType.PLAN, plan != null);
+        return plan == null ? create(testClass) : plan;
+    }
+
+    /**
+     * Returns the plan of the given test class for other operations than the initialization, e.g. releasing or
+     * verifying the test class. The access is not reported, so it does not change the hit ratio of the cache.
+     * <p>
+     * @param testClass type of the test class
+     * @return the initialization plan of the test class
+     * @throws RuntimeException if the annotations of the test class are invalid
+     */
+    public InitializationPlan lookup(Class<?> testClass) {
+        InitializationPlan plan = plans.get(testClass);
+        return plan == null ? create(testClass) : plan;
+    }
+
+    private InitializationPlan create(Class<?> testClass) {
+        plans.putIfAbsent(testClass, InitializationPlan.create(testClass));
+        return plans.get(testClass);
+    }
+
+    InitializationPlanCache() {
+    }
+}
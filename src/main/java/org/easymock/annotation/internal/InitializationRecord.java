@@ -0,0 +1,133 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+
+/**
+ * Describes what the framework populated in an initialized test class. It does not reference the test class itself,
+ * the populated controls, mocks and tested classes are referenced weakly, so they can be compared with the fields of
+ * the test class when it is {@link org.easymock.annotation.EasyMockAnnotations#reinitialize(Object) reinitialized}.
+ * The record stays in the {@link InitializationRegistry} until the test class is released or collected, so it must
+ * not keep anything reachable which may reference the test class.
+ * <p>
+ * @author Balazs Berkes
+ */
+public final class InitializationRecord {
+
+    private final InitializationPlan plan;
+    private final boolean[] instantiated;
+    private final int mockOffset;
+    private final int testedClassOffset;
+    private final Reference<?>[] slots;
+    private volatile boolean released;
+
+    /**
+     * Creates the record of an initialized test class.
+     * <p>
+     * @param plan the plan the test class was initialized by
+     * @param instantiated {@code true} for each field of {@link InitializationPlan#getTestedClasses()} which was
+     * instantiated by the framework
+     * @param controls the controls in the order of {@link InitializationPlan#getControls()}
+     * @param mocks the mocks in the order of {@link InitializationPlan#getMocks()}
+     * @param testedClasses the tested classes in the order of {@link InitializationPlan#getTestedClasses()}
+     */
+    public InitializationRecord(InitializationPlan plan, boolean[] instantiated, Object[] controls, Object[] mocks,
+            Object[] testedClasses) {
+        this.plan = plan;
+        this.instantiated = instantiated;
+        this.mockOffset = controls.length;
+        this.testedClassOffset = controls.length + mocks.length;
+        this.slots = new Reference<?>[testedClassOffset + testedClasses.length];
+        addSlots(controls, 0);
+        addSlots(mocks, mockOffset);
+        addSlots(testedClasses, testedClassOffset);
+    }
+
+    public InitializationPlan getPlan() {
+        return plan;
+    }
+
+    /**
+     * Returns whether the tested class with the given index was instantiated by the framework.
+     * <p>
+     * @param index index of the field in {@link InitializationPlan#getTestedClasses()}
+     * @return {@code true} if the framework created the object of the field
+     */
+    public boolean isInstantiated(int index) {
+        return instantiated[index];
+    }
+
+    /**
+     * Returns the control populated into the field with the given index.
+     * <p>
+     * @param index index of the field in {@link InitializationPlan#getControls()}
+     * @return the control, {@code null} if it was garbage collected
+     */
+    public Object getControl(int index) {
+        return getSlot(index);
+    }
+
+    /**
+     * Returns the mock populated into the field with the given index.
+     * <p>
+     * @param index index of the field in {@link InitializationPlan#getMocks()}
+     * @return the mock, {@code null} if it was garbage collected
+     */
+    public Object getMock(int index) {
+        return getSlot(mockOffset + index);
+    }
+
+    /**
+     * Returns the tested class of the field with the given index, which the mocks were injected into.
+     * <p>
+     * @param index index of the field in {@link InitializationPlan#getTestedClasses()}
+     * @return the tested class, {@code null} if it was garbage collected
+     */
+    public Object getTestedClass(int index) {
+        return getSlot(testedClassOffset + index);
+    }
+
+    /**
+     * Returns whether the test class was released after this initialization.
+     * <p>
+     * @return {@code true} if the test class was released
+     */
+    public boolean isReleased() {
+        return released;
+    }
+
+    /**
+     * Marks the test class as released.
+     */
+    public void markReleased() {
+        released = true;
+    }
+
+    private void addSlots(Object[] objects, int offset) {
+        for (int i = 0; i < objects.length; i++) {
+            if (objects[i] != null) {
+                slots[offset + i] = new WeakReference<Object>(objects[i]);
+            }
+        }
+    }
+
+    private Object getSlot(int index) {
+        Reference<?> slot = slots[index];
+        return slot == null ? null : slot.get();
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Holds the {@link InitializationRecord} of the initialized test classes. Test classes are compared by identity and
+ * referenced weakly, so a test class which is not released explicitly does not stay reachable because of the registry.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class InitializationRegistry {
+
+    private static InitializationRegistry singleton;
+
+    private final ReferenceQueue<Object> collected = new ReferenceQueue<Object>();
+    private final ConcurrentMap<TestClassKey, InitializationRecord> records
+            = new ConcurrentHashMap<TestClassKey, InitializationRecord>();
+
+    public static synchronized InitializationRegistry getSingleton() {
+        if (singleton == null) {
+            singleton = new InitializationRegistry();
+        }
+        return singleton;
+    }
+
+    /**
+     * Stores the record of the given test class. The previous record of the test class is replaced.
+     * <p>
+     * @param testClass the initialized test class
+     * @param record the record of the initialization
+     */
+    public void register(Object testClass, InitializationRecord record) {
+        expungeCollected();
+        records.put(new TestClassKey(testClass, collected), record);
+    }
+
+    /**
+     * Returns the record of the given test class.
+     * <p>
+     * @param testClass the test class
+     * @return the record of the last initialization, {@code null} if the test class was not initialized or it was
+     * released
+     */
+    public InitializationRecord get(Object testClass) {
+        return records.get(new TestClassKey(testClass, null));
+    }
+
+    /**
+     * Removes the record of the given test class.
+     * <p>
+     * @param testClass the test class
+     * @return the removed record, {@code null} if the test class was not initialized or it was already released
+     */
+    public InitializationRecord remove(Object testClass) {
+        expungeCollected();
+        return records.remove(new TestClassKey(testClass, null));
+    }
+
+    int size() {
+        expungeCollected();
+        return records.size();
+    }
+
+    private void expungeCollected() {
+        Reference<?> reference;
+        while ((reference = collected.poll()) != null) {
+            records.remove(reference);
+        }
+    }
+
+    InitializationRegistry() {
+    }
+
+    private static final class TestClassKey extends WeakReference<Object> {
+
+        private final int hash;
+
+        private TestClassKey(Object testClass, ReferenceQueue<Object> queue) {
+            super(testClass, queue);
+            hash = System.identityHashCode(testClass);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof TestClassKey)) {
+                return false;
+            }
+            Object testClass = get();
+            return testClass != null && testClass == ((TestClassKey) obj).get();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
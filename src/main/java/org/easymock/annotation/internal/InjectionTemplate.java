@@ -0,0 +1,236 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+import static org.mockannotations.utils.MockAnnotationReflectionUtils.getAllDeclaredFields;
+import static org.mockannotations.utils.MockAnnotationReflectionUtils.getField;
+import static org.mockannotations.utils.MockAnnotationReflectionUtils.setField;
+import static org.mockannotations.utils.MockAnnotationValidationUtils.isNull;
+import static org.mockannotations.utils.MockAnnotationValidationUtils.notNull;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Recorded wiring of the tested classes of a test class. It contains which mock was injected into which field of the
+ * objects held by the {@link org.easymock.annotation.Injected @Injected} fields, so the injection can be repeated
+ * with new mocks by direct field assignments.
+ * <p>
+ * Setters are not replayed, so the wiring of tested classes with setters which can receive a mock is not supported
+ * and they are injected as without a template.
+ * <p>
+ * @author Balazs Berkes
+ */
+public final class InjectionTemplate {
+
+    private static final InjectionTemplate UNSUPPORTED = new InjectionTemplate(-1, new TargetTemplate[0]);
+
+    private final int mockCount;
+    private final TargetTemplate[] targets;
+    private final boolean[] instantiated;
+
+    /**
+     * Records the wiring of an already initialized test class.
+     * <p>
+     * @param testClass the initialized test class
+     * @param injectedFields fields of the tested classes
+     * @param instantiated {@code true} for each injected field which was instantiated by the initialization
+     * @param mocks mocks injected into the tested classes in the order of {@link InitializationPlan#getMocks()}
+     * @return the recorded template, which is not supported if a tested class cannot be instantiated directly or has
+     * a setter which can receive a mock
+     */
+    public static InjectionTemplate record(Object testClass, List<Field> injectedFields, boolean[] instantiated,
+            Object[] mocks) {
+        Map<Object, Integer> mockIndexes = indexMocks(mocks);
+        TargetTemplate[] targets = new TargetTemplate[injectedFields.size()];
+        for (int i = 0; i < targets.length; i++) {
+            Field field = injectedFields.get(i);
+            Object target = getField(field, testClass);
+            Constructor<?> constructor = instantiated[i] ? getDefaultConstructor(target.getClass()) : null;
+            if (instantiated[i] && isNull(constructor) || hasMockSetter(target.getClass(), mocks)) {
+                return UNSUPPORTED;
+            }
+            Assignment[] assignments = recordAssignments(target, mockIndexes);
+            targets[i] = new TargetTemplate(field, target.getClass(), constructor, assignments);
+        }
+        return new InjectionTemplate(mocks.length, targets);
+    }
+
+    /**
+     * Returns whether the template can be replayed. Templates of test classes whose tested classes cannot be
+     * instantiated directly or have setters which can receive a mock are not supported.
+     * <p>
+     * @return {@code true} if the template can be replayed
+     */
+    public boolean isSupported() {
+        return this != UNSUPPORTED;
+    }
+
+    /**
+     * Replays the recorded wiring on the given test class with the given mocks. Nothing is changed if the layout of
+     * the test class does not match the recorded one.
+     * <p>
+     * @param testClass test class with initialized mocks
+     * @param mocks the mocks of the test class in the same order as they were recorded
+     * @param testedClasses slots of the tested classes, filled in the order of the injected fields
+     * @return {@code true} if the template was replayed, {@code false} if the layout does not match
+     */
+    public boolean applyTo(Object testClass, Object[] mocks, Object[] testedClasses) {
+        if (!matches(testClass, mocks)) {
+            return false;
+        }
+        for (int i = 0; i < targets.length; i++) {
+            testedClasses[i] = targets[i].applyTo(testClass, mocks);
+        }
+        return true;
+    }
+
+    /**
+     * Returns which tested classes are instantiated when the template is replayed. The returned array must not be
+     * modified.
+     * <p>
+     * @return {@code true} for each injected field which is instantiated by the template
+     */
+    public boolean[] getInstantiated() {
+        return instantiated;
+    }
+
+    private boolean matches(Object testClass, Object[] mocks) {
+        if (!isSupported() || mocks.length != mockCount) {
+            return false;
+        }
+        for (TargetTemplate target : targets) {
+            if (!target.matches(testClass)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Map<Object, Integer> indexMocks(Object[] mocks) {
+        Map<Object, Integer> mockIndexes = new IdentityHashMap<Object, Integer>();
+        for (int i = 0; i < mocks.length; i++) {
+            mockIndexes.put(mocks[i], i);
+        }
+        return mockIndexes;
+    }
+
+    private static Assignment[] recordAssignments(Object target, Map<Object, Integer> mockIndexes) {
+        List<Assignment> assignments = new ArrayList<Assignment>();
+        for (Field field : getAllDeclaredFields(target.getClass())) {
+            if (isInjectable(field)) {
+                Integer mockIndex = mockIndexes.get(getField(field, target));
+                if (mockIndex != null) {
+                    assignments.add(new Assignment(field, mockIndex));
+                }
+            }
+        }
+        return assignments.toArray(new Assignment[assignments.size()]);
+    }
+
+    private static boolean hasMockSetter(Class<?> type, Object[] mocks) {
+        for (Method method : type.getMethods()) {
+            if (QualifiedMockIndex.isSetter(method)) {
+                for (Object mock : mocks) {
+                    if (method.getParameterTypes()[0].isInstance(mock)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isInjectable(Field field) {
+        int modifiers = field.getModifiers();
+        return !Modifier.isStatic(modifiers) && !Modifier.isFinal(modifiers);
+    }
+
+    private static Constructor<?> getDefaultConstructor(Class<?> clazz) {
+        try {
+            Constructor<?> constructor = clazz.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor;
+        } catch (NoSuchMethodException ex) {
+            return null;
+        }
+    }
+
+    private InjectionTemplate(int mockCount, TargetTemplate[] targets) {
+        this.mockCount = mockCount;
+        this.targets = targets;
+        this.instantiated = new boolean[targets.length];
+        for (int i = 0; i < targets.length; i++) {
+            instantiated[i] = notNull(targets[i].constructor);
+        }
+    }
+
+    private static final class TargetTemplate {
+
+        private final Field field;
+        private final Class<?> type;
+        private final Constructor<?> constructor;
+        private final Assignment[] assignments;
+
+        private TargetTemplate(Field field, Class<?> type, Constructor<?> constructor, Assignment[] assignments) {
+            this.field = field;
+            this.type = type;
+            this.constructor = constructor;
+            this.assignments = assignments;
+        }
+
+        private boolean matches(Object testClass) {
+            Object target = getField(field, testClass);
+            return isNull(constructor) ? target != null && target.getClass() == type : isNull(target);
+        }
+
+        private Object applyTo(Object testClass, Object[] mocks) {
+            Object target = isNull(constructor) ? getField(field, testClass) : instantiate(testClass);
+            for (Assignment assignment : assignments) {
+                setField(assignment.field, target, mocks[assignment.mockIndex]);
+            }
+            return target;
+        }
+
+        private Object instantiate(Object testClass) {
+            try {
+                Object target = constructor.newInstance();
+                InitializationListeners.getSingleton().testedClassInstantiated(testClass.getClass(), field);
+                setField(field, testClass, target);
+                return target;
+            } catch (Exception ex) {
+                throw new RuntimeException("Cannot instantiate " + type.getName(), ex);
+            }
+        }
+    }
+
+    private static final class Assignment {
+
+        private final Field field;
+        private final int mockIndex;
+
+        private Assignment(Field field, int mockIndex) {
+            this.field = field;
+            this.mockIndex = mockIndex;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Holds the recorded {@link InjectionTemplate} of the test classes.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class InjectionTemplateCache {
+
+    private static InjectionTemplateCache singleton;
+
+    private final ConcurrentMap<Class<?>, InjectionTemplate> templates
+            = new ConcurrentHashMap<Class<?>, InjectionTemplate>();
+
+    public static synchronized InjectionTemplateCache getSingleton() {
+        if (singleton == null) {
+            singleton = new InjectionTemplateCache();
+        }
+        return singleton;
+    }
+
+    /**
+     * Returns the recorded template of the given test class.
+     * <p>
+     * @param testClass type of the test class
+     * @return the recorded template or {@code null} if it was not recorded yet
+     */
+    public InjectionTemplate get(Class<?> testClass) {
+        return templates.get(testClass);
+    }
+
+    /**
+     * Stores the template of the given test class. The previously recorded template is replaced.
+     * <p>
+     * @param testClass type of the test class
+     * @param template the recorded template
+     */
+    public void put(Class<?> testClass, InjectionTemplate template) {
+        templates.put(testClass, template);
+    }
+
+    InjectionTemplateCache() {
+    }
+}
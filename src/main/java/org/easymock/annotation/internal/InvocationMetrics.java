@@ -0,0 +1,140 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+import java.lang.reflect.Field;
+
+import org.easymock.internal.IMocksBehavior;
+import org.easymock.internal.Invocation;
+import org.easymock.internal.MocksControl;
+import org.easymock.internal.Result;
+
+/**
+ * Decorates the controls of the mocks of {@link org.easymock.annotation.Mock @Mock} fields to measure their
+ * invocations. Every invocation in replay state is reported to {@link InitializationListeners} with the test class
+ * and the field of the mock, and the time EasyMock spent in matching it against the recorded expectations.
+ * <p>
+ * The instrumentation is enabled by setting the {@value #ENABLED_PROPERTY} system property to {@code true}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class InvocationMetrics {
+
+    /**
+     * System property which enables the invocation metrics when it is {@code true}.
+     */
+    public static final String ENABLED_PROPERTY = "easymock.annotations.invocationMetrics";
+
+    private static InvocationMetrics singleton;
+
+    private final InitializationListeners listeners;
+
+    /**
+     * Returns the instrumentation if the invocation metrics are enabled.
+     * <p>
+     * @return the instrumentation, {@code null} if the invocation metrics are not enabled
+     */
+    public static synchronized InvocationMetrics getSingletonIfEnabled() {
+        if (singleton == null && Boolean.getBoolean(ENABLED_PROPERTY)) {
+            singleton = new InvocationMetrics(InitializationListeners.getSingleton());
+        }
+        return singleton;
+    }
+
+    /**
+     * Instruments the control of the given mock. The invocations of the mock are reported with the given test class
+     * and field. Mocks of controls which are not in record state are not instrumented.
+     * <p>
+     * @param mock the mock
+     * @param testClass type of the test class
+     * @param field the annotated field of the mock
+     */
+    public void instrument(Object mock, Class<?> testClass, Field field) {
+        MocksControl control = MocksControlInstrumentation.getControl(mock);
+        if (control == null || !MocksControlInstrumentation.isSupported()) {
+            return;
+        }
+        InvocationMetricsBehavior behavior = MocksControlInstrumentation.getDecorator(control,
+                InvocationMetricsBehavior.class);
+        if (behavior == null && MocksControlInstrumentation.isRecordState(control)) {
+            behavior = new InvocationMetricsBehavior(MocksControlInstrumentation.getBehavior(control), listeners);
+            MocksControlInstrumentation.install(control, behavior);
+        }
+        if (behavior != null) {
+            behavior.add(mock, testClass, field);
+        }
+    }
+
+    InvocationMetrics(InitializationListeners listeners) {
+        this.listeners = listeners;
+    }
+
+    /**
+     * Measures the matching of the invocations of the mocks of a control.
+     */
+    private static final class InvocationMetricsBehavior extends ForwardingMocksBehavior {
+
+        private final InitializationListeners listeners;
+        private volatile InstrumentedMock[] mocks = new InstrumentedMock[0];
+
+        private InvocationMetricsBehavior(IMocksBehavior delegate, InitializationListeners listeners) {
+            super(delegate);
+            this.listeners = listeners;
+        }
+
+        private synchronized void add(Object mock, Class<?> testClass, Field field) {
+            InstrumentedMock[] newMocks = new InstrumentedMock[mocks.length + 1];
+            System.arraycopy(mocks, 0, newMocks, 0, mocks.length);
+            newMocks[mocks.length] = new InstrumentedMock(mock, testClass, field);
+            mocks = newMocks;
+        }
+
+        @Override
+        public Result addActual(Invocation actual) {
+            long start = System.nanoTime();
+            try {
+                return super.addActual(actual);
+            } finally {
+                InstrumentedMock mock = find(actual.getMock());
+                if (mock != null) {
+                    listeners.mockInvoked(mock.testClass, mock.field, actual.getMethod(), System.nanoTime() - start);
+                }
+            }
+        }
+
+        private InstrumentedMock find(Object mock) {
+            for (InstrumentedMock instrumentedMock : mocks) {
+                if (instrumentedMock.mock == mock) {
+                    return instrumentedMock;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final class InstrumentedMock {
+
+        private final Object mock;
+        private final Class<?> testClass;
+        private final Field field;
+
+        private InstrumentedMock(Object mock, Class<?> testClass, Field field) {
+            this.mock = mock;
+            this.testClass = testClass;
+            this.field = field;
+        }
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+import static org.easymock.annotation.internal.ReportFiles.csvField;
+import static org.easymock.annotation.internal.ReportFiles.jsonString;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.easymock.MockType;
+
+/**
+ * Aggregates the invocations measured by {@link InvocationMetrics} per mock and per method, and writes them into
+ * {@value #JSON_REPORT} and {@value #CSV_REPORT} of the {@link ReportFiles report directory} when the JVM exits. Mocks
+ * are identified by the test class and the {@link org.easymock.annotation.Mock @Mock} field they were created for.
+ * Mocks and methods are sorted by the total time EasyMock spent in matching their invocations, the slowest single
+ * matching is reported as well.
+ * <p>
+ * The report is enabled together with the invocation metrics by the
+ * {@value org.easymock.annotation.internal.InvocationMetrics#ENABLED_PROPERTY} system property.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class InvocationMetricsReport implements InitializationListener {
+
+    /**
+     * Name of the JSON report.
+     */
+    public static final String JSON_REPORT = "invocation-metrics.json";
+    /**
+     * Name of the CSV report.
+     */
+    public static final String CSV_REPORT = "invocation-metrics.csv";
+
+    private static final Comparator<Metrics> BY_MATCHING_TIME = new Comparator<Metrics>() {
+        @Override
+        public int compare(Metrics first, Metrics second) {
+            long difference = second.matchingNanos.get() - first.matchingNanos.get();
+            return difference == 0L ? first.name.compareTo(second.name) : (difference > 0L ? 1 : -1);
+        }
+    };
+
+    private static InvocationMetricsReport registered;
+
+    private final ConcurrentMap<MockKey, MockMetrics> mocks = new ConcurrentHashMap<MockKey, MockMetrics>();
+
+    /**
+     * Registers the report if the invocation metrics are enabled. The report is written when the JVM exits.
+     */
+    public static synchronized void registerIfEnabled() {
+        if (registered == null && Boolean.getBoolean(InvocationMetrics.ENABLED_PROPERTY)) {
+            registered = new InvocationMetricsReport();
+            InitializationListeners.getSingleton().add(registered);
+            ReportFiles.writeOnShutdown("easymock-annotations-invocation-metrics", new Runnable() {
+                @Override
+                public void run() {
+                    registered.write();
+                }
+            });
+        }
+    }
+
+    @Override
+    public void initializationFinished(Class<?> testClass, long nanos) {
+    }
+
+    @Override
+    public void controlCreated(Class<?> testClass, MockType type) {
+    }
+
+    @Override
+    public void mockCreated(Class<?> testClass, Field field, MockType type, Class<?> factory) {
+    }
+
+    @Override
+    public void testedClassInstantiated(Class<?> testClass, Field field) {
+    }
+
+    @Override
+    public void cacheAccessed(Class<?> testClass, CacheType cache, boolean hit) {
+    }
+
+    @Override
+    public void mockInvoked(Class<?> testClass, Field field, Method method, long nanos) {
+        MockMetrics mockMetrics = getMockMetrics(new MockKey(testClass, field));
+        mockMetrics.record(nanos);
+        mockMetrics.getMethodMetrics(method).record(nanos);
+    }
+
+    /**
+     * Writes the JSON and CSV reports of the invocations measured so far.
+     */
+    public void write() {
+        List<MockMetrics> sorted = sortByMatchingTime(mocks.values());
+        ReportFiles.write(JSON_REPORT, toJson(sorted));
+        ReportFiles.write(CSV_REPORT, toCsv(sorted));
+    }
+
+    List<MockMetrics> getMocks() {
+        return sortByMatchingTime(mocks.values());
+    }
+
+    String toJson(List<MockMetrics> sorted) {
+        StringBuilder json = new StringBuilder("{\n  \"mocks\": [");
+        for (int i = 0; i < sorted.size(); i++) {
+            MockMetrics mockMetrics = sorted.get(i);
+            json.append(i == 0 ? "\n" : ",\n").append("    {\"testClass\": ").append(jsonString(mockMetrics.testClass))
+                    .append(", \"field\": ").append(jsonString(mockMetrics.field));
+            appendJson(json, mockMetrics).append(", \"methods\": [");
+            List<Metrics> methods = sortByMatchingTime(mockMetrics.methods.values());
+            for (int j = 0; j < methods.size(); j++) {
+                Metrics methodMetrics = methods.get(j);
+                json.append(j == 0 ? "\n" : ",\n").append("      {\"method\": ").append(jsonString(methodMetrics.name));
+                appendJson(json, methodMetrics).append('}');
+            }
+            json.append("\n    ]}");
+        }
+        return json.append("\n  ]\n}\n").toString();
+    }
+
+    String toCsv(List<MockMetrics> sorted) {
+        StringBuilder csv
+                = new StringBuilder("testClass,field,method,calls,matchingNanos,meanMatchingNanos,maxMatchingNanos\n");
+        for (MockMetrics mockMetrics : sorted) {
+            for (Metrics methodMetrics : sortByMatchingTime(mockMetrics.methods.values())) {
+                csv.append(csvField(mockMetrics.testClass)).append(',')
+                        .append(csvField(mockMetrics.field)).append(',')
+                        .append(csvField(methodMetrics.name)).append(',')
+                        .append(methodMetrics.calls.get()).append(',')
+                        .append(methodMetrics.matchingNanos.get()).append(',')
+                        .append(methodMetrics.getMeanNanos()).append(',')
+                        .append(methodMetrics.maxNanos.get()).append('\n');
+            }
+        }
+        return csv.toString();
+    }
+
+    private static StringBuilder appendJson(StringBuilder json, Metrics metrics) {
+        return json.append(", \"calls\": ").append(metrics.calls.get())
+                .append(", \"matchingNanos\": ").append(metrics.matchingNanos.get())
+                .append(", \"meanMatchingNanos\": ").append(metrics.getMeanNanos())
+                .append(", \"maxMatchingNanos\": ").append(metrics.maxNanos.get());
+    }
+
+    private static <T extends Metrics> List<T> sortByMatchingTime(Collection<T> metrics) {
+        List<T> sorted = new ArrayList<T>(metrics);
+        Collections.sort(sorted, BY_MATCHING_TIME);
+        return sorted;
+    }
+
+    private MockMetrics getMockMetrics(MockKey mock) {
+        MockMetrics mockMetrics = mocks.get(mock);
+        if (mockMetrics == null) {
+            mocks.putIfAbsent(mock, new MockMetrics(mock.testClass.getName(), mock.field.getName()));
+            mockMetrics = mocks.get(mock);
+        }
+        return mockMetrics;
+    }
+
+    private static String describe(Method method) {
+        StringBuilder description = new StringBuilder(method.getName()).append('(');
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            description.append(i == 0 ? "" : ", ").append(parameterTypes[i].getSimpleName());
+        }
+        return description.append(')').toString();
+    }
+
+    static class Metrics {
+
+        private final String name;
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong matchingNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private Metrics(String name) {
+            this.name = name;
+        }
+
+        void record(long nanos) {
+            calls.incrementAndGet();
+            matchingNanos.addAndGet(nanos);
+            long max = maxNanos.get();
+            while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+                max = maxNanos.get();
+            }
+        }
+
+        String getName() {
+            return name;
+        }
+
+        long getCalls() {
+            return calls.get();
+        }
+
+        private long getMeanNanos() {
+            long count = calls.get();
+            return count == 0L ? 0L : matchingNanos.get() / count;
+        }
+    }
+
+    static final class MockMetrics extends Metrics {
+
+        private final String testClass;
+        private final String field;
+        private final ConcurrentMap<Method, Metrics> methods = new ConcurrentHashMap<Method, Metrics>();
+
+        private MockMetrics(String testClass, String field) {
+            super(testClass + '.' + field);
+            this.testClass = testClass;
+            this.field = field;
+        }
+
+        String getTestClass() {
+            return testClass;
+        }
+
+        String getField() {
+            return field;
+        }
+
+        private Metrics getMethodMetrics(Method method) {
+            Metrics methodMetrics = methods.get(method);
+            if (methodMetrics == null) {
+                methods.putIfAbsent(method, new Metrics(describe(method)));
+                methodMetrics = methods.get(method);
+            }
+            return methodMetrics;
+        }
+
+        List<Metrics> getMethods() {
+            return sortByMatchingTime(methods.values());
+        }
+    }
+
+    private static final class MockKey {
+
+        private final Class<?> testClass;
+        private final Field field;
+
+        private MockKey(Class<?> testClass, Field field) {
+            this.testClass = testClass;
+            this.field = field;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof MockKey)) {
+                return false;
+            }
+            MockKey other = (MockKey) obj;
+            return testClass == other.testClass && field.equals(other.field);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * testClass.hashCode() + field.hashCode();
+        }
+    }
+}
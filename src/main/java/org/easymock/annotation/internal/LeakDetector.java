@@ -0,0 +1,355 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+import static org.easymock.annotation.internal.ReportFiles.csvField;
+import static org.easymock.annotation.internal.ReportFiles.jsonString;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Detects mocks which stay reachable after their test has finished. The test classes and their mocks are referenced
+ * weakly. A test is finished when its test class was {@link org.easymock.annotation.EasyMockAnnotations#release(Object)
+ * released} or garbage collected, the mocks of finished tests which are still alive after a garbage collection are
+ * leaked. For every leaked mock the static fields of the test class and the tested classes are searched for the
+ * reference, so static caches and singletons which capture mocks can be found.
+ * <p>
+ * Class scoped mocks are kept by the framework on purpose, they are not tracked. The detection is enabled by setting
+ * the {@value #ENABLED_PROPERTY} system property to {@code true}, the leaked mocks are written into
+ * {@value #JSON_REPORT} and {@value #CSV_REPORT} of the {@link ReportFiles report directory} when the JVM exits.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class LeakDetector {
+
+    /**
+     * System property which enables the detection when it is {@code true}.
+     */
+    public static final String ENABLED_PROPERTY = "easymock.annotations.leakDetection";
+    /**
+     * Name of the JSON report.
+     */
+    public static final String JSON_REPORT = "leaked-mocks.json";
+    /**
+     * Name of the CSV report.
+     */
+    public static final String CSV_REPORT = "leaked-mocks.csv";
+
+    private static LeakDetector singleton;
+
+    private final boolean enabled;
+    private final ConcurrentLinkedQueue<TrackedTestClass> testClasses = new ConcurrentLinkedQueue<TrackedTestClass>();
+
+    public static synchronized LeakDetector getSingleton() {
+        if (singleton == null) {
+            singleton = new LeakDetector(Boolean.getBoolean(ENABLED_PROPERTY));
+            if (singleton.enabled) {
+                ReportFiles.writeOnShutdown("easymock-annotations-leak-detector", new Runnable() {
+                    @Override
+                    public void run() {
+                        singleton.write();
+                    }
+                });
+            }
+        }
+        return singleton;
+    }
+
+    /**
+     * Starts tracking the given initialized test class and its mocks. Nothing happens if the detection is not enabled.
+     * <p>
+     * @param testClass the initialized test class
+     * @param record the record of the initialization, the test is finished when it is released
+     * @param mocks the mocks created for the mock definitions of the plan in the same order
+     */
+    public void track(Object testClass, InitializationRecord record, Object[] mocks) {
+        if (!enabled) {
+            return;
+        }
+        List<MockDefinition> definitions = record.getPlan().getMocks();
+        List<TrackedMock> trackedMocks = new ArrayList<TrackedMock>(definitions.size());
+        for (int i = 0; i < definitions.size(); i++) {
+            if (definitions.get(i).getKind() != MockDefinition.Kind.CLASS_SCOPED) {
+                trackedMocks.add(new TrackedMock(definitions.get(i).getField(), mocks[i]));
+            }
+        }
+        testClasses.add(new TrackedTestClass(testClass, record, trackedMocks));
+    }
+
+    /**
+     * Requests a garbage collection and returns the mocks of the finished tests which are still reachable. Finished
+     * tests whose mocks were all collected are not tracked any more.
+     * <p>
+     * @return the leaked mocks grouped by test class and field
+     */
+    public List<Leak> check() {
+        System.gc();
+        Map<String, Leak> leaks = new TreeMap<String, Leak>();
+        for (Iterator<TrackedTestClass> iterator = testClasses.iterator(); iterator.hasNext();) {
+            TrackedTestClass tracked = iterator.next();
+            if (tracked.isFinished()) {
+                boolean alive = false;
+                for (TrackedMock trackedMock : tracked.mocks) {
+                    Object mock = trackedMock.mock.get();
+                    if (mock != null) {
+                        alive = true;
+                        addLeak(leaks, tracked.record.getPlan(), trackedMock.field, mock);
+                    }
+                }
+                if (!alive) {
+                    iterator.remove();
+                }
+            }
+        }
+        return new ArrayList<Leak>(leaks.values());
+    }
+
+    /**
+     * Writes the JSON and CSV reports of the mocks which are leaked at the moment.
+     */
+    public void write() {
+        List<Leak> leaks = check();
+        ReportFiles.write(JSON_REPORT, toJson(leaks));
+        ReportFiles.write(CSV_REPORT, toCsv(leaks));
+    }
+
+    String toJson(List<Leak> leaks) {
+        StringBuilder json = new StringBuilder("{\n  \"leakedMocks\": [");
+        for (int i = 0; i < leaks.size(); i++) {
+            Leak leak = leaks.get(i);
+            json.append(i == 0 ? "\n" : ",\n").append("    {\"testClass\": ").append(jsonString(leak.testClass))
+                    .append(", \"field\": ").append(jsonString(leak.field))
+                    .append(", \"type\": ").append(jsonString(leak.type))
+                    .append(", \"instances\": ").append(leak.instances)
+                    .append(", \"retainedBy\": [");
+            int j = 0;
+            for (String retainedBy : leak.retainedBy) {
+                json.append(j++ == 0 ? "" : ", ").append(jsonString(retainedBy));
+            }
+            json.append("]}");
+        }
+        return json.append("\n  ]\n}\n").toString();
+    }
+
+    String toCsv(List<Leak> leaks) {
+        StringBuilder csv = new StringBuilder("testClass,field,type,instances,retainedBy\n");
+        for (Leak leak : leaks) {
+            StringBuilder retainedBy = new StringBuilder();
+            for (String field : leak.retainedBy) {
+                retainedBy.append(retainedBy.length() == 0 ? "" : " ").append(field);
+            }
+            csv.append(csvField(leak.testClass)).append(',')
+                    .append(csvField(leak.field)).append(',')
+                    .append(csvField(leak.type)).append(',')
+                    .append(leak.instances).append(',')
+                    .append(csvField(retainedBy.toString())).append('\n');
+        }
+        return csv.toString();
+    }
+
+    private void addLeak(Map<String, Leak> leaks, InitializationPlan plan, Field field, Object mock) {
+        String key = plan.getTestClass().getName() + '#' + field.getName();
+        Leak leak = leaks.get(key);
+        if (leak == null) {
+            leak = new Leak(plan.getTestClass(), field);
+            leaks.put(key, leak);
+        }
+        leak.instances++;
+        for (Class<?> clazz : getSuspectedClasses(plan)) {
+            findStaticReferences(clazz, mock, leak.retainedBy);
+        }
+    }
+
+    private static Set<Class<?>> getSuspectedClasses(InitializationPlan plan) {
+        Set<Class<?>> classes = new LinkedHashSet<Class<?>>();
+        addHierarchy(classes, plan.getTestClass());
+        for (Field field : plan.getTestedClasses()) {
+            addHierarchy(classes, field.getType());
+        }
+        return classes;
+    }
+
+    private static void addHierarchy(Set<Class<?>> classes, Class<?> clazz) {
+        for (Class<?> current = clazz; current != null && current != Object.class; current = current.getSuperclass()) {
+            classes.add(current);
+        }
+    }
+
+    private static void findStaticReferences(Class<?> clazz, Object mock, Set<String> retainedBy) {
+        for (Field field : getDeclaredFields(clazz)) {
+            if (Modifier.isStatic(field.getModifiers()) && !field.getType().isPrimitive()) {
+                String name = clazz.getName() + '.' + field.getName();
+                Object value = getValue(field, null);
+                if (references(value, mock)) {
+                    retainedBy.add(name);
+                } else if (isInspectable(value) && !(value instanceof Collection) && !(value instanceof Map)) {
+                    findInstanceReferences(value, mock, name, retainedBy);
+                }
+            }
+        }
+    }
+
+    private static void findInstanceReferences(Object object, Object mock, String path, Set<String> retainedBy) {
+        Class<?> clazz = object.getClass();
+        for (; clazz != null && !clazz.getName().startsWith("java."); clazz = clazz.getSuperclass()) {
+            for (Field field : getDeclaredFields(clazz)) {
+                if (!Modifier.isStatic(field.getModifiers()) && !field.getType().isPrimitive()
+                        && references(getValue(field, object), mock)) {
+                    retainedBy.add(path + '.' + field.getName());
+                }
+            }
+        }
+    }
+
+    private static boolean references(Object value, Object mock) {
+        if (value == mock) {
+            return true;
+        } else if (!isInspectable(value)) {
+            return false;
+        } else if (value instanceof Collection) {
+            return contains(((Collection<?>) value).toArray(), mock);
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            return contains(map.values().toArray(), mock) || contains(map.keySet().toArray(), mock);
+        } else if (value.getClass().isArray() && !value.getClass().getComponentType().isPrimitive()) {
+            for (int i = 0; i < Array.getLength(value); i++) {
+                if (Array.get(value, i) == mock) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean contains(Object[] values, Object mock) {
+        for (Object value : values) {
+            if (value == mock) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Mocks and stubs are not inspected, calling their methods would change their state or fail.
+     */
+    private static boolean isInspectable(Object value) {
+        return value != null && !Proxy.isProxyClass(value.getClass())
+                && MocksControlInstrumentation.getControl(value) == null;
+    }
+
+    private static Field[] getDeclaredFields(Class<?> clazz) {
+        try {
+            return clazz.getDeclaredFields();
+        } catch (LinkageError ex) {
+            return new Field[0];
+        }
+    }
+
+    private static Object getValue(Field field, Object object) {
+        try {
+            field.setAccessible(true);
+            return field.get(object);
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+
+    LeakDetector(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Mocks of a test class which stay reachable after the test has finished.
+     */
+    public static final class Leak {
+
+        private final String testClass;
+        private final String field;
+        private final String type;
+        private final Set<String> retainedBy = new LinkedHashSet<String>();
+        private int instances;
+
+        private Leak(Class<?> testClass, Field field) {
+            this.testClass = testClass.getName();
+            this.field = field.getName();
+            this.type = field.getType().getName();
+        }
+
+        public String getTestClass() {
+            return testClass;
+        }
+
+        public String getField() {
+            return field;
+        }
+
+        public int getInstances() {
+            return instances;
+        }
+
+        /**
+         * Returns the static fields which reference the leaked mocks, directly, by a collection or by a field of the
+         * referenced object.
+         * <p>
+         * @return the names of the retaining fields, empty if the reference was not found
+         */
+        public Set<String> getRetainedBy() {
+            return retainedBy;
+        }
+    }
+
+    private static final class TrackedTestClass {
+
+        private final WeakReference<Object> testClass;
+        private final InitializationRecord record;
+        private final List<TrackedMock> mocks;
+
+        private TrackedTestClass(Object testClass, InitializationRecord record, List<TrackedMock> mocks) {
+            this.testClass = new WeakReference<Object>(testClass);
+            this.record = record;
+            this.mocks = mocks;
+        }
+
+        private boolean isFinished() {
+            return record.isReleased() || testClass.get() == null;
+        }
+    }
+
+    private static final class TrackedMock {
+
+        private final Field field;
+        private final WeakReference<Object> mock;
+
+        private TrackedMock(Field field, Object mock) {
+            this.field = field;
+            this.mock = new WeakReference<Object>(mock);
+        }
+    }
+}
@@ -0,0 +1,318 @@
+/* 
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+import static org.mockannotations.utils.MockAnnotationValidationUtils.isEmpty;
+import static org.mockannotations.utils.MockAnnotationValidationUtils.isNull;
+import static org.mockannotations.utils.MockAnnotationValidationUtils.notNull;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.easymock.IMockBuilder;
+
+/**
+ * Configuration of a mock created by an {@link IMockBuilder}. The mocked methods and the constructor arguments
+ * provider are resolved once, when the {@link InitializationPlan} of the test class is created. The constructor is
+ * resolved by the types of the first provided arguments and it is cached until the provided argument types change.
+ * A {@link #bind(Object) bound} definition keeps the constructor resolved for its own arguments.
+ * <p>
+ * @author Balazs Berkes
+ */
+public final class MockBuilderDefinition {
+
+    private static final Map<String, Class<?>> PRIMITIVES = new HashMap<String, Class<?>>();
+    private static final Map<Class<?>, Class<?>> WRAPPERS = new HashMap<Class<?>, Class<?>>();
+
+    static {
+        Class<?>[] primitives = new Class<?>[]{boolean.class, byte.class, char.class, short.class, int.class,
+            long.class, float.class, double.class};
+        Class<?>[] wrappers = new Class<?>[]{Boolean.class, Byte.class, Character.class, Short.class, Integer.class,
+            Long.class, Float.class, Double.class};
+        for (int i = 0; i < primitives.length; i++) {
+            PRIMITIVES.put(primitives[i].getName(), primitives[i]);
+            WRAPPERS.put(primitives[i], wrappers[i]);
+        }
+    }
+
+    private final Class<?> type;
+    private final Method[] mockedMethods;
+    private final Method argsProvider;
+    private final AtomicReference<Constructor<?>> constructorCache;
+    private final Constructor<?> constructor;
+    private final Object[] constructorArgs;
+
+    /**
+     * Resolves the mocked methods of a partial mock. A method is given by its name if it is not overloaded, otherwise
+     * by its name and parameter types, e.g. {@code "save(java.lang.String, int)"}. Classes of the {@code java.lang}
+     * package can be given by their simple names.
+     * <p>
+     * @param type type of the mock
+     * @param mockedMethods signatures of the mocked methods
+     * @return the resolved configuration
+     * @throws RuntimeException if the type is an interface or a method cannot be resolved or mocked
+     */
+    public static MockBuilderDefinition create(Class<?> type, String[] mockedMethods) {
+        return create(type, mockedMethods, null, "");
+    }
+
+    /**
+     * Resolves the mocked methods and the constructor arguments provider of a mock. The provider is a method of the
+     * test class without parameters which returns the arguments of the constructor of the mock as an
+     * {@code Object[]}.
+     * <p>
+     * @param type type of the mock
+     * @param mockedMethods signatures of the mocked methods, all methods are mocked if empty
+     * @param testClass type of the test class declaring the provider
+     * @param constructorArgs name of the constructor arguments provider, the constructor is not called if empty
+     * @return the resolved configuration
+     * @throws RuntimeException if the type is an interface, or a method or the provider cannot be resolved
+     * @see #bind(Object)
+     */
+    public static MockBuilderDefinition create(Class<?> type, String[] mockedMethods, Class<?> testClass,
+            String constructorArgs) {
+        if (type.isInterface()) {
+            throw new RuntimeException("Partial mock must be a class: " + type.getName() + "!");
+        }
+        Method[] methods = new Method[mockedMethods.length];
+        for (int i = 0; i < methods.length; i++) {
+            methods[i] = resolveMethod(type, mockedMethods[i].trim());
+        }
+        Method argsProvider = isEmpty(constructorArgs) ? null : resolveArgsProvider(testClass, constructorArgs);
+        return new MockBuilderDefinition(type, methods, argsProvider, new AtomicReference<Constructor<?>>(), null,
+                null);
+    }
+
+    /**
+     * Returns the configuration with the constructor arguments provided by the given test class. Definitions without
+     * constructor arguments provider are returned as they are.
+     * <p>
+     * @param testClass the test class which provides the constructor arguments
+     * @return the configuration with the provided arguments and their constructor
+     * @throws RuntimeException if the provider fails or there is no single matching constructor
+     */
+    public MockBuilderDefinition bind(Object testClass) {
+        if (isNull(argsProvider)) {
+            return this;
+        }
+        Object[] args = provideArgs(testClass);
+        Constructor<?> resolved = constructorCache.get();
+        if (isNull(resolved) || !isApplicable(resolved, args)) {
+            resolved = resolveConstructor(type, args);
+            constructorCache.set(resolved);
+        }
+        return new MockBuilderDefinition(type, mockedMethods, argsProvider, constructorCache, resolved, args);
+    }
+
+    /**
+     * Applies the configuration to the given builder.
+     * <p>
+     * @param <T> type of the mock
+     * @param builder builder of the mock
+     * @return the configured builder
+     * @throws IllegalStateException if the constructor arguments are not {@link #bind(Object) bound}
+     */
+    public <T> IMockBuilder<T> configure(IMockBuilder<T> builder) {
+        if (mockedMethods.length > 0) {
+            builder.addMockedMethods(mockedMethods);
+        }
+        if (notNull(argsProvider)) {
+            if (isNull(constructorArgs)) {
+                throw new IllegalStateException("Constructor arguments of " + type.getName() + " are not provided!");
+            }
+            builder.withConstructor(constructor).withArgs(constructorArgs);
+        }
+        return builder;
+    }
+
+    public Method[] getMockedMethods() {
+        return mockedMethods.clone();
+    }
+
+    /**
+     * Returns the method of the test class which provides the constructor arguments.
+     * <p>
+     * @return the constructor arguments provider, {@code null} if the constructor is not called
+     */
+    public Method getArgsProvider() {
+        return argsProvider;
+    }
+
+    private Object[] provideArgs(Object testClass) {
+        try {
+            Object[] args = (Object[]) argsProvider.invoke(testClass);
+            return isNull(args) ? new Object[0] : args;
+        } catch (IllegalAccessException ex) {
+            throw new RuntimeException("Cannot call constructor arguments provider " + argsProvider + "!", ex);
+        } catch (InvocationTargetException ex) {
+            throw new RuntimeException("Constructor arguments provider " + argsProvider + " failed!", ex.getCause());
+        }
+    }
+
+    private static Method resolveArgsProvider(Class<?> testClass, String name) {
+        for (Class<?> current = testClass; current != null; current = current.getSuperclass()) {
+            try {
+                Method method = current.getDeclaredMethod(name);
+                if (method.getReturnType() != Object[].class) {
+                    throw new RuntimeException("Constructor arguments provider " + method + " must return Object[]!");
+                }
+                method.setAccessible(true);
+                return method;
+            } catch (NoSuchMethodException ex) {
+                continue;
+            }
+        }
+        throw new RuntimeException("No constructor arguments provider " + name + "() in " + testClass.getName() + "!");
+    }
+
+    private static Constructor<?> resolveConstructor(Class<?> type, Object[] args) {
+        Constructor<?> resolved = null;
+        for (Constructor<?> candidate : type.getDeclaredConstructors()) {
+            if (!Modifier.isPrivate(candidate.getModifiers()) && isApplicable(candidate, args)) {
+                if (notNull(resolved)) {
+                    throw new RuntimeException("Ambiguous constructors of " + type.getName() + " for arguments "
+                            + Arrays.toString(args) + "!");
+                }
+                resolved = candidate;
+            }
+        }
+        if (isNull(resolved)) {
+            throw new RuntimeException("No constructor of " + type.getName() + " for arguments "
+                    + Arrays.toString(args) + "!");
+        }
+        return resolved;
+    }
+
+    private static boolean isApplicable(Constructor<?> constructor, Object[] args) {
+        Class<?>[] parameterTypes = constructor.getParameterTypes();
+        if (parameterTypes.length != args.length) {
+            return false;
+        }
+        for (int i = 0; i < args.length; i++) {
+            Class<?> parameterType = parameterTypes[i].isPrimitive() ? WRAPPERS.get(parameterTypes[i])
+                    : parameterTypes[i];
+            if (isNull(args[i]) ? parameterTypes[i].isPrimitive() : !parameterType.isInstance(args[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Method resolveMethod(Class<?> type, String signature) {
+        int parameterStart = signature.indexOf('(');
+        Method method;
+        if (parameterStart < 0) {
+            method = findMethod(type, signature);
+        } else if (!signature.endsWith(")")) {
+            throw new RuntimeException("Invalid method signature: " + signature + "!");
+        } else {
+            String name = signature.substring(0, parameterStart).trim();
+            String parameters = signature.substring(parameterStart + 1, signature.length() - 1).trim();
+            method = findMethod(type, name, resolveParameterTypes(type, parameters));
+        }
+        if (isNull(method)) {
+            throw new RuntimeException("No method " + signature + " in " + type.getName() + "!");
+        }
+        int modifiers = method.getModifiers();
+        if (Modifier.isFinal(modifiers) || Modifier.isStatic(modifiers) || Modifier.isPrivate(modifiers)) {
+            throw new RuntimeException("Method " + method + " cannot be mocked!");
+        }
+        return method;
+    }
+
+    private static Method findMethod(Class<?> type, String name) {
+        List<Method> candidates = new ArrayList<Method>();
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            for (Method method : current.getDeclaredMethods()) {
+                if (method.getName().equals(name) && !method.isBridge() && !isOverridden(candidates, method)) {
+                    candidates.add(method);
+                }
+            }
+        }
+        if (candidates.size() > 1) {
+            throw new RuntimeException("Method " + name + " of " + type.getName()
+                    + " is overloaded, the parameter types must be given!");
+        }
+        return candidates.isEmpty() ? null : candidates.get(0);
+    }
+
+    private static boolean isOverridden(List<Method> candidates, Method method) {
+        for (Method candidate : candidates) {
+            if (Arrays.equals(candidate.getParameterTypes(), method.getParameterTypes())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Method findMethod(Class<?> type, String name, Class<?>[] parameterTypes) {
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            try {
+                return current.getDeclaredMethod(name, parameterTypes);
+            } catch (NoSuchMethodException ex) {
+                continue;
+            }
+        }
+        return null;
+    }
+
+    private static Class<?>[] resolveParameterTypes(Class<?> type, String parameters) {
+        if (parameters.length() == 0) {
+            return new Class<?>[0];
+        }
+        String[] names = parameters.split(",");
+        Class<?>[] parameterTypes = new Class<?>[names.length];
+        for (int i = 0; i < names.length; i++) {
+            parameterTypes[i] = resolveType(type, names[i].trim());
+        }
+        return parameterTypes;
+    }
+
+    private static Class<?> resolveType(Class<?> type, String name) {
+        if (name.endsWith("[]")) {
+            Class<?> component = resolveType(type, name.substring(0, name.length() - 2).trim());
+            return Array.newInstance(component, 0).getClass();
+        }
+        Class<?> primitive = PRIMITIVES.get(name);
+        if (primitive != null) {
+            return primitive;
+        }
+        try {
+            return Class.forName(name.indexOf('.') < 0 ? "java.lang." + name : name, false, type.getClassLoader());
+        } catch (ClassNotFoundException ex) {
+            throw new RuntimeException("Cannot resolve parameter type " + name + "!", ex);
+        }
+    }
+
+    private MockBuilderDefinition(Class<?> type, Method[] mockedMethods, Method argsProvider,
+            AtomicReference<Constructor<?>> constructorCache, Constructor<?> constructor, Object[] constructorArgs) {
+        this.type = type;
+        this.mockedMethods = mockedMethods;
+        this.argsProvider = argsProvider;
+        this.constructorCache = constructorCache;
+        this.constructor = constructor;
+        this.constructorArgs = constructorArgs;
+    }
+}
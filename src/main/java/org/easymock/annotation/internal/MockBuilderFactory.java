@@ -0,0 +1,38 @@
+/* 
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+import org.easymock.MockType;
+
+/**
+ * Factory which creates mocks by an {@link org.easymock.IMockBuilder IMockBuilder}, e.g. partial mocks.
+ * <p>
+ * @author Balazs Berkes
+ */
+public interface MockBuilderFactory {
+
+    /**
+     * Creates a mock of the given class configured by the given definition.
+     * <p>
+     * @param <T> type of class
+     * @param clazz type of the mock
+     * @param type {@link MockType} of the mock
+     * @param name name of the mock, can be empty
+     * @param definition configuration of the builder
+     * @return returns a mocked object.
+     */
+    <T> T createMock(Class<T> clazz, MockType type, String name, MockBuilderDefinition definition);
+}
@@ -0,0 +1,206 @@
+/* 
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.easymock.IMocksControl;
+import org.easymock.MockType;
+
+/**
+ * Thread local pool of the {@link IMocksControl}s injected into the {@link org.easymock.annotation.MockControl
+ * @MockControl} fields. Controls are partitioned by {@link MockType}, a control checked out of the pool is reset before
+ * it is injected again. Controls are returned to the pool of the current thread when their test class is released.
+ * <p>
+ * The pool is enabled by setting the {@value #ENABLED_PROPERTY} system property to {@code true}. At most
+ * {@value #SIZE_PROPERTY} (default {@value #DEFAULT_SIZE}) controls are kept per thread and {@code MockType}, returned
+ * controls are reset, so they do not keep the expectations of their test. The pool of a thread is evicted when it was
+ * not used for {@value #IDLE_MILLIS_PROPERTY} (default {@value #DEFAULT_IDLE_MILLIS}) milliseconds. The idle pools
+ * are evicted by any thread which uses the pool, so the pools of the threads which stopped running tests are dropped
+ * too.
+ * <p>
+ * The mocks created by a released control still reference the control. A mock retained by the released test (e.g.
+ * in a static field or a registered listener) records into, or is replayed against, the expectations of the next
+ * test which checks out the same control. The pool must be enabled only for test suites which do not retain their
+ * mocks.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class MockControlPool {
+
+    /**
+     * System property which enables the pool when it is {@code true}.
+     */
+    public static final String ENABLED_PROPERTY = "easymock.annotations.controlPool";
+    /**
+     * System property of the maximum number of pooled controls per thread and {@link MockType}.
+     */
+    public static final String SIZE_PROPERTY = "easymock.annotations.controlPool.size";
+    /**
+     * System property of the milliseconds after the pool of an unused thread is evicted.
+     */
+    public static final String IDLE_MILLIS_PROPERTY = "easymock.annotations.controlPool.idleMillis";
+    public static final int DEFAULT_SIZE = 8;
+    public static final long DEFAULT_IDLE_MILLIS = 60000L;
+
+    private static MockControlPool singleton;
+
+    private final IMockControlFactory controlFactory;
+    private final boolean enabled;
+    private final int size;
+    private final long idleMillis;
+    private final ThreadLocal<PooledControls> pools = new ThreadLocal<PooledControls>();
+    private final Set<PooledControls> allPools
+            = Collections.newSetFromMap(new ConcurrentHashMap<PooledControls, Boolean>());
+    private final AtomicLong lastEviction = new AtomicLong();
+
+    public static synchronized MockControlPool getSingleton() {
+        if (singleton == null) {
+            singleton = new MockControlPool(IMockControlFactory.getSingleton(), Boolean.getBoolean(ENABLED_PROPERTY),
+                    Integer.getInteger(SIZE_PROPERTY, DEFAULT_SIZE), Long.getLong(IDLE_MILLIS_PROPERTY,
+                            DEFAULT_IDLE_MILLIS));
+        }
+        return singleton;
+    }
+
+    /**
+     * Returns a control of the given type. A pooled control of the current thread is reset and returned if there is
+     * one, otherwise a new control is created.
+     * <p>
+     * @param type type of the control
+     * @return control in record state without expectations
+     */
+    public IMocksControl checkout(MockType type) {
+        if (!enabled) {
+            return controlFactory.createControl(type);
+        }
+        IMocksControl control = getPool().poll(type);
+        if (control == null) {
+            return controlFactory.createControl(type);
+        }
+        control.reset();
+        return control;
+    }
+
+    /**
+     * Returns the control to the pool of the current thread. The control is reset, it is dropped if the pool of its
+     * type is full.
+     * <p>
+     * @param type type the control was checked out with
+     * @param control the control which is not used any more
+     */
+    public void release(MockType type, IMocksControl control) {
+        if (enabled && control != null) {
+            control.reset();
+            getPool().offer(type, control);
+        }
+    }
+
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    private PooledControls getPool() {
+        long now = currentTimeMillis();
+        evictIdlePools(now);
+        PooledControls pool = pools.get();
+        if (pool == null || !pool.touch(now)) {
+            pool = new PooledControls(size, now);
+            pools.set(pool);
+            allPools.add(pool);
+        }
+        return pool;
+    }
+
+    private void evictIdlePools(long now) {
+        long last = lastEviction.get();
+        if (now - last <= idleMillis || !lastEviction.compareAndSet(last, now)) {
+            return;
+        }
+        for (PooledControls pool : allPools) {
+            if (pool.evictIfIdle(now, idleMillis)) {
+                allPools.remove(pool);
+            }
+        }
+    }
+
+    MockControlPool(IMockControlFactory controlFactory, boolean enabled, int size, long idleMillis) {
+        this.controlFactory = controlFactory;
+        this.enabled = enabled;
+        this.size = size;
+        this.idleMillis = idleMillis;
+    }
+
+    /**
+     * Pooled controls of one thread, a bounded stack per {@link MockType}. The controls are used by the owner thread,
+     * the pool is synchronized because it can be evicted by any thread. An evicted pool stays empty.
+     */
+    private static final class PooledControls {
+
+        private final IMocksControl[][] controls;
+        private final int[] counts;
+        private long lastAccess;
+        private boolean evicted;
+
+        private PooledControls(int size, long now) {
+            controls = new IMocksControl[MockType.values().length][size];
+            counts = new int[controls.length];
+            lastAccess = now;
+        }
+
+        private synchronized boolean touch(long now) {
+            lastAccess = now;
+            return !evicted;
+        }
+
+        private synchronized boolean evictIfIdle(long now, long idleMillis) {
+            if (now - lastAccess > idleMillis) {
+                evict();
+                evicted = true;
+            }
+            return evicted;
+        }
+
+        private synchronized IMocksControl poll(MockType type) {
+            int index = type.ordinal();
+            if (counts[index] == 0) {
+                return null;
+            }
+            IMocksControl control = controls[index][--counts[index]];
+            controls[index][counts[index]] = null;
+            return control;
+        }
+
+        private synchronized void offer(MockType type, IMocksControl control) {
+            int index = type.ordinal();
+            if (!evicted && counts[index] < controls[index].length) {
+                controls[index][counts[index]++] = control;
+            }
+        }
+
+        private void evict() {
+            for (int i = 0; i < controls.length; i++) {
+                for (int j = 0; j < counts[i]; j++) {
+                    controls[i][j] = null;
+                }
+                counts[i] = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+import java.lang.reflect.Field;
+
+import org.easymock.MockType;
+
+/**
+ * Immutable description of a field of the test class which has to be filled up with a mock or a stub.
+ * <p>
+ * @author Balazs Berkes
+ */
+public final class MockDefinition {
+
+    /**
+     * Defines how the mock of the field is created.
+     */
+    public enum Kind {
+
+        /**
+         * New EasyMock mock for every initialization.
+         */
+        MOCK,
+        /**
+         * EasyMock mock shared by the initializations of the test class on the same thread.
+         */
+        CLASS_SCOPED,
+        /**
+         * Lightweight stub not controlled by EasyMock.
+         */
+        STUB
+    }
+
+    private final Field field;
+    private final String name;
+    private final MockType type;
+    private final String control;
+    private final Kind kind;
+    private final MockBuilderDefinition builder;
+
+    public MockDefinition(Field field, String name, MockType type, String control, Kind kind) {
+        this(field, name, type, control, kind, null);
+    }
+
+    public MockDefinition(Field field, String name, MockType type, String control, Kind kind,
+            MockBuilderDefinition builder) {
+        this.field = field;
+        this.name = name;
+        this.type = type;
+        this.control = control;
+        this.kind = kind;
+        this.builder = builder;
+    }
+
+    public Field getField() {
+        return field;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public MockType getType() {
+        return type;
+    }
+
+    public String getControl() {
+        return control;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns the configuration of the {@link org.easymock.IMockBuilder IMockBuilder} which creates the mock.
+     * <p>
+     * @return the builder configuration, {@code null} if the mock is not created by a builder
+     */
+    public MockBuilderDefinition getBuilder() {
+        return builder;
+    }
+}
@@ -0,0 +1,75 @@
+/* 
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+import static org.mockannotations.utils.MockAnnotationValidationUtils.notNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.ServiceLoader;
+
+import org.easymock.annotation.spi.MockFactory;
+import org.easymock.annotation.spi.MockFactoryProvider;
+
+/**
+ * The {@link MockFactoryProvider}s discovered by {@link ServiceLoader}. The providers are loaded once, when the
+ * singleton is created.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class MockFactoryProviders {
+
+    private static MockFactoryProviders singleton;
+
+    private final List<MockFactoryProvider> providers;
+
+    public static synchronized MockFactoryProviders getSingleton() {
+        if (singleton == null) {
+            singleton = new MockFactoryProviders(loadProviders());
+        }
+        return singleton;
+    }
+
+    /**
+     * Returns the factory of the given test class provided by the first provider which supports the test class.
+     * <p>
+     * @param testClass type of the test class
+     * @return the provided factory, {@code null} if no provider supports the test class
+     */
+    public MockFactory getMockFactory(Class<?> testClass) {
+        for (MockFactoryProvider provider : providers) {
+            MockFactory factory = provider.getMockFactory(testClass);
+            if (notNull(factory)) {
+                return factory;
+            }
+        }
+        return null;
+    }
+
+    private static List<MockFactoryProvider> loadProviders() {
+        List<MockFactoryProvider> providers = new ArrayList<MockFactoryProvider>();
+        for (MockFactoryProvider provider : ServiceLoader.load(MockFactoryProvider.class,
+                MockFactoryProvider.class.getClassLoader())) {
+            providers.add(provider);
+        }
+        return providers;
+    }
+
+    MockFactoryProviders(List<MockFactoryProvider> providers) {
+        this.providers = Collections.unmodifiableList(new ArrayList<MockFactoryProvider>(providers));
+    }
+}
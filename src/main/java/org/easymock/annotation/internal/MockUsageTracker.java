@@ -0,0 +1,318 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+import static org.easymock.annotation.internal.ReportFiles.csvField;
+import static org.easymock.annotation.internal.ReportFiles.jsonString;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.easymock.internal.IMocksBehavior;
+import org.easymock.internal.Invocation;
+import org.easymock.internal.MocksControl;
+import org.easymock.internal.RecordState;
+import org.easymock.internal.Result;
+
+/**
+ * Tracks whether the mocks created for the {@link org.easymock.annotation.Mock @Mock} fields are used. A mock is used
+ * if an expectation is recorded on it, it is invoked in replay state, or it is replayed or verified individually. When
+ * the JVM exits the {@code @Mock} fields whose mock was never used in any initialization of their test class are
+ * written into {@value #JSON_REPORT} and {@value #CSV_REPORT} of the {@link ReportFiles report directory}.
+ * <p>
+ * The tracking is enabled by setting the {@value #ENABLED_PROPERTY} system property to {@code true}. Usage after
+ * resetting a control is not tracked.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class MockUsageTracker {
+
+    /**
+     * System property which enables the tracking when it is {@code true}.
+     */
+    public static final String ENABLED_PROPERTY = "easymock.annotations.unusedMocks";
+    /**
+     * Name of the JSON report.
+     */
+    public static final String JSON_REPORT = "unused-mocks.json";
+    /**
+     * Name of the CSV report.
+     */
+    public static final String CSV_REPORT = "unused-mocks.csv";
+
+    private static MockUsageTracker singleton;
+
+    private final boolean enabled;
+    private final ConcurrentMap<FieldKey, FieldUsage> fieldUsages = new ConcurrentHashMap<FieldKey, FieldUsage>();
+
+    public static synchronized MockUsageTracker getSingleton() {
+        if (singleton == null) {
+            singleton = new MockUsageTracker(Boolean.getBoolean(ENABLED_PROPERTY));
+            if (singleton.enabled) {
+                ReportFiles.writeOnShutdown("easymock-annotations-unused-mocks", new Runnable() {
+                    @Override
+                    public void run() {
+                        singleton.write();
+                    }
+                });
+            }
+        }
+        return singleton;
+    }
+
+    /**
+     * Starts tracking the usage of the given mock. Nothing happens if the tracking is not enabled.
+     * <p>
+     * @param testClass type of the test class
+     * @param field the {@code @Mock} field
+     * @param mock the mock created for the field
+     */
+    public void track(Class<?> testClass, Field field, Object mock) {
+        if (!enabled) {
+            return;
+        }
+        FieldUsage fieldUsage = getFieldUsage(testClass, field);
+        fieldUsage.initializations.incrementAndGet();
+        UsageTrackingBehavior behavior = getTrackingBehavior(mock);
+        if (behavior == null) {
+            fieldUsage.used.incrementAndGet();
+        } else {
+            behavior.add(new MockUsage(mock, fieldUsage));
+        }
+    }
+
+    /**
+     * Writes the JSON and CSV reports of the mocks which were not used so far.
+     */
+    public void write() {
+        List<FieldUsage> unused = getUnusedMocks();
+        ReportFiles.write(JSON_REPORT, toJson(unused));
+        ReportFiles.write(CSV_REPORT, toCsv(unused));
+    }
+
+    List<FieldUsage> getUnusedMocks() {
+        List<FieldUsage> unused = new ArrayList<FieldUsage>();
+        for (FieldUsage fieldUsage : fieldUsages.values()) {
+            if (fieldUsage.used.get() == 0L) {
+                unused.add(fieldUsage);
+            }
+        }
+        Collections.sort(unused, new Comparator<FieldUsage>() {
+            @Override
+            public int compare(FieldUsage first, FieldUsage second) {
+                int result = first.testClass.compareTo(second.testClass);
+                return result == 0 ? first.field.compareTo(second.field) : result;
+            }
+        });
+        return unused;
+    }
+
+    String toJson(List<FieldUsage> unused) {
+        StringBuilder json = new StringBuilder("{\n  \"unusedMocks\": [");
+        for (int i = 0; i < unused.size(); i++) {
+            FieldUsage fieldUsage = unused.get(i);
+            json.append(i == 0 ? "\n" : ",\n").append("    {\"testClass\": ").append(jsonString(fieldUsage.testClass))
+                    .append(", \"field\": ").append(jsonString(fieldUsage.field))
+                    .append(", \"type\": ").append(jsonString(fieldUsage.type))
+                    .append(", \"initializations\": ").append(fieldUsage.initializations.get())
+                    .append('}');
+        }
+        return json.append("\n  ]\n}\n").toString();
+    }
+
+    String toCsv(List<FieldUsage> unused) {
+        StringBuilder csv = new StringBuilder("testClass,field,type,initializations\n");
+        for (FieldUsage fieldUsage : unused) {
+            csv.append(csvField(fieldUsage.testClass)).append(',')
+                    .append(csvField(fieldUsage.field)).append(',')
+                    .append(csvField(fieldUsage.type)).append(',')
+                    .append(fieldUsage.initializations.get()).append('\n');
+        }
+        return csv.toString();
+    }
+
+    private UsageTrackingBehavior getTrackingBehavior(Object mock) {
+        MocksControl control = MocksControlInstrumentation.getControl(mock);
+        if (control == null || !MocksControlInstrumentation.isSupported()) {
+            return null;
+        }
+        UsageTrackingBehavior behavior = MocksControlInstrumentation.getDecorator(control, UsageTrackingBehavior.class);
+        if (behavior == null && MocksControlInstrumentation.isRecordState(control)) {
+            behavior = new UsageTrackingBehavior(MocksControlInstrumentation.getBehavior(control));
+            MocksControlInstrumentation.install(control, behavior);
+        }
+        return behavior;
+    }
+
+    private FieldUsage getFieldUsage(Class<?> testClass, Field field) {
+        FieldKey key = new FieldKey(testClass, field);
+        FieldUsage fieldUsage = fieldUsages.get(key);
+        if (fieldUsage == null) {
+            fieldUsages.putIfAbsent(key, new FieldUsage(testClass, field));
+            fieldUsage = fieldUsages.get(key);
+        }
+        return fieldUsage;
+    }
+
+    MockUsageTracker(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    static final class FieldUsage {
+
+        private final String testClass;
+        private final String field;
+        private final String type;
+        private final AtomicLong initializations = new AtomicLong();
+        private final AtomicLong used = new AtomicLong();
+
+        private FieldUsage(Class<?> testClass, Field field) {
+            this.testClass = testClass.getName();
+            this.field = field.getName();
+            this.type = field.getType().getName();
+        }
+    }
+
+    private static final class FieldKey {
+
+        private final Class<?> testClass;
+        private final Field field;
+
+        private FieldKey(Class<?> testClass, Field field) {
+            this.testClass = testClass;
+            this.field = field;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof FieldKey)) {
+                return false;
+            }
+            FieldKey other = (FieldKey) obj;
+            return testClass == other.testClass && field.equals(other.field);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * testClass.hashCode() + field.hashCode();
+        }
+    }
+
+    /**
+     * Usage of a single mock instance. The usage of the field is counted once per mock instance.
+     */
+    private static final class MockUsage {
+
+        private final Object mock;
+        private final FieldUsage fieldUsage;
+        private final AtomicBoolean used = new AtomicBoolean();
+
+        private MockUsage(Object mock, FieldUsage fieldUsage) {
+            this.mock = mock;
+            this.fieldUsage = fieldUsage;
+        }
+
+        private void markUsed() {
+            if (used.compareAndSet(false, true)) {
+                fieldUsage.used.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Marks the mocks of a control as used on invocation. Replaying and verifying a control counts as usage only if the
+     * control belongs to a single mock, otherwise the mocks of a shared {@code @MockControl} would always be used.
+     */
+    private static final class UsageTrackingBehavior extends ForwardingMocksBehavior {
+
+        private volatile MockUsage[] usages = new MockUsage[0];
+
+        private UsageTrackingBehavior(IMocksBehavior delegate) {
+            super(delegate);
+        }
+
+        private synchronized void add(MockUsage usage) {
+            MockUsage[] newUsages = new MockUsage[usages.length + 1];
+            System.arraycopy(usages, 0, newUsages, 0, usages.length);
+            newUsages[usages.length] = usage;
+            usages = newUsages;
+        }
+
+        private void markUsed(Object mock) {
+            for (MockUsage usage : usages) {
+                if (usage.mock == mock) {
+                    usage.markUsed();
+                }
+            }
+        }
+
+        private void markReplayedOrVerified() {
+            MockUsage[] current = usages;
+            if (current.length == 1) {
+                current[0].markUsed();
+            }
+        }
+
+        @Override
+        RecordState createRecordState(IMocksBehavior behavior) {
+            return new UsageTrackingRecordState(behavior, this);
+        }
+
+        @Override
+        public Result addActual(Invocation actual) {
+            markUsed(actual.getMock());
+            return super.addActual(actual);
+        }
+
+        @Override
+        public void verify() {
+            markReplayedOrVerified();
+            super.verify();
+        }
+    }
+
+    /**
+     * Marks the mocks as used when they are invoked in record state or when their control is replayed.
+     */
+    private static final class UsageTrackingRecordState extends RecordState {
+
+        private final UsageTrackingBehavior tracker;
+
+        private UsageTrackingRecordState(IMocksBehavior behavior, UsageTrackingBehavior tracker) {
+            super(behavior);
+            this.tracker = tracker;
+        }
+
+        @Override
+        public Object invoke(Invocation invocation) {
+            tracker.markUsed(invocation.getMock());
+            return super.invoke(invocation);
+        }
+
+        @Override
+        public void replay() {
+            tracker.markReplayedOrVerified();
+            super.replay();
+        }
+    }
+}
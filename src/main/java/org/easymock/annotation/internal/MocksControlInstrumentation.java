@@ -0,0 +1,149 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+import java.lang.reflect.Field;
+
+import org.easymock.internal.IMocksBehavior;
+import org.easymock.internal.MocksControl;
+import org.easymock.internal.RecordState;
+
+/**
+ * Installs decorators into the {@link MocksControl} of a mock. EasyMock has no extension point for observing the
+ * expectations and invocations of a control, so the {@code IMocksBehavior} of a control in record state is replaced
+ * by a decorator. {@link MocksControl#reset()} drops every decorator.
+ * <p>
+ * @author Balazs Berkes
+ */
+final class MocksControlInstrumentation {
+
+    private static final Field STATE = getMocksControlField("state");
+    private static final Field BEHAVIOR = getMocksControlField("behavior");
+
+    /**
+     * Returns whether controls can be instrumented with the EasyMock version on the classpath.
+     * <p>
+     * @return {@code true} if the internals of {@link MocksControl} are accessible
+     */
+    static boolean isSupported() {
+        return STATE != null && BEHAVIOR != null;
+    }
+
+    /**
+     * Returns the control of the given mock.
+     * <p>
+     * @param mock the mock
+     * @return the control of the mock, {@code null} if the object is not an EasyMock mock
+     */
+    static MocksControl getControl(Object mock) {
+        try {
+            return MocksControl.getControl(mock);
+        } catch (RuntimeException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the behavior of the given control.
+     * <p>
+     * @param control the control
+     * @return the current behavior of the control
+     */
+    static IMocksBehavior getBehavior(MocksControl control) {
+        try {
+            return (IMocksBehavior) BEHAVIOR.get(control);
+        } catch (IllegalAccessException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Returns whether the given control is in record state.
+     * <p>
+     * @param control the control
+     * @return {@code true} if the control is in record state
+     */
+    static boolean isRecordState(MocksControl control) {
+        try {
+            return STATE.get(control) instanceof RecordState;
+        } catch (IllegalAccessException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Returns the decorator of the given type installed into the given control.
+     * <p>
+     * @param <T> type of the decorator
+     * @param control the control
+     * @param type type of the decorator
+     * @return the installed decorator, {@code null} if the control is not decorated by the given type
+     */
+    static <T extends ForwardingMocksBehavior> T getDecorator(MocksControl control, Class<T> type) {
+        IMocksBehavior behavior = getBehavior(control);
+        while (behavior instanceof ForwardingMocksBehavior) {
+            if (type.isInstance(behavior)) {
+                return type.cast(behavior);
+            }
+            behavior = ((ForwardingMocksBehavior) behavior).getDelegate();
+        }
+        return null;
+    }
+
+    /**
+     * Replaces the behavior of a control in record state. The new behavior must delegate to the current one, the
+     * record state of the control is recreated for the new behavior.
+     * <p>
+     * @param control the control in record state
+     * @param behavior the decorating behavior
+     */
+    static void install(MocksControl control, ForwardingMocksBehavior behavior) {
+        RecordState recordState = behavior.createRecordState(behavior);
+        try {
+            BEHAVIOR.set(control, behavior);
+            STATE.set(control, recordState);
+        } catch (IllegalAccessException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Replaces the record state of a control in record state. The behavior of the control is not changed.
+     * <p>
+     * @param control the control in record state
+     * @param recordState the new record state
+     */
+    static void setRecordState(MocksControl control, RecordState recordState) {
+        try {
+            STATE.set(control, recordState);
+        } catch (IllegalAccessException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private static Field getMocksControlField(String name) {
+        try {
+            Field field = MocksControl.class.getDeclaredField(name);
+            field.setAccessible(true);
+            return field;
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+
+    private MocksControlInstrumentation() {
+    }
+}
@@ -0,0 +1,301 @@
+/* 
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+import static org.mockannotations.utils.MockAnnotationReflectionUtils.getAllDeclaredFields;
+import static org.mockannotations.utils.MockAnnotationReflectionUtils.setField;
+import static org.mockannotations.utils.MockAnnotationValidationUtils.isEmpty;
+import static org.mockannotations.utils.MockAnnotationValidationUtils.notNull;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Index of the named mocks of a test class by (type, name). A mock named by {@link org.easymock.annotation.Mock#name()}
+ * or {@link org.easymock.annotation.Stub#name()} is injected into the fields and setters of the tested classes which
+ * have the same name and whose type is the type of the mock field or one of its supertypes.
+ * <p>
+ * If several mocks have the same name and type, the mock whose field is declared with exactly that type wins. If there
+ * is no such mock, the key is ambiguous and the field or setter is left to the injection by type.
+ * <p>
+ * A field or setter declared with generic parameters is resolved by name only if the mock field is declared with the
+ * same generic type, otherwise it is left to the injection by type, which respects the generic parameters.
+ * <p>
+ * The fields and setters of a tested class are resolved to mocks once per class, see {@link TargetInjection}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public final class QualifiedMockIndex {
+
+    private static final Integer AMBIGUOUS = -1;
+
+    private final Map<Key, Integer> mockIndexes;
+    private final List<Class<?>> mockTypes;
+    private final List<Type> mockGenericTypes;
+    private final ConcurrentMap<Class<?>, TargetInjection> injections
+            = new ConcurrentHashMap<Class<?>, TargetInjection>();
+
+    /**
+     * Builds the index of the named mocks.
+     * <p>
+     * @param mocks the mocks of the test class
+     * @return the index, empty if no mock has a name
+     */
+    public static QualifiedMockIndex create(List<MockDefinition> mocks) {
+        Map<Key, List<Integer>> candidates = new HashMap<Key, List<Integer>>();
+        List<Class<?>> mockTypes = new ArrayList<Class<?>>(mocks.size());
+        List<Type> mockGenericTypes = new ArrayList<Type>(mocks.size());
+        for (int i = 0; i < mocks.size(); i++) {
+            MockDefinition mock = mocks.get(i);
+            mockTypes.add(mock.getField().getType());
+            mockGenericTypes.add(mock.getField().getGenericType());
+            if (!isEmpty(mock.getName())) {
+                for (Class<?> type : getTypes(mock.getField().getType())) {
+                    addCandidate(candidates, new Key(type, mock.getName()), i);
+                }
+            }
+        }
+        Map<Key, Integer> mockIndexes = new HashMap<Key, Integer>();
+        for (Map.Entry<Key, List<Integer>> entry : candidates.entrySet()) {
+            mockIndexes.put(entry.getKey(), resolve(mocks, entry.getKey(), entry.getValue()));
+        }
+        return new QualifiedMockIndex(mockIndexes, mockTypes, mockGenericTypes);
+    }
+
+    /**
+     * Returns the resolved injection of the named mocks into the objects of the given type. The injection is resolved
+     * on the first request for the type.
+     * <p>
+     * @param targetType type of the object of an {@link org.easymock.annotation.Injected @Injected} field
+     * @return the resolved injection
+     */
+    public TargetInjection getInjection(Class<?> targetType) {
+        TargetInjection injection = injections.get(targetType);
+        if (injection == null) {
+            injections.putIfAbsent(targetType, resolveInjection(targetType));
+            injection = injections.get(targetType);
+        }
+        return injection;
+    }
+
+    private TargetInjection resolveInjection(Class<?> targetType) {
+        List<Field> fields = new ArrayList<Field>();
+        List<Integer> fieldMocks = new ArrayList<Integer>();
+        boolean complete = true;
+        for (Field field : getAllDeclaredFields(targetType)) {
+            int modifiers = field.getModifiers();
+            if (!Modifier.isStatic(modifiers) && !Modifier.isFinal(modifiers)) {
+                Integer mockIndex = get(field.getType(), field.getGenericType(), field.getName());
+                if (notNull(mockIndex)) {
+                    fields.add(field);
+                    fieldMocks.add(mockIndex);
+                } else {
+                    complete &= !isInjectable(field.getType());
+                }
+            }
+        }
+        List<Method> setters = new ArrayList<Method>();
+        List<Integer> setterMocks = new ArrayList<Integer>();
+        for (Method method : targetType.getMethods()) {
+            if (isSetter(method)) {
+                Integer mockIndex = get(method.getParameterTypes()[0], method.getGenericParameterTypes()[0],
+                        getPropertyName(method));
+                if (notNull(mockIndex)) {
+                    setters.add(method);
+                    setterMocks.add(mockIndex);
+                } else {
+                    complete &= !isInjectable(method.getParameterTypes()[0]);
+                }
+            }
+        }
+        return new TargetInjection(fields.toArray(new Field[fields.size()]), toArray(fieldMocks),
+                setters.toArray(new Method[setters.size()]), toArray(setterMocks), complete);
+    }
+
+    private Integer get(Class<?> type, Type genericType, String name) {
+        Integer mockIndex = mockIndexes.get(new Key(type, name));
+        if (mockIndex == null || AMBIGUOUS.equals(mockIndex)) {
+            return null;
+        }
+        return genericType instanceof Class || genericType.equals(mockGenericTypes.get(mockIndex)) ? mockIndex : null;
+    }
+
+    private boolean isInjectable(Class<?> type) {
+        if (type == Object.class) {
+            return true;
+        }
+        for (Class<?> mockType : mockTypes) {
+            if (type.isAssignableFrom(mockType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    private static void addCandidate(Map<Key, List<Integer>> candidates, Key key, int mockIndex) {
+        List<Integer> mockIndexes = candidates.get(key);
+        if (mockIndexes == null) {
+            mockIndexes = new ArrayList<Integer>(1);
+            candidates.put(key, mockIndexes);
+        }
+        mockIndexes.add(mockIndex);
+    }
+
+    private static Integer resolve(List<MockDefinition> mocks, Key key, List<Integer> candidates) {
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        Integer exact = null;
+        for (Integer candidate : candidates) {
+            if (mocks.get(candidate).getField().getType() == key.type) {
+                if (notNull(exact)) {
+                    return AMBIGUOUS;
+                }
+                exact = candidate;
+            }
+        }
+        return notNull(exact) ? exact : AMBIGUOUS;
+    }
+
+    private static List<Class<?>> getTypes(Class<?> type) {
+        List<Class<?>> types = new ArrayList<Class<?>>();
+        addTypes(types, type);
+        return types;
+    }
+
+    private static void addTypes(List<Class<?>> types, Class<?> type) {
+        if (type == null || type == Object.class || types.contains(type)) {
+            return;
+        }
+        types.add(type);
+        addTypes(types, type.getSuperclass());
+        for (Class<?> implemented : type.getInterfaces()) {
+            addTypes(types, implemented);
+        }
+    }
+
+    static boolean isSetter(Method method) {
+        return method.getName().length() > 3 && method.getName().startsWith("set")
+                && method.getParameterTypes().length == 1 && !Modifier.isStatic(method.getModifiers());
+    }
+
+    private static String getPropertyName(Method method) {
+        String property = method.getName().substring(3);
+        return Character.toLowerCase(property.charAt(0)) + property.substring(1);
+    }
+
+    private QualifiedMockIndex(Map<Key, Integer> mockIndexes, List<Class<?>> mockTypes, List<Type> mockGenericTypes) {
+        this.mockIndexes = mockIndexes;
+        this.mockTypes = mockTypes;
+        this.mockGenericTypes = mockGenericTypes;
+    }
+
+    /**
+     * Fields and setters of a tested class resolved to the mocks injected into them by name. The injection is
+     * complete if every field and setter which could receive a mock of the test class is resolved, so the injection
+     * by type can be skipped.
+     */
+    public static final class TargetInjection {
+
+        private final Field[] fields;
+        private final int[] fieldMocks;
+        private final Method[] setters;
+        private final int[] setterMocks;
+        private final boolean complete;
+
+        private TargetInjection(Field[] fields, int[] fieldMocks, Method[] setters, int[] setterMocks,
+                boolean complete) {
+            this.fields = fields;
+            this.fieldMocks = fieldMocks;
+            this.setters = setters;
+            this.setterMocks = setterMocks;
+            this.complete = complete;
+        }
+
+        /**
+         * Returns whether every field and setter which could receive a mock is resolved by name.
+         * <p>
+         * @return {@code true} if the injection by type can be skipped
+         */
+        public boolean isComplete() {
+            return complete;
+        }
+
+        /**
+         * Injects the named mocks into the resolved fields and setters of the given object.
+         * <p>
+         * @param target object of an {@link org.easymock.annotation.Injected @Injected} field
+         * @param mocks the mocks of the test class in the order of {@link InitializationPlan#getMocks()}
+         */
+        public void injectTo(Object target, Object[] mocks) {
+            for (int i = 0; i < fields.length; i++) {
+                setField(fields[i], target, mocks[fieldMocks[i]]);
+            }
+            for (int i = 0; i < setters.length; i++) {
+                invoke(setters[i], target, mocks[setterMocks[i]]);
+            }
+        }
+
+        private static void invoke(Method method, Object target, Object mock) {
+            try {
+                method.invoke(target, mock);
+            } catch (Exception ex) {
+                throw new RuntimeException("Cannot inject mock by " + method, ex);
+            }
+        }
+    }
+
+    private static final class Key {
+
+        private final Class<?> type;
+        private final String name;
+
+        private Key(Class<?> type, String name) {
+            this.type = type;
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return type == other.type && name.equals(other.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * type.hashCode() + name.hashCode();
+        }
+    }
+}
@@ -0,0 +1,559 @@
+/* 
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+import static org.mockannotations.utils.MockAnnotationValidationUtils.isNull;
+import static org.mockannotations.utils.MockAnnotationValidationUtils.notNull;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.easymock.IAnswer;
+import org.easymock.IArgumentMatcher;
+import org.easymock.IMocksControl;
+import org.easymock.internal.IMocksControlState;
+import org.easymock.internal.Invocation;
+import org.easymock.internal.LastControl;
+import org.easymock.internal.MocksControl;
+import org.easymock.internal.Range;
+import org.easymock.internal.RecordState;
+import org.easymock.internal.matchers.Captures;
+
+/**
+ * Expectations recorded by the {@link org.easymock.annotation.ExpectationTemplate @ExpectationTemplate} methods of a
+ * test class. The steps recorded on the controls of the mocks are applied to the controls of new mocks directly, the
+ * mocks referenced by arguments and return values are replaced by the mocks of the same field.
+ * <p>
+ * Steps which cannot be shared by test instances (thrown throwables, answers, delegates, captures, custom matchers)
+ * make the recording unsupported, the templates of such test classes are run at every initialization. So do arguments,
+ * return values and matcher values other than mocks of the test class and known immutable values ({@code null},
+ * strings, boxed primitives, enums and classes), because a mutable value would be shared by every test instance.
+ * <p>
+ * @author Balazs Berkes
+ */
+public final class RecordedExpectations {
+
+    private static final RecordedExpectations UNSUPPORTED = new RecordedExpectations(-1, -1, new Step[0]);
+    private static final String EASYMOCK_MATCHERS = "org.easymock.internal.matchers.";
+    private static final Set<Class<?>> IMMUTABLE_TYPES = new HashSet<Class<?>>(Arrays.<Class<?>>asList(String.class,
+            Boolean.class, Character.class, Byte.class, Short.class, Integer.class, Long.class, Float.class,
+            Double.class));
+
+    private final int controlCount;
+    private final int mockCount;
+    private final Step[] steps;
+
+    /**
+     * Runs the templates on an initialized test class and records the expectations they set.
+     * <p>
+     * @param testClass the initialized test class
+     * @param templates the {@code @ExpectationTemplate} methods
+     * @param controls the controls of the test class in the order of {@link InitializationPlan#getControls()}
+     * @param mocks the mocks of the test class in the order of {@link InitializationPlan#getMocks()}
+     * @return the recorded expectations, which are not supported if a step cannot be shared by test instances
+     */
+    public static RecordedExpectations record(Object testClass, List<Method> templates, IMocksControl[] controls,
+            Object[] mocks) {
+        if (!MocksControlInstrumentation.isSupported()) {
+            runTemplates(testClass, templates);
+            return UNSUPPORTED;
+        }
+        Recording recording = new Recording(testClass, mocks);
+        recording.instrument(controls, mocks);
+        try {
+            runTemplates(testClass, templates);
+        } finally {
+            recording.restore();
+        }
+        if (!recording.supported) {
+            return UNSUPPORTED;
+        }
+        return new RecordedExpectations(controls.length, mocks.length,
+                recording.steps.toArray(new Step[recording.steps.size()]));
+    }
+
+    /**
+     * Runs the templates on the test class.
+     * <p>
+     * @param testClass the initialized test class
+     * @param templates the {@code @ExpectationTemplate} methods
+     */
+    public static void runTemplates(Object testClass, List<Method> templates) {
+        for (Method template : templates) {
+            try {
+                template.invoke(testClass);
+            } catch (InvocationTargetException ex) {
+                throw asRuntimeException(ex.getCause());
+            } catch (IllegalAccessException ex) {
+                throw new RuntimeException("Cannot run expectation template " + template, ex);
+            }
+        }
+    }
+
+    /**
+     * Returns whether the expectations can be applied. Expectations which cannot be shared by test instances are not
+     * supported.
+     * <p>
+     * @return {@code true} if the expectations can be applied
+     */
+    public boolean isSupported() {
+        return this != UNSUPPORTED;
+    }
+
+    /**
+     * Applies the recorded expectations to the controls of the given mocks.
+     * <p>
+     * @param controls the controls of the test class in the order of {@link InitializationPlan#getControls()}
+     * @param mocks the mocks of the test class in the order of {@link InitializationPlan#getMocks()}
+     * @return {@code true} if the expectations were applied, {@code false} if they are not supported
+     */
+    public boolean applyTo(IMocksControl[] controls, Object[] mocks) {
+        if (!isSupported() || controls.length != controlCount || mocks.length != mockCount) {
+            return false;
+        }
+        IMocksControlState[] states = new IMocksControlState[controls.length + mocks.length];
+        for (Step step : steps) {
+            int index = step.control < 0 ? mocks.length - step.control - 1 : step.control;
+            if (isNull(states[index])) {
+                MocksControl control = step.control < 0
+                        ? (MocksControl) controls[-step.control - 1]
+                        : MocksControlInstrumentation.getControl(mocks[step.control]);
+                states[index] = control.getState();
+            }
+            step.applyTo(states[index], mocks);
+        }
+        return true;
+    }
+
+    private static RuntimeException asRuntimeException(Throwable cause) {
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return cause instanceof RuntimeException ? (RuntimeException) cause : new RuntimeException(cause);
+    }
+
+    private static Object decode(Object value, Object[] mocks) {
+        return value instanceof MockSlot ? mocks[((MockSlot) value).index] : value;
+    }
+
+    private RecordedExpectations(int controlCount, int mockCount, Step[] steps) {
+        this.controlCount = controlCount;
+        this.mockCount = mockCount;
+        this.steps = steps;
+    }
+
+    /**
+     * Records the steps of the templates run on one test class.
+     */
+    private static final class Recording {
+
+        private final Object testClass;
+        private final Map<Object, Integer> mockIndexes = new IdentityHashMap<Object, Integer>();
+        private final Map<MocksControl, RecordingState> states = new IdentityHashMap<MocksControl, RecordingState>();
+        private final List<Step> steps = new ArrayList<Step>();
+        private boolean supported = true;
+
+        private Recording(Object testClass, Object[] mocks) {
+            this.testClass = testClass;
+            for (int i = 0; i < mocks.length; i++) {
+                mockIndexes.put(mocks[i], i);
+            }
+        }
+
+        private void instrument(IMocksControl[] controls, Object[] mocks) {
+            for (int i = 0; i < controls.length; i++) {
+                if (controls[i] instanceof MocksControl) {
+                    instrument((MocksControl) controls[i], -i - 1);
+                }
+            }
+            for (int i = 0; i < mocks.length; i++) {
+                MocksControl control = MocksControlInstrumentation.getControl(mocks[i]);
+                if (notNull(control)) {
+                    instrument(control, i);
+                }
+            }
+        }
+
+        private void instrument(MocksControl control, int index) {
+            if (!states.containsKey(control) && MocksControlInstrumentation.isRecordState(control)) {
+                RecordingState state = new RecordingState((RecordState) control.getState(), index, this);
+                MocksControlInstrumentation.setRecordState(control, state);
+                states.put(control, state);
+            }
+        }
+
+        private void restore() {
+            for (Map.Entry<MocksControl, RecordingState> entry : states.entrySet()) {
+                if (entry.getKey().getState() == entry.getValue()) {
+                    MocksControlInstrumentation.setRecordState(entry.getKey(), entry.getValue().delegate);
+                } else {
+                    supported = false;
+                }
+            }
+        }
+
+        private void add(Step step) {
+            steps.add(step);
+        }
+
+        private void addInvocation(int control, Invocation invocation, List<IArgumentMatcher> matchers) {
+            Integer mockIndex = mockIndexes.get(invocation.getMock());
+            if (isNull(mockIndex) || invocation.getMethod().isVarArgs()) {
+                supported = false;
+                return;
+            }
+            Object[] arguments = invocation.getArguments().clone();
+            for (int i = 0; i < arguments.length; i++) {
+                arguments[i] = encode(arguments[i]);
+            }
+            if (notNull(matchers)) {
+                for (IArgumentMatcher matcher : matchers) {
+                    checkMatcher(matcher);
+                }
+            }
+            add(new InvocationStep(control, mockIndex, invocation.getMethod(), arguments, matchers));
+        }
+
+        private Object encode(Object value) {
+            Integer mockIndex = mockIndexes.get(value);
+            if (notNull(mockIndex)) {
+                return new MockSlot(mockIndex);
+            }
+            checkValue(value);
+            return value;
+        }
+
+        private void checkValue(Object value) {
+            if (notNull(value) && !(value instanceof Enum || value instanceof Class
+                    || IMMUTABLE_TYPES.contains(value.getClass()))) {
+                supported = false;
+            }
+        }
+
+        private void checkMatcher(Object matcher) {
+            if (!matcher.getClass().getName().startsWith(EASYMOCK_MATCHERS) || matcher instanceof Captures) {
+                supported = false;
+                return;
+            }
+            for (Class<?> type = matcher.getClass(); type != Object.class; type = type.getSuperclass()) {
+                for (Field field : type.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers())) {
+                        checkMatcherField(getFieldValue(field, matcher));
+                    }
+                }
+            }
+        }
+
+        private void checkMatcherField(Object value) {
+            if (value instanceof IArgumentMatcher) {
+                checkMatcher(value);
+            } else if (value instanceof Collection) {
+                for (Object element : (Collection<?>) value) {
+                    checkMatcherField(element);
+                }
+            } else {
+                checkValue(value);
+            }
+        }
+
+        private Object getFieldValue(Field field, Object target) {
+            try {
+                field.setAccessible(true);
+                return field.get(target);
+            } catch (Exception ex) {
+                supported = false;
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Record state of an instrumented control. Every call is forwarded to the original record state and recorded as
+     * a step.
+     */
+    private static final class RecordingState extends RecordState {
+
+        private final RecordState delegate;
+        private final int control;
+        private final Recording recording;
+
+        private RecordingState(RecordState delegate, int control, Recording recording) {
+            super(null);
+            this.delegate = delegate;
+            this.control = control;
+            this.recording = recording;
+        }
+
+        @Override
+        public void assertRecordState() {
+            delegate.assertRecordState();
+        }
+
+        @Override
+        public Object invoke(Invocation invocation) {
+            List<IArgumentMatcher> matchers = LastControl.pullMatchers();
+            if (notNull(matchers)) {
+                for (IArgumentMatcher matcher : matchers) {
+                    LastControl.reportMatcher(matcher);
+                }
+            }
+            recording.addInvocation(control, invocation, matchers);
+            return delegate.invoke(invocation);
+        }
+
+        @Override
+        public void replay() {
+            recording.supported = false;
+            delegate.replay();
+        }
+
+        @Override
+        public void verify() {
+            recording.supported = false;
+            delegate.verify();
+        }
+
+        @Override
+        public void andReturn(Object value) {
+            delegate.andReturn(value);
+            recording.add(new ReturnStep(control, recording.encode(value), false));
+        }
+
+        @Override
+        public void andThrow(Throwable throwable) {
+            recording.supported = false;
+            delegate.andThrow(throwable);
+        }
+
+        @Override
+        public void andAnswer(IAnswer<?> answer) {
+            recording.supported = false;
+            delegate.andAnswer(answer);
+        }
+
+        @Override
+        public void andDelegateTo(Object answer) {
+            recording.supported = false;
+            delegate.andDelegateTo(answer);
+        }
+
+        @Override
+        public void andStubReturn(Object value) {
+            delegate.andStubReturn(value);
+            recording.add(new ReturnStep(control, recording.encode(value), true));
+        }
+
+        @Override
+        public void asStub() {
+            delegate.asStub();
+            recording.add(new AsStubStep(control));
+        }
+
+        @Override
+        public void andStubThrow(Throwable throwable) {
+            recording.supported = false;
+            delegate.andStubThrow(throwable);
+        }
+
+        @Override
+        public void andStubAnswer(IAnswer<?> answer) {
+            recording.supported = false;
+            delegate.andStubAnswer(answer);
+        }
+
+        @Override
+        public void andStubDelegateTo(Object delegateTo) {
+            recording.supported = false;
+            delegate.andStubDelegateTo(delegateTo);
+        }
+
+        @Override
+        public void times(Range range) {
+            delegate.times(range);
+            recording.add(new TimesStep(control, range));
+        }
+
+        @Override
+        public void checkOrder(boolean value) {
+            delegate.checkOrder(value);
+            recording.add(new SettingStep(control, SettingStep.CHECK_ORDER, value));
+        }
+
+        @Override
+        public void makeThreadSafe(boolean threadSafe) {
+            delegate.makeThreadSafe(threadSafe);
+            recording.add(new SettingStep(control, SettingStep.THREAD_SAFE, threadSafe));
+        }
+
+        @Override
+        public void checkIsUsedInOneThread(boolean shouldBeUsedInOneThread) {
+            delegate.checkIsUsedInOneThread(shouldBeUsedInOneThread);
+            recording.add(new SettingStep(control, SettingStep.ONE_THREAD, shouldBeUsedInOneThread));
+        }
+    }
+
+    /**
+     * Marks a reference to the mock with the given index.
+     */
+    private static final class MockSlot {
+
+        private final int index;
+
+        private MockSlot(int index) {
+            this.index = index;
+        }
+    }
+
+    /**
+     * Recorded call on the state of a control. The control is identified by its index in the controls of the test
+     * class ({@code -index - 1}) or by the index of one of its mocks.
+     */
+    private abstract static class Step {
+
+        private final int control;
+
+        private Step(int control) {
+            this.control = control;
+        }
+
+        abstract void applyTo(IMocksControlState state, Object[] mocks);
+    }
+
+    private static final class InvocationStep extends Step {
+
+        private final int mockIndex;
+        private final Method method;
+        private final Object[] arguments;
+        private final IArgumentMatcher[] matchers;
+
+        private InvocationStep(int control, int mockIndex, Method method, Object[] arguments,
+                List<IArgumentMatcher> matchers) {
+            super(control);
+            this.mockIndex = mockIndex;
+            this.method = method;
+            this.arguments = arguments;
+            this.matchers = isNull(matchers) ? null : matchers.toArray(new IArgumentMatcher[matchers.size()]);
+        }
+
+        @Override
+        void applyTo(IMocksControlState state, Object[] mocks) {
+            Object[] actualArguments = new Object[arguments.length];
+            for (int i = 0; i < arguments.length; i++) {
+                actualArguments[i] = decode(arguments[i], mocks);
+            }
+            if (notNull(matchers)) {
+                for (IArgumentMatcher matcher : matchers) {
+                    LastControl.reportMatcher(matcher);
+                }
+            }
+            try {
+                state.invoke(new Invocation(mocks[mockIndex], method, actualArguments));
+            } catch (Throwable ex) {
+                throw asRuntimeException(ex);
+            }
+        }
+    }
+
+    private static final class ReturnStep extends Step {
+
+        private final Object value;
+        private final boolean stub;
+
+        private ReturnStep(int control, Object value, boolean stub) {
+            super(control);
+            this.value = value;
+            this.stub = stub;
+        }
+
+        @Override
+        void applyTo(IMocksControlState state, Object[] mocks) {
+            if (stub) {
+                state.andStubReturn(decode(value, mocks));
+            } else {
+                state.andReturn(decode(value, mocks));
+            }
+        }
+    }
+
+    private static final class AsStubStep extends Step {
+
+        private AsStubStep(int control) {
+            super(control);
+        }
+
+        @Override
+        void applyTo(IMocksControlState state, Object[] mocks) {
+            state.asStub();
+        }
+    }
+
+    private static final class TimesStep extends Step {
+
+        private final Range range;
+
+        private TimesStep(int control, Range range) {
+            super(control);
+            this.range = range;
+        }
+
+        @Override
+        void applyTo(IMocksControlState state, Object[] mocks) {
+            state.times(range);
+        }
+    }
+
+    private static final class SettingStep extends Step {
+
+        private static final int CHECK_ORDER = 0;
+        private static final int THREAD_SAFE = 1;
+        private static final int ONE_THREAD = 2;
+
+        private final int setting;
+        private final boolean value;
+
+        private SettingStep(int control, int setting, boolean value) {
+            super(control);
+            this.setting = setting;
+            this.value = value;
+        }
+
+        @Override
+        void applyTo(IMocksControlState state, Object[] mocks) {
+            switch (setting) {
+                case CHECK_ORDER:
+                    state.checkOrder(value);
+                    break;
+                case THREAD_SAFE:
+                    state.makeThreadSafe(value);
+                    break;
+                case ONE_THREAD:
+                default:
+                    state.checkIsUsedInOneThread(value);
+                    break;
+            }
+        }
+    }
+}
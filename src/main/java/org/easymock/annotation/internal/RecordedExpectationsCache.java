@@ -0,0 +1,62 @@
+/* 
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Holds the {@link RecordedExpectations} of the test classes.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class RecordedExpectationsCache {
+
+    private static RecordedExpectationsCache singleton;
+
+    private final ConcurrentMap<Class<?>, RecordedExpectations> expectations
+            = new ConcurrentHashMap<Class<?>, RecordedExpectations>();
+
+    public static synchronized RecordedExpectationsCache getSingleton() {
+        if (singleton == null) {
+            singleton = new RecordedExpectationsCache();
+        }
+        return singleton;
+    }
+
+    /**
+     * Returns the recorded expectations of the given test class.
+     * <p>
+     * @param testClass type of the test class
+     * @return the recorded expectations or {@code null} if they were not recorded yet
+     */
+    public RecordedExpectations get(Class<?> testClass) {
+        return expectations.get(testClass);
+    }
+
+    /**
+     * Stores the expectations of the given test class. The previously recorded expectations are replaced.
+     * <p>
+     * @param testClass type of the test class
+     * @param recorded the recorded expectations
+     */
+    public void put(Class<?> testClass, RecordedExpectations recorded) {
+        expectations.put(testClass, recorded);
+    }
+
+    RecordedExpectationsCache() {
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+import static org.mockannotations.utils.MockAnnotationReflectionUtils.getAllDeclaredFields;
+import static org.mockannotations.utils.MockAnnotationReflectionUtils.getField;
+import static org.mockannotations.utils.MockAnnotationReflectionUtils.setField;
+import static org.mockannotations.utils.MockAnnotationValidationUtils.isNull;
+import static org.mockannotations.utils.MockAnnotationValidationUtils.notNull;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Mocks of a reinitialized test class which were replaced, by the test or by new mocks of the framework. The already
+ * injected tested classes are updated by replacing the references of the previous mocks, so only the affected fields
+ * and setters are touched.
+ * <p>
+ * @author Balazs Berkes
+ */
+public final class ReplacedMocks {
+
+    private final Map<Object, Object> replacements = new IdentityHashMap<Object, Object>();
+
+    /**
+     * Registers a replaced mock.
+     * <p>
+     * @param previous the mock which was injected before
+     * @param current the mock which replaces it
+     */
+    public void add(Object previous, Object current) {
+        replacements.put(previous, current);
+    }
+
+    /**
+     * Returns whether any mock was replaced.
+     * <p>
+     * @return {@code true} if no mock was replaced
+     */
+    public boolean isEmpty() {
+        return replacements.isEmpty();
+    }
+
+    /**
+     * Replaces the previous mocks in the fields of the given tested class. A field is updated by its setter, e.g.
+     * {@code setRepository} for the {@code repository} field, if the tested class has a public one, otherwise the
+     * field is set directly.
+     * <p>
+     * @param testedClass the already injected tested class
+     * @throws RuntimeException if a setter fails
+     */
+    public void applyTo(Object testedClass) {
+        for (Field field : getAllDeclaredFields(testedClass.getClass())) {
+            if (!isInjectable(field)) {
+                continue;
+            }
+            Object previous = getField(field, testedClass);
+            if (notNull(previous) && replacements.containsKey(previous)) {
+                inject(testedClass, field, replacements.get(previous));
+            }
+        }
+    }
+
+    private static void inject(Object testedClass, Field field, Object mock) {
+        Method setter = findSetter(testedClass.getClass(), field);
+        if (isNull(setter)) {
+            setField(field, testedClass, mock);
+            return;
+        }
+        try {
+            setter.invoke(testedClass, mock);
+        } catch (IllegalAccessException ex) {
+            throw new RuntimeException("Cannot call " + setter, ex);
+        } catch (InvocationTargetException ex) {
+            throw new RuntimeException(setter + " failed!", ex.getCause());
+        }
+    }
+
+    private static Method findSetter(Class<?> type, Field field) {
+        String name = field.getName();
+        try {
+            return type.getMethod("set" + Character.toUpperCase(name.charAt(0)) + name.substring(1), field.getType());
+        } catch (NoSuchMethodException ex) {
+            return null;
+        }
+    }
+
+    private static boolean isInjectable(Field field) {
+        int modifiers = field.getModifiers();
+        return !Modifier.isStatic(modifiers) && !Modifier.isFinal(modifiers) && !field.getType().isPrimitive();
+    }
+}
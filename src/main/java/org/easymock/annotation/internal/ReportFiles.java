@@ -0,0 +1,147 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Writes the diagnostic reports of the framework. Reports are written into the directory defined by the
+ * {@value #DIRECTORY_PROPERTY} system property, {@value #DEFAULT_DIRECTORY} by default.
+ * <p>
+ * @author Balazs Berkes
+ */
+public final class ReportFiles {
+
+    /**
+     * System property which defines the directory of the reports.
+     */
+    public static final String DIRECTORY_PROPERTY = "easymock.annotations.report.dir";
+    /**
+     * Default directory of the reports.
+     */
+    public static final String DEFAULT_DIRECTORY = "target/easymock-annotations-report";
+
+    /**
+     * Returns the directory of the reports.
+     * <p>
+     * @return the report directory
+     */
+    public static File getDirectory() {
+        return new File(System.getProperty(DIRECTORY_PROPERTY, DEFAULT_DIRECTORY));
+    }
+
+    /**
+     * Writes the given content into the report file with the given name. The report directory is created if it does
+     * not exist.
+     * <p>
+     * @param fileName name of the report file
+     * @param content content of the report
+     * @return the written file
+     * @throws RuntimeException if the file cannot be written
+     */
+    public static File write(String fileName, String content) {
+        return write(getDirectory(), fileName, content);
+    }
+
+    /**
+     * Writes the given content into the file with the given name in the given directory. The directory is created if
+     * it does not exist.
+     * <p>
+     * @param directory the directory of the file
+     * @param fileName name of the file
+     * @param content content of the file
+     * @return the written file
+     * @throws RuntimeException if the file cannot be written
+     */
+    public static File write(File directory, String fileName, String content) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new RuntimeException("Cannot create directory " + directory);
+        }
+        File file = new File(directory, fileName);
+        try {
+            Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+            try {
+                writer.write(content);
+            } finally {
+                writer.close();
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("Cannot write " + file, ex);
+        }
+        return file;
+    }
+
+    /**
+     * Registers a shutdown hook which runs the given report writer when the JVM exits.
+     * <p>
+     * @param name name of the hook thread
+     * @param writer writes the report
+     */
+    public static void writeOnShutdown(String name, final Runnable writer) {
+        Thread hook = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    writer.run();
+                } catch (RuntimeException ex) {
+                    System.err.println(ex.getMessage());
+                }
+            }
+        }, name);
+        Runtime.getRuntime().addShutdownHook(hook);
+    }
+
+    /**
+     * Returns the given text as a JSON string literal.
+     * <p>
+     * @param text the text
+     * @return the quoted and escaped text
+     */
+    public static String jsonString(String text) {
+        StringBuilder json = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < ' ') {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    /**
+     * Returns the given text as a CSV field, quoted if necessary.
+     * <p>
+     * @param text the text
+     * @return the CSV field
+     */
+    public static String csvField(String text) {
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    private ReportFiles() {
+    }
+}
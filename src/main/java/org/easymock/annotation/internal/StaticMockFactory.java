@@ -15,15 +15,20 @@
  */
 package org.easymock.annotation.internal;
 
+import static org.mockannotations.utils.MockAnnotationValidationUtils.isEmpty;
+
 import org.easymock.EasyMock;
+import org.easymock.IMockBuilder;
 import org.easymock.MockType;
 
+import org.easymock.annotation.spi.MockFactory;
+
 /**
  * Creates mock via EasyMock. This is equivalent to {@code  EasyMock.createMock(class)}
  *
  * @author Balazs Berkes
  */
-public class StaticMockFactory implements MockFactory {
+public class StaticMockFactory implements MockFactory, MockBuilderFactory {
 
     @Override
     public <T> T createMock(Class<T> clazz, MockType type) {
@@ -60,4 +65,10 @@ public class StaticMockFactory implements MockFactory {
         }
         return mock;
     }
+
+    @Override
+    public <T> T createMock(Class<T> clazz, MockType type, String name, MockBuilderDefinition definition) {
+        IMockBuilder<T> builder = definition.configure(EasyMock.createMockBuilder(clazz));
+        return isEmpty(name) ? builder.createMock(type) : builder.createMock(name, type);
+    }
 }
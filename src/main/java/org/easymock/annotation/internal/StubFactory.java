@@ -0,0 +1,293 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+import static org.mockannotations.utils.MockAnnotationValidationUtils.isEmpty;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.easymock.EasyMock;
+
+/**
+ * Creates lightweight stubs which bypass the record/replay state machine of EasyMock.
+ * <p>
+ * For every interface the {@link Proxy} class and the method &#8594; answer table are created once and cached, so
+ * creating a stub is a constructor call and invoking a method is a table lookup. Classes cannot be proxied by
+ * {@code Proxy}, they are stubbed by an already replayed nice mock.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class StubFactory {
+
+    private static StubFactory singleton;
+
+    private final ConcurrentMap<Class<?>, StubType> stubTypes = new ConcurrentHashMap<Class<?>, StubType>();
+
+    public static synchronized StubFactory getSingleton() {
+        if (singleton == null) {
+            singleton = new StubFactory();
+        }
+        return singleton;
+    }
+
+    /**
+     * Creates a stub of the given class.
+     * <p>
+     * @param <T> type of class
+     * @param clazz type of the stub
+     * @param name name of the stub, can be empty
+     * @return returns a stub object.
+     */
+    public <T> T createStub(Class<T> clazz, String name) {
+        if (clazz.isInterface()) {
+            return clazz.cast(getStubType(clazz).newInstance(name));
+        } else {
+            return createReplayedNiceMock(clazz, name);
+        }
+    }
+
+    /**
+     * Sets a fixed return value for every method of the stub with the given name.
+     * <p>
+     * @param stub stub created by this factory
+     * @param methodName name of the stubbed method
+     * @param value the value to return
+     */
+    public void stubReturn(Object stub, String methodName, Object value) {
+        getHandler(stub).stubReturn(methodName, value);
+    }
+
+    private <T> T createReplayedNiceMock(Class<T> clazz, String name) {
+        T mock = isEmpty(name) ? EasyMock.createNiceMock(clazz) : EasyMock.createNiceMock(name, clazz);
+        EasyMock.replay(mock);
+        return mock;
+    }
+
+    private StubType getStubType(Class<?> clazz) {
+        StubType stubType = stubTypes.get(clazz);
+        if (stubType == null) {
+            stubTypes.putIfAbsent(clazz, new StubType(clazz));
+            stubType = stubTypes.get(clazz);
+        }
+        return stubType;
+    }
+
+    private StubInvocationHandler getHandler(Object stub) {
+        if (stub != null && Proxy.isProxyClass(stub.getClass())) {
+            InvocationHandler handler = Proxy.getInvocationHandler(stub);
+            if (handler instanceof StubInvocationHandler) {
+                return (StubInvocationHandler) handler;
+            }
+        }
+        throw new IllegalArgumentException("Not an interface stub created by @Stub: " + stub);
+    }
+
+    StubFactory() {
+    }
+
+    /**
+     * Cached proxy class and method &#8594; answer table of a stubbed interface.
+     */
+    private static final class StubType {
+
+        private final Class<?> clazz;
+        private final Constructor<?> constructor;
+        private final Map<Method, Integer> methodIndexes;
+        private final StubAnswer[] defaultAnswers;
+
+        private StubType(Class<?> clazz) {
+            this.clazz = clazz;
+            this.constructor = getProxyConstructor(clazz);
+            Method[] methods = clazz.getMethods();
+            Map<Method, Integer> indexes = new HashMap<Method, Integer>();
+            defaultAnswers = new StubAnswer[methods.length + 3];
+            for (int i = 0; i < methods.length; i++) {
+                indexes.put(methods[i], i);
+                defaultAnswers[i] = new ReturnAnswer(defaultValue(methods[i].getReturnType()));
+            }
+            addObjectMethod(indexes, methods.length, "equals", EqualsAnswer.INSTANCE, Object.class);
+            addObjectMethod(indexes, methods.length + 1, "hashCode", HashCodeAnswer.INSTANCE);
+            addObjectMethod(indexes, methods.length + 2, "toString", ToStringAnswer.INSTANCE);
+            methodIndexes = Collections.unmodifiableMap(indexes);
+        }
+
+        private void addObjectMethod(Map<Method, Integer> indexes, int index, String name, StubAnswer answer,
+                Class<?>... parameterTypes) {
+            try {
+                indexes.put(Object.class.getMethod(name, parameterTypes), index);
+                defaultAnswers[index] = answer;
+            } catch (NoSuchMethodException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+
+        private Object newInstance(String name) {
+            try {
+                return constructor.newInstance(new StubInvocationHandler(this, name));
+            } catch (Exception ex) {
+                throw new RuntimeException("Cannot create stub of " + clazz.getName(), ex);
+            }
+        }
+
+        private static Constructor<?> getProxyConstructor(Class<?> clazz) {
+            try {
+                return Proxy.getProxyClass(clazz.getClassLoader(), clazz).getConstructor(InvocationHandler.class);
+            } catch (NoSuchMethodException ex) {
+                throw new RuntimeException("Cannot create stub of " + clazz.getName(), ex);
+            }
+        }
+    }
+
+    /**
+     * Invocation handler of a single stub. It shares the answer table of the {@link StubType} until a fixed value is
+     * set.
+     */
+    private static final class StubInvocationHandler implements InvocationHandler {
+
+        private final StubType stubType;
+        private final String name;
+        private volatile StubAnswer[] answers;
+
+        private StubInvocationHandler(StubType stubType, String name) {
+            this.stubType = stubType;
+            this.name = name;
+            this.answers = stubType.defaultAnswers;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            Integer index = stubType.methodIndexes.get(method);
+            return index == null ? defaultValue(method.getReturnType()) : answers[index].answer(proxy, args);
+        }
+
+        private synchronized void stubReturn(String methodName, Object value) {
+            StubAnswer[] newAnswers = answers.clone();
+            boolean found = false;
+            for (Map.Entry<Method, Integer> entry : stubType.methodIndexes.entrySet()) {
+                Method method = entry.getKey();
+                if (method.getName().equals(methodName) && method.getDeclaringClass() != Object.class) {
+                    assertReturnType(method, value);
+                    newAnswers[entry.getValue()] = new ReturnAnswer(value);
+                    found = true;
+                }
+            }
+            if (!found) {
+                throw new IllegalArgumentException("No method " + methodName + " in " + stubType.clazz.getName());
+            }
+            answers = newAnswers;
+        }
+
+        private void assertReturnType(Method method, Object value) {
+            Class<?> returnType = method.getReturnType();
+            if (returnType == void.class
+                    || (value == null && returnType.isPrimitive())
+                    || (value != null && !wrap(returnType).isInstance(value))) {
+                throw new IllegalArgumentException("Incompatible return value for " + method + ": " + value);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return isEmpty(name) ? "Stub for " + stubType.clazz : name;
+        }
+    }
+
+    private interface StubAnswer {
+
+        Object answer(Object proxy, Object[] args);
+    }
+
+    private static final class ReturnAnswer implements StubAnswer {
+
+        private final Object value;
+
+        private ReturnAnswer(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object answer(Object proxy, Object[] args) {
+            return value;
+        }
+    }
+
+    private static final class EqualsAnswer implements StubAnswer {
+
+        private static final StubAnswer INSTANCE = new EqualsAnswer();
+
+        @Override
+        public Object answer(Object proxy, Object[] args) {
+            return proxy == args[0];
+        }
+    }
+
+    private static final class HashCodeAnswer implements StubAnswer {
+
+        private static final StubAnswer INSTANCE = new HashCodeAnswer();
+
+        @Override
+        public Object answer(Object proxy, Object[] args) {
+            return System.identityHashCode(proxy);
+        }
+    }
+
+    private static final class ToStringAnswer implements StubAnswer {
+
+        private static final StubAnswer INSTANCE = new ToStringAnswer();
+
+        @Override
+        public Object answer(Object proxy, Object[] args) {
+            return Proxy.getInvocationHandler(proxy).toString();
+        }
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive() || type == void.class) {
+            return null;
+        } else if (type == boolean.class) {
+            return Boolean.FALSE;
+        } else if (type == char.class) {
+            return Character.valueOf((char) 0);
+        } else if (type == byte.class) {
+            return Byte.valueOf((byte) 0);
+        } else if (type == short.class) {
+            return Short.valueOf((short) 0);
+        } else if (type == int.class) {
+            return Integer.valueOf(0);
+        } else if (type == long.class) {
+            return Long.valueOf(0L);
+        } else if (type == float.class) {
+            return Float.valueOf(0F);
+        } else {
+            return Double.valueOf(0D);
+        }
+    }
+
+    private static Class<?> wrap(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        }
+        return defaultValue(type).getClass();
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.management;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.easymock.MockType;
+
+import org.easymock.annotation.internal.CacheType;
+import org.easymock.annotation.internal.InitializationListener;
+import org.easymock.annotation.internal.InitializationListeners;
+import org.easymock.annotation.internal.LatencyHistogram;
+import org.easymock.annotation.internal.StripedCounter;
+
+/**
+ * Cumulative initialization statistics of {@link org.easymock.annotation.EasyMockAnnotations EasyMockAnnotations}
+ * exposed as an MBean. The statistics are collected for the lifetime of the JVM, so they cover every test run of
+ * long-living JVMs like build daemons and IDEs.
+ * <p>
+ * The MBean is registered by {@link #register()} or by setting the {@value #ENABLED_PROPERTY} system property to
+ * {@code true}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public final class EasyMockAnnotationsStats implements EasyMockAnnotationsStatsMXBean {
+
+    /**
+     * System property which registers the MBean when it is {@code true}.
+     */
+    public static final String ENABLED_PROPERTY = "easymock.annotations.jmx";
+    /**
+     * Name of the registered MBean.
+     */
+    public static final String OBJECT_NAME = "org.easymock.annotation:type=EasyMockAnnotationsStats";
+
+    private static EasyMockAnnotationsStats registered;
+
+    private final StripedCounter initializations = new StripedCounter();
+    private final StripedCounter controlsCreated = new StripedCounter();
+    private final StripedCounter mocksCreated = new StripedCounter();
+    private final StripedCounter testedClassesInstantiated = new StripedCounter();
+    private final StripedCounter initializationTime = new StripedCounter();
+    private final LatencyHistogram initializationTimes = new LatencyHistogram();
+    private final Map<MockType, StripedCounter> mocksByType = createCountersByType();
+    private final ConcurrentMap<String, StripedCounter> mocksByFactory = new ConcurrentHashMap<String, StripedCounter>();
+
+    /**
+     * Registers the MBean in the platform MBean server and starts collecting statistics. Calling it again returns the
+     * already registered instance.
+     * <p>
+     * @return the registered statistics
+     * @throws RuntimeException if the MBean cannot be registered
+     */
+    public static synchronized EasyMockAnnotationsStats register() {
+        if (registered == null) {
+            EasyMockAnnotationsStats stats = new EasyMockAnnotationsStats();
+            registerMBean(stats);
+            InitializationListeners.getSingleton().add(new StatsListener(stats));
+            registered = stats;
+        }
+        return registered;
+    }
+
+    /**
+     * Registers the MBean if the {@value #ENABLED_PROPERTY} system property is {@code true}.
+     */
+    public static void registerIfEnabled() {
+        if (Boolean.getBoolean(ENABLED_PROPERTY)) {
+            register();
+        }
+    }
+
+    @Override
+    public long getInitializations() {
+        return initializations.sum();
+    }
+
+    @Override
+    public long getControlsCreated() {
+        return controlsCreated.sum();
+    }
+
+    @Override
+    public long getMocksCreated() {
+        return mocksCreated.sum();
+    }
+
+    @Override
+    public Map<String, Long> getMocksCreatedByType() {
+        Map<String, Long> result = new TreeMap<String, Long>();
+        for (Map.Entry<MockType, StripedCounter> entry : mocksByType.entrySet()) {
+            result.put(entry.getKey().name(), entry.getValue().sum());
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getMocksCreatedByFactory() {
+        Map<String, Long> result = new TreeMap<String, Long>();
+        for (Map.Entry<String, StripedCounter> entry : mocksByFactory.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().sum());
+        }
+        return result;
+    }
+
+    @Override
+    public long getTestedClassesInstantiated() {
+        return testedClassesInstantiated.sum();
+    }
+
+    @Override
+    public long getTotalInitializationTimeNanos() {
+        return initializationTime.sum();
+    }
+
+    @Override
+    public Map<String, Long> getInitializationTimePercentilesNanos() {
+        Map<String, Long> result = new LinkedHashMap<String, Long>();
+        result.put("p50", initializationTimes.getPercentile(50D));
+        result.put("p90", initializationTimes.getPercentile(90D));
+        result.put("p99", initializationTimes.getPercentile(99D));
+        result.put("max", initializationTimes.getPercentile(100D));
+        return result;
+    }
+
+    @Override
+    public long getInitializationTimePercentileNanos(double percentile) {
+        return initializationTimes.getPercentile(percentile);
+    }
+
+    @Override
+    public void reset() {
+        initializations.reset();
+        controlsCreated.reset();
+        mocksCreated.reset();
+        testedClassesInstantiated.reset();
+        initializationTime.reset();
+        initializationTimes.reset();
+        for (StripedCounter counter : mocksByType.values()) {
+            counter.reset();
+        }
+        for (StripedCounter counter : mocksByFactory.values()) {
+            counter.reset();
+        }
+    }
+
+    private StripedCounter getFactoryCounter(String factory) {
+        StripedCounter counter = mocksByFactory.get(factory);
+        if (counter == null) {
+            mocksByFactory.putIfAbsent(factory, new StripedCounter());
+            counter = mocksByFactory.get(factory);
+        }
+        return counter;
+    }
+
+    private static Map<MockType, StripedCounter> createCountersByType() {
+        Map<MockType, StripedCounter> counters = new EnumMap<MockType, StripedCounter>(MockType.class);
+        for (MockType type : MockType.values()) {
+            counters.put(type, new StripedCounter());
+        }
+        return counters;
+    }
+
+    private static void registerMBean(EasyMockAnnotationsStats stats) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(stats, name);
+        } catch (JMException ex) {
+            throw new RuntimeException("Cannot register MBean " + OBJECT_NAME, ex);
+        }
+    }
+
+    EasyMockAnnotationsStats() {
+    }
+
+    /**
+     * Forwards the initialization events to the statistics.
+     */
+    private static final class StatsListener implements InitializationListener {
+
+        private final EasyMockAnnotationsStats stats;
+
+        private StatsListener(EasyMockAnnotationsStats stats) {
+            this.stats = stats;
+        }
+
+        @Override
+        public void initializationFinished(Class<?> testClass, long nanos) {
+            stats.initializations.increment();
+            stats.initializationTime.add(nanos);
+            stats.initializationTimes.record(nanos);
+        }
+
+        @Override
+        public void controlCreated(Class<?> testClass, MockType type) {
+            stats.controlsCreated.increment();
+        }
+
+        @Override
+        public void mockCreated(Class<?> testClass, Field field, MockType type, Class<?> factory) {
+            stats.mocksCreated.increment();
+            if (type != null) {
+                stats.mocksByType.get(type).increment();
+            }
+            stats.getFactoryCounter(factory.getSimpleName()).increment();
+        }
+
+        @Override
+        public void testedClassInstantiated(Class<?> testClass, Field field) {
+            stats.testedClassesInstantiated.increment();
+        }
+
+        @Override
+        public void cacheAccessed(Class<?> testClass, CacheType cache, boolean hit) {
+        }
+
+        @Override
+        public void mockInvoked(Class<?> testClass, Field field, Method method, long nanos) {
+        }
+    }
+}
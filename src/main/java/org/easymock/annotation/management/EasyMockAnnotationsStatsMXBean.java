@@ -0,0 +1,79 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.management;
+
+import java.util.Map;
+
+/**
+ * Management interface of the cumulative initialization statistics of {@code EasyMockAnnotations}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public interface EasyMockAnnotationsStatsMXBean {
+
+    /**
+     * @return number of initialized test classes
+     */
+    long getInitializations();
+
+    /**
+     * @return number of created {@code IMocksControl}s
+     */
+    long getControlsCreated();
+
+    /**
+     * @return number of created mocks and stubs
+     */
+    long getMocksCreated();
+
+    /**
+     * @return number of created mocks by {@code MockType}
+     */
+    Map<String, Long> getMocksCreatedByType();
+
+    /**
+     * @return number of created mocks and stubs by the simple name of the factory which created them
+     */
+    Map<String, Long> getMocksCreatedByFactory();
+
+    /**
+     * @return number of {@code @Injected} objects instantiated by the framework
+     */
+    long getTestedClassesInstantiated();
+
+    /**
+     * @return total time spent in initialization in nanoseconds
+     */
+    long getTotalInitializationTimeNanos();
+
+    /**
+     * @return median, 90th, 99th percentile and maximum of the initialization time in nanoseconds
+     */
+    Map<String, Long> getInitializationTimePercentilesNanos();
+
+    /**
+     * Returns the initialization time at the given percentile.
+     * <p>
+     * @param percentile percentile between 0 and 100
+     * @return the initialization time in nanoseconds
+     */
+    long getInitializationTimePercentileNanos(double percentile);
+
+    /**
+     * Sets every counter to zero.
+     */
+    void reset();
+}
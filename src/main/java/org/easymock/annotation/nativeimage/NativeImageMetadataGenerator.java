@@ -0,0 +1,276 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.nativeimage;
+
+import static org.mockannotations.utils.MockAnnotationValidationUtils.notNull;
+
+import static org.easymock.annotation.internal.ReportFiles.jsonString;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.easymock.internal.MocksControl;
+
+import org.easymock.annotation.internal.ControlDefinition;
+import org.easymock.annotation.internal.InitializationPlan;
+import org.easymock.annotation.internal.MockDefinition;
+import org.easymock.annotation.internal.ReportFiles;
+
+/**
+ * Generates the GraalVM native-image reachability metadata of annotated test classes. The {@value #REFLECT_CONFIG}
+ * contains the annotated fields, the {@link org.easymock.annotation.ExpectationTemplate @ExpectationTemplate} and
+ * constructor arguments provider methods of the test classes, the constructors, fields and setters of the
+ * {@link org.easymock.annotation.Injected @Injected} objects and the mocked types. The {@value #PROXY_CONFIG} contains
+ * the interfaces which are mocked or stubbed by {@link java.lang.reflect.Proxy}.
+ * <p>
+ * Class mocks are created by runtime bytecode generation, which is not supported by native-image, only their
+ * reflective access is registered.
+ * <p>
+ * The generator can be run as a build step, the arguments are the output directory and the names of the test
+ * classes. The files are written into {@value #DIRECTORY} of the output directory.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class NativeImageMetadataGenerator {
+
+    /**
+     * Directory of the metadata relative to the output directory.
+     */
+    public static final String DIRECTORY = "META-INF/native-image";
+    /**
+     * Name of the reflection metadata.
+     */
+    public static final String REFLECT_CONFIG = "reflect-config.json";
+    /**
+     * Name of the dynamic proxy metadata.
+     */
+    public static final String PROXY_CONFIG = "proxy-config.json";
+
+    private final Map<String, ReflectEntry> reflectEntries = new TreeMap<String, ReflectEntry>();
+    private final Set<String> proxyInterfaces = new TreeSet<String>();
+
+    public static void main(String[] args) throws ClassNotFoundException {
+        if (args.length < 2) {
+            throw new IllegalArgumentException(
+                    "Usage: NativeImageMetadataGenerator <output directory> <test class>...");
+        }
+        NativeImageMetadataGenerator generator = new NativeImageMetadataGenerator();
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        for (int i = 1; i < args.length; i++) {
+            generator.add(Class.forName(args[i], false, classLoader));
+        }
+        generator.writeTo(new File(args[0]));
+    }
+
+    /**
+     * Adds the metadata of the given test class.
+     * <p>
+     * @param testClass type of the test class
+     * @return this generator
+     * @throws RuntimeException if the annotations of the test class are used incorrectly
+     */
+    public NativeImageMetadataGenerator add(Class<?> testClass) {
+        InitializationPlan plan = InitializationPlan.create(testClass);
+        for (ControlDefinition control : plan.getControls()) {
+            addField(control.getField());
+        }
+        if (!plan.getControls().isEmpty() || !plan.getMocks().isEmpty()) {
+            addMocksControlInternals();
+        }
+        for (MockDefinition mock : plan.getMocks()) {
+            addField(mock.getField());
+            addMockedType(mock.getField().getType());
+            if (notNull(mock.getBuilder()) && notNull(mock.getBuilder().getArgsProvider())) {
+                addMethod(mock.getBuilder().getArgsProvider());
+            }
+        }
+        for (Field testedClass : plan.getTestedClasses()) {
+            addField(testedClass);
+            addTestedType(testedClass.getType());
+        }
+        for (Method template : plan.getExpectationTemplates()) {
+            addMethod(template);
+        }
+        return this;
+    }
+
+    /**
+     * Returns the content of {@value #REFLECT_CONFIG}.
+     * <p>
+     * @return the reflection metadata as JSON
+     */
+    public String createReflectConfig() {
+        StringBuilder json = new StringBuilder("[");
+        String separator = "\n";
+        for (ReflectEntry entry : reflectEntries.values()) {
+            json.append(separator);
+            entry.appendTo(json);
+            separator = ",\n";
+        }
+        return json.append("\n]\n").toString();
+    }
+
+    /**
+     * Returns the content of {@value #PROXY_CONFIG}.
+     * <p>
+     * @return the dynamic proxy metadata as JSON
+     */
+    public String createProxyConfig() {
+        StringBuilder json = new StringBuilder("[");
+        String separator = "\n";
+        for (String proxyInterface : proxyInterfaces) {
+            json.append(separator).append("  {\"interfaces\": [").append(jsonString(proxyInterface)).append("]}");
+            separator = ",\n";
+        }
+        return json.append("\n]\n").toString();
+    }
+
+    /**
+     * Writes {@value #REFLECT_CONFIG} and {@value #PROXY_CONFIG} into {@value #DIRECTORY} of the given directory.
+     * <p>
+     * @param outputDirectory the output directory, e.g. the test classes directory
+     * @throws RuntimeException if the files cannot be written
+     */
+    public void writeTo(File outputDirectory) {
+        File directory = new File(outputDirectory, DIRECTORY);
+        ReportFiles.write(directory, REFLECT_CONFIG, createReflectConfig());
+        ReportFiles.write(directory, PROXY_CONFIG, createProxyConfig());
+    }
+
+    private void addField(Field field) {
+        getEntry(field.getDeclaringClass()).fields.add(field.getName());
+    }
+
+    private void addMethod(Method method) {
+        getEntry(method.getDeclaringClass()).addMethod(method);
+    }
+
+    private void addMockedType(Class<?> type) {
+        ReflectEntry entry = getEntry(type);
+        entry.allPublicMethods = true;
+        if (type.isInterface()) {
+            proxyInterfaces.add(type.getName());
+        } else {
+            entry.allDeclaredConstructors = true;
+            entry.allDeclaredMethods = true;
+        }
+    }
+
+    private void addTestedType(Class<?> type) {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            ReflectEntry entry = getEntry(current);
+            entry.allDeclaredConstructors = true;
+            entry.allDeclaredFields = true;
+            for (Method method : current.getDeclaredMethods()) {
+                if (isSetter(method)) {
+                    entry.addMethod(method);
+                }
+            }
+        }
+    }
+
+    private void addMocksControlInternals() {
+        ReflectEntry entry = getEntry(MocksControl.class);
+        entry.fields.add("state");
+        entry.fields.add("behavior");
+    }
+
+    private static boolean isSetter(Method method) {
+        return method.getName().startsWith("set") && method.getParameterTypes().length == 1
+                && !Modifier.isStatic(method.getModifiers()) && !method.isBridge();
+    }
+
+    private ReflectEntry getEntry(Class<?> type) {
+        ReflectEntry entry = reflectEntries.get(type.getName());
+        if (entry == null) {
+            entry = new ReflectEntry(type.getName());
+            reflectEntries.put(type.getName(), entry);
+        }
+        return entry;
+    }
+
+    private static String typeName(Class<?> type) {
+        return type.isArray() ? typeName(type.getComponentType()) + "[]" : type.getName();
+    }
+
+    /**
+     * Reflection metadata of a single type.
+     */
+    private static final class ReflectEntry {
+
+        private final String name;
+        private final Set<String> fields = new TreeSet<String>();
+        private final Map<String, String> methods = new TreeMap<String, String>();
+        private boolean allDeclaredConstructors;
+        private boolean allDeclaredFields;
+        private boolean allDeclaredMethods;
+        private boolean allPublicMethods;
+
+        private ReflectEntry(String name) {
+            this.name = name;
+        }
+
+        private void addMethod(Method method) {
+            StringBuilder parameterTypes = new StringBuilder();
+            for (Class<?> parameterType : method.getParameterTypes()) {
+                parameterTypes.append(parameterTypes.length() == 0 ? "" : ", ")
+                        .append(jsonString(typeName(parameterType)));
+            }
+            methods.put(method.getName() + '(' + parameterTypes + ')', "{\"name\": " + jsonString(method.getName())
+                    + ", \"parameterTypes\": [" + parameterTypes + "]}");
+        }
+
+        private void appendTo(StringBuilder json) {
+            json.append("  {\n    \"name\": ").append(jsonString(name));
+            appendFlag(json, "allDeclaredConstructors", allDeclaredConstructors);
+            appendFlag(json, "allDeclaredFields", allDeclaredFields);
+            appendFlag(json, "allDeclaredMethods", allDeclaredMethods);
+            appendFlag(json, "allPublicMethods", allPublicMethods);
+            if (!fields.isEmpty()) {
+                json.append(",\n    \"fields\": [");
+                String separator = "";
+                for (String field : fields) {
+                    json.append(separator).append("{\"name\": ").append(jsonString(field))
+                            .append(", \"allowWrite\": true}");
+                    separator = ", ";
+                }
+                json.append(']');
+            }
+            if (!methods.isEmpty()) {
+                json.append(",\n    \"methods\": [");
+                String separator = "";
+                for (String method : methods.values()) {
+                    json.append(separator).append(method);
+                    separator = ", ";
+                }
+                json.append(']');
+            }
+            json.append("\n  }");
+        }
+
+        private static void appendFlag(StringBuilder json, String flag, boolean value) {
+            if (value) {
+                json.append(",\n    ").append(jsonString(flag)).append(": true");
+            }
+        }
+    }
+}
@@ -13,12 +13,16 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-package org.easymock.annotation.internal;
+package org.easymock.annotation.spi;
 
 import org.easymock.MockType;
 
 /**
- * Interface which provides an API for creating mocks.
+ * Interface which provides an API for creating mocks. Implementations can be plugged in by a
+ * {@link MockFactoryProvider}.
+ * <p>
+ * Partial mocks and mocks created by a constructor are not created by the plugged in factories, they are created by
+ * the {@link org.easymock.EasyMockSupport EasyMockSupport} test class or by EasyMock.
  *
  * @author Balazs Berkes
  */
@@ -0,0 +1,38 @@
+/* 
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.spi;
+
+/**
+ * Provides the {@link MockFactory} of the mocks which are not associated with a
+ * {@link org.easymock.annotation.MockControl @MockControl}. Providers are discovered by {@link java.util.ServiceLoader}
+ * once per JVM, implementations are listed in {@code META-INF/services/org.easymock.annotation.spi.MockFactoryProvider}.
+ * <p>
+ * The factory is resolved once per test class and shared by every initialization of the test class, so it has to be
+ * thread safe. The first provider which returns a factory wins, if no provider returns a factory the mocks are created
+ * by EasyMock or by the {@link org.easymock.EasyMockSupport EasyMockSupport} test class.
+ * <p>
+ * @author Balazs Berkes
+ */
+public interface MockFactoryProvider {
+
+    /**
+     * Returns the factory of the given test class.
+     * <p>
+     * @param testClass type of the test class
+     * @return the factory which creates the mocks of the test class, {@code null} to use the default factory
+     */
+    MockFactory getMockFactory(Class<?> testClass);
+}
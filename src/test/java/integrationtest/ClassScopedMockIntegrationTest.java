@@ -0,0 +1,137 @@
+/* 
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package integrationtest;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+
+import integrationtest.support.FacadeWithNonRelatedComponents;
+import integrationtest.support.IndependentObject;
+import integrationtest.support.ThirdLevelClassA;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+import org.easymock.annotation.EasyMockAnnotations;
+import org.easymock.annotation.Injected;
+import org.easymock.annotation.Mock;
+import org.easymock.annotation.MockScope;
+import org.easymock.annotation.ReleaseClassScopedMocksRule;
+
+/**
+ * Integration test for fields annotated with {@code @Mock(scope = MockScope.CLASS)}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class ClassScopedMockIntegrationTest {
+
+    @Mock(scope = MockScope.CLASS)
+    private ThirdLevelClassA component1;
+    @Mock
+    private IndependentObject component2;
+    @Injected
+    private FacadeWithNonRelatedComponents underTest;
+
+    @Before
+    public void setUp() {
+        EasyMockAnnotations.initialize(this);
+    }
+
+    @Test
+    public void testInitializeShouldInjectClassScopedMock() {
+        assertNotNull(component1);
+        assertSame(component1, underTest.getThirdLevelClassA());
+    }
+
+    @Test
+    public void testInitializeShouldReuseClassScopedMockForNewTestInstance() {
+        ClassScopedMockIntegrationTest other = initializeNewInstance();
+
+        assertSame(component1, other.component1);
+        assertSame(component1, other.underTest.getThirdLevelClassA());
+        assertNotSame(component2, other.component2);
+    }
+
+    @Test
+    public void testInitializeShouldResetClassScopedMock() {
+        expect(component1.getFirstField()).andReturn(null);
+
+        ClassScopedMockIntegrationTest other = initializeNewInstance();
+
+        replay(other.component1);
+        verify(other.component1);
+    }
+
+    @Test
+    public void testInitializeShouldCreateClassScopedMockPerThread() throws InterruptedException {
+        final ClassScopedMockIntegrationTest other = new ClassScopedMockIntegrationTest();
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                EasyMockAnnotations.initialize(other);
+            }
+        };
+        thread.start();
+        thread.join();
+
+        assertNotNull(other.component1);
+        assertNotSame(component1, other.component1);
+    }
+
+    @Test
+    public void testInitializeShouldCreateNewClassScopedMockWhenReleased() {
+        EasyMockAnnotations.releaseClassScopedMocks(ClassScopedMockIntegrationTest.class);
+
+        ClassScopedMockIntegrationTest other = initializeNewInstance();
+
+        assertNotSame(component1, other.component1);
+        assertSame(other.component1, initializeNewInstance().component1);
+    }
+
+    @Test
+    public void testReleaseClassScopedMocksRuleShouldReleaseAfterTheTests() throws Throwable {
+        new ReleaseClassScopedMocksRule().apply(new Statement() {
+            @Override
+            public void evaluate() {
+            }
+        }, Description.createSuiteDescription(ClassScopedMockIntegrationTest.class)).evaluate();
+
+        assertNotSame(component1, initializeNewInstance().component1);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testInitializeShouldThrowExceptionWhenClassScopedMockHasControl() {
+        EasyMockAnnotations.initialize(new ClassScopedMockWithControl());
+    }
+
+    private ClassScopedMockIntegrationTest initializeNewInstance() {
+        ClassScopedMockIntegrationTest other = new ClassScopedMockIntegrationTest();
+        EasyMockAnnotations.initialize(other);
+        return other;
+    }
+
+    private static class ClassScopedMockWithControl {
+
+        @Mock(scope = MockScope.CLASS, control = "control")
+        private IndependentObject component;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package integrationtest;
+
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import integrationtest.support.InMemoryRepository;
+import org.junit.Test;
+
+import org.easymock.MockType;
+
+import org.easymock.annotation.EasyMockAnnotations;
+import org.easymock.annotation.Mock;
+
+/**
+ * Integration test for class mocks created with constructor arguments by {@link Mock#constructorArgs()}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class ConstructorArgsIntegrationTest {
+
+    @Test
+    public void testInitializeShouldCallConstructorWithProvidedArguments() {
+        ConstructedFixture fixture = new ConstructedFixture();
+        EasyMockAnnotations.initialize(fixture);
+        expect(fixture.repository.find("c")).andReturn("mocked");
+        replay(fixture.repository);
+
+        assertEquals(2, fixture.repository.count());
+        assertFalse(fixture.repository.isEmpty());
+        assertEquals("mocked", fixture.repository.find("c"));
+        verify(fixture.repository);
+    }
+
+    @Test
+    public void testInitializeShouldCallProviderForEveryInitialization() {
+        ConstructedFixture first = new ConstructedFixture();
+        ConstructedFixture second = new ConstructedFixture();
+        second.values = new String[]{"x"};
+
+        EasyMockAnnotations.initialize(first);
+        EasyMockAnnotations.initialize(second);
+
+        assertEquals(2, first.repository.count());
+        assertEquals(1, second.repository.count());
+    }
+
+    @Test
+    public void testInitializeShouldChooseConstructorByArgumentTypes() {
+        DefaultConstructedFixture fixture = new DefaultConstructedFixture();
+        EasyMockAnnotations.initialize(fixture);
+        replay(fixture.repository);
+
+        assertTrue(fixture.repository.isEmpty());
+        assertNull(fixture.repository.find("a"));
+    }
+
+    @Test
+    public void testInitializeShouldFailWhenProviderDoesNotExist() {
+        try {
+            EasyMockAnnotations.initialize(new MissingProviderFixture());
+            fail("RuntimeException expected!");
+        } catch (RuntimeException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().startsWith("No constructor arguments provider missing()"));
+        }
+    }
+
+    @Test
+    public void testInitializeShouldFailWhenNoConstructorMatches() {
+        try {
+            EasyMockAnnotations.initialize(new WrongArgumentsFixture());
+            fail("RuntimeException expected!");
+        } catch (RuntimeException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().startsWith("No constructor of"));
+        }
+    }
+
+    public static class ConstructedFixture {
+
+        private String[] values = {"a", "b"};
+        @Mock(constructorArgs = "repositoryArgs", mockedMethods = "find")
+        private InMemoryRepository repository;
+
+        private Object[] repositoryArgs() {
+            return new Object[]{Arrays.asList(values)};
+        }
+    }
+
+    public static class DefaultConstructedFixture {
+
+        @Mock(value = MockType.NICE, constructorArgs = "noArgs", mockedMethods = "find")
+        private InMemoryRepository repository;
+
+        public Object[] noArgs() {
+            return new Object[0];
+        }
+    }
+
+    public static class MissingProviderFixture {
+
+        @Mock(constructorArgs = "missing")
+        private InMemoryRepository repository;
+    }
+
+    public static class WrongArgumentsFixture {
+
+        @Mock(constructorArgs = "wrongArgs")
+        private InMemoryRepository repository;
+
+        public Object[] wrongArgs() {
+            return new Object[]{42};
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/* 
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package integrationtest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import javax.management.ObjectName;
+
+import integrationtest.support.FacadeWithNonRelatedComponents;
+import integrationtest.support.IndependentObject;
+import integrationtest.support.ThirdLevelClassA;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.easymock.IMocksControl;
+import org.easymock.MockType;
+
+import org.easymock.annotation.EasyMockAnnotations;
+import org.easymock.annotation.Injected;
+import org.easymock.annotation.Mock;
+import org.easymock.annotation.MockControl;
+import org.easymock.annotation.Stub;
+import org.easymock.annotation.management.EasyMockAnnotationsStats;
+
+/**
+ * Integration test for {@link EasyMockAnnotationsStats}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class EasyMockAnnotationsStatsIntegrationTest {
+
+    private EasyMockAnnotationsStats stats;
+
+    @Before
+    public void setUp() {
+        stats = EasyMockAnnotationsStats.register();
+        stats.reset();
+    }
+
+    @Test
+    public void testRegisterShouldRegisterMBean() throws Exception {
+        ObjectName name = new ObjectName(EasyMockAnnotationsStats.OBJECT_NAME);
+
+        assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+
+    @Test
+    public void testInitializeShouldBeCounted() {
+        EasyMockAnnotations.initialize(new Fixture());
+        EasyMockAnnotations.initialize(new Fixture());
+
+        assertEquals(2, stats.getInitializations());
+        assertEquals(2, stats.getControlsCreated());
+        assertEquals(6, stats.getMocksCreated());
+        assertEquals(2, stats.getTestedClassesInstantiated());
+        assertTrue(stats.getTotalInitializationTimeNanos() > 0);
+        assertTrue(stats.getInitializationTimePercentileNanos(100D) > 0);
+    }
+
+    @Test
+    public void testInitializeShouldCountMocksByTypeAndFactory() {
+        EasyMockAnnotations.initialize(new Fixture());
+
+        Map<String, Long> byType = stats.getMocksCreatedByType();
+        Map<String, Long> byFactory = stats.getMocksCreatedByFactory();
+        assertEquals(Long.valueOf(2), byType.get(MockType.DEFAULT.name()));
+        assertEquals(Long.valueOf(2), byFactory.get("ControlledMockFactory"));
+        assertEquals(Long.valueOf(1), byFactory.get("StubFactory"));
+    }
+
+    @Test
+    public void testInitializeShouldCountControlledMocksByTypeOfControl() {
+        EasyMockAnnotations.initialize(new StrictFixture());
+
+        Map<String, Long> byType = stats.getMocksCreatedByType();
+        assertEquals(Long.valueOf(2), byType.get(MockType.STRICT.name()));
+        assertEquals(Long.valueOf(0), byType.get(MockType.DEFAULT.name()));
+        assertEquals(Long.valueOf(0), byType.get(MockType.NICE.name()));
+    }
+
+    private static class Fixture {
+
+        @MockControl
+        private IMocksControl control;
+        @Mock
+        private ThirdLevelClassA component1;
+        @Mock(MockType.NICE)
+        private IndependentObject component2;
+        @Stub
+        private Runnable runnable;
+        @Injected
+        private FacadeWithNonRelatedComponents underTest;
+    }
+
+    private static class StrictFixture {
+
+        @MockControl(MockType.STRICT)
+        private IMocksControl control;
+        @Mock(control = "control")
+        private ThirdLevelClassA component1;
+        @Mock(value = MockType.NICE, control = "control")
+        private IndependentObject component2;
+    }
+}
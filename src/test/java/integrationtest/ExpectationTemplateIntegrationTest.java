@@ -0,0 +1,237 @@
+/* 
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package integrationtest;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.expect;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import integrationtest.support.Repository;
+import org.junit.Test;
+
+import org.easymock.IAnswer;
+import org.easymock.IMocksControl;
+
+import org.easymock.annotation.EasyMockAnnotations;
+import org.easymock.annotation.ExpectationTemplate;
+import org.easymock.annotation.Mock;
+import org.easymock.annotation.MockControl;
+
+/**
+ * Integration test for {@link ExpectationTemplate @ExpectationTemplate}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class ExpectationTemplateIntegrationTest {
+
+    @Test
+    public void testInitializeShouldApplyRecordedExpectationsWithoutRunningTemplate() throws Exception {
+        ControlledFixture first = new ControlledFixture();
+        ControlledFixture second = new ControlledFixture();
+
+        EasyMockAnnotations.initialize(first);
+        EasyMockAnnotations.initialize(second);
+
+        assertEquals(1, ControlledFixture.runs);
+        assertExpectations(first);
+        assertExpectations(second);
+    }
+
+    @Test
+    public void testInitializeShouldApplyExpectationsWhichFailWhenNotMet() {
+        ControlledFixture first = new ControlledFixture();
+        ControlledFixture second = new ControlledFixture();
+        EasyMockAnnotations.initialize(first);
+        EasyMockAnnotations.initialize(second);
+        second.control.replay();
+
+        try {
+            second.control.verify();
+            fail("AssertionError expected!");
+        } catch (AssertionError expected) {
+        }
+    }
+
+    @Test
+    public void testInitializeShouldApplyExpectationsOfMocksWithoutControl() {
+        UncontrolledFixture first = new UncontrolledFixture();
+        UncontrolledFixture second = new UncontrolledFixture();
+
+        EasyMockAnnotations.initialize(first);
+        EasyMockAnnotations.initialize(second);
+
+        assertEquals(1, UncontrolledFixture.runs);
+        EasyMockAnnotations.replay(second);
+        assertEquals("any", second.repository.find("key"));
+        assertEquals(3, second.repository.count());
+        EasyMockAnnotations.verify(second);
+    }
+
+    @Test
+    public void testInitializeShouldRunTemplateWhenExpectationsCannotBeShared() {
+        AnswerFixture first = new AnswerFixture();
+        AnswerFixture second = new AnswerFixture();
+
+        EasyMockAnnotations.initialize(first);
+        EasyMockAnnotations.initialize(second);
+
+        assertEquals(2, AnswerFixture.runs);
+        EasyMockAnnotations.replay(second);
+        assertEquals(second.toString(), second.repository.find("key"));
+        EasyMockAnnotations.verify(second);
+    }
+
+    @Test
+    public void testInitializeShouldRunTemplateWhenValuesAreMutable() throws Exception {
+        MutableValueFixture first = new MutableValueFixture();
+        MutableValueFixture second = new MutableValueFixture();
+
+        EasyMockAnnotations.initialize(first);
+        EasyMockAnnotations.initialize(second);
+
+        assertEquals(2, MutableValueFixture.runs);
+        EasyMockAnnotations.replay(first);
+        EasyMockAnnotations.replay(second);
+        List<String> firstKeys = first.keys.call();
+        firstKeys.add("c");
+        List<String> secondKeys = second.keys.call();
+        assertNotSame(firstKeys, secondKeys);
+        assertEquals(Arrays.asList("a", "b"), secondKeys);
+    }
+
+    @Test
+    public void testInitializeShouldRunTemplateWhenExpectationsThrow() {
+        ThrowingFixture first = new ThrowingFixture();
+        ThrowingFixture second = new ThrowingFixture();
+
+        EasyMockAnnotations.initialize(first);
+        EasyMockAnnotations.initialize(second);
+
+        assertEquals(2, ThrowingFixture.runs);
+        assertNotSame(first.failure, second.failure);
+        EasyMockAnnotations.replay(second);
+        try {
+            second.repository.find("key");
+            fail("expected exception");
+        } catch (IllegalStateException ex) {
+            assertSame(second.failure, ex);
+        }
+    }
+
+    private void assertExpectations(ControlledFixture fixture) throws Exception {
+        fixture.control.replay();
+        assertEquals("value", fixture.repository.find("key"));
+        assertEquals(1, fixture.repository.count());
+        assertEquals(1, fixture.repository.count());
+        assertSame(fixture.repository, fixture.callable.call());
+        assertEquals(1, fixture.comparable.compareTo(fixture.repository));
+        fixture.control.verify();
+    }
+
+    public static class ControlledFixture {
+
+        private static int runs;
+
+        @MockControl
+        private IMocksControl control;
+        @Mock
+        private Repository repository;
+        @Mock
+        private Callable<Repository> callable;
+        @Mock
+        private Comparable<Repository> comparable;
+
+        @ExpectationTemplate
+        public void expectations() throws Exception {
+            runs++;
+            expect(repository.find("key")).andReturn("value");
+            expect(repository.count()).andReturn(1).times(2);
+            expect(callable.call()).andReturn(repository);
+            expect(comparable.compareTo(repository)).andReturn(1);
+        }
+    }
+
+    public static class UncontrolledFixture {
+
+        private static int runs;
+
+        @Mock
+        private Repository repository;
+
+        @ExpectationTemplate
+        private void expectations() {
+            runs++;
+            expect(repository.find(anyObject(String.class))).andReturn("any");
+            expect(repository.count()).andStubReturn(3);
+        }
+    }
+
+    public static class AnswerFixture {
+
+        private static int runs;
+
+        @Mock
+        private Repository repository;
+
+        @ExpectationTemplate
+        public void expectations() {
+            runs++;
+            expect(repository.find("key")).andAnswer(new IAnswer<String>() {
+                @Override
+                public String answer() {
+                    return AnswerFixture.this.toString();
+                }
+            });
+        }
+    }
+
+    public static class ThrowingFixture {
+
+        private static int runs;
+
+        private final IllegalStateException failure = new IllegalStateException("key");
+        @Mock
+        private Repository repository;
+
+        @ExpectationTemplate
+        public void expectations() {
+            runs++;
+            expect(repository.find("key")).andThrow(failure);
+        }
+    }
+
+    public static class MutableValueFixture {
+
+        private static int runs;
+
+        @Mock
+        private Callable<List<String>> keys;
+
+        @ExpectationTemplate
+        public void expectations() throws Exception {
+            runs++;
+            expect(keys.call()).andReturn(new ArrayList<String>(Arrays.asList("a", "b")));
+        }
+    }
+}
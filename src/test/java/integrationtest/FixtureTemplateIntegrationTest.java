@@ -0,0 +1,126 @@
+/* 
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package integrationtest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import integrationtest.support.FacadeWithNonRelatedComponents;
+import integrationtest.support.IndependentObject;
+import integrationtest.support.Repository;
+import integrationtest.support.ThirdLevelClassA;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.easymock.annotation.EasyMockAnnotations;
+import org.easymock.annotation.FixtureTemplate;
+import org.easymock.annotation.Injected;
+import org.easymock.annotation.Mock;
+
+/**
+ * Integration test for test classes annotated with {@link FixtureTemplate @FixtureTemplate}.
+ * <p>
+ * @author Balazs Berkes
+ */
+@FixtureTemplate
+public class FixtureTemplateIntegrationTest {
+
+    @Mock
+    private ThirdLevelClassA component1;
+    @Mock
+    private IndependentObject component2;
+    @Injected
+    private FacadeWithNonRelatedComponents underTest;
+
+    @Before
+    public void setUp() {
+        EasyMockAnnotations.initialize(this);
+    }
+
+    @Test
+    public void testInitializeShouldInjectMocks() {
+        assertInjected(this);
+    }
+
+    @Test
+    public void testInitializeShouldInjectNewMocksByTemplate() {
+        FixtureTemplateIntegrationTest other = new FixtureTemplateIntegrationTest();
+
+        EasyMockAnnotations.initialize(other);
+
+        assertInjected(other);
+        assertNotSame(underTest, other.underTest);
+        assertNotSame(component1, other.component1);
+    }
+
+    @Test
+    public void testInitializeShouldInjectWhenLayoutChanges() {
+        FixtureTemplateIntegrationTest other = new FixtureTemplateIntegrationTest();
+        FacadeWithNonRelatedComponents preInstantiated = new FacadeWithNonRelatedComponents() {
+        };
+        other.underTest = preInstantiated;
+
+        EasyMockAnnotations.initialize(other);
+
+        assertSame(preInstantiated, other.underTest);
+        assertInjected(other);
+    }
+
+    @Test
+    public void testInitializeShouldInjectByTemplateAfterLayoutChanged() {
+        testInitializeShouldInjectWhenLayoutChanges();
+
+        testInitializeShouldInjectNewMocksByTemplate();
+    }
+
+    @Test
+    public void testInitializeShouldInjectBySetterWhenTestedClassHasSetter() {
+        SetterFixture first = new SetterFixture();
+        SetterFixture second = new SetterFixture();
+
+        EasyMockAnnotations.initialize(first);
+        EasyMockAnnotations.initialize(second);
+
+        assertSame(second.repository, second.underTest.repository);
+        assertEquals(1, second.underTest.registrations);
+    }
+
+    private void assertInjected(FixtureTemplateIntegrationTest test) {
+        assertSame(test.component1, test.underTest.getThirdLevelClassA());
+        assertSame(test.component2, test.underTest.getIndependentObject());
+    }
+
+    @FixtureTemplate
+    public static class SetterFixture {
+
+        @Mock(name = "repository")
+        private Repository repository;
+        @Injected
+        private RegisteringService underTest;
+    }
+
+    public static class RegisteringService {
+
+        private Repository repository;
+        private int registrations;
+
+        public void setRepository(Repository repository) {
+            this.repository = repository;
+            registrations++;
+        }
+    }
+}
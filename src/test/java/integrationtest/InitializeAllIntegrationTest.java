@@ -0,0 +1,168 @@
+/* 
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package integrationtest;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import integrationtest.annotations.MockControlAnnotationNegativeIntegrationTest;
+import integrationtest.support.FacadeWithNonRelatedComponents;
+import integrationtest.support.IndependentObject;
+import integrationtest.support.ThirdLevelClassA;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.easymock.IMocksControl;
+
+import org.easymock.annotation.EasyMockAnnotations;
+import org.easymock.annotation.Injected;
+import org.easymock.annotation.Mock;
+import org.easymock.annotation.MockControl;
+
+/**
+ * Integration test for {@link EasyMockAnnotations#initializeAll(Object...)}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class InitializeAllIntegrationTest {
+
+    private static final int INSTANCES = 50;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void cleanUp() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testInitializeAllShouldInitializeEveryTestClass() {
+        Fixture first = new Fixture();
+        Fixture second = new Fixture();
+
+        EasyMockAnnotations.initializeAll(first, second);
+
+        assertInitialized(Arrays.asList(first, second));
+    }
+
+    @Test
+    public void testInitializeAllShouldInitializeCollection() {
+        List<Fixture> fixtures = createFixtures();
+
+        EasyMockAnnotations.initializeAll(fixtures);
+
+        assertInitialized(fixtures);
+    }
+
+    @Test
+    public void testInitializeAllShouldInitializeInParallel() {
+        List<Fixture> fixtures = createFixtures();
+
+        EasyMockAnnotations.initializeAll(executor, fixtures);
+
+        assertInitialized(fixtures);
+    }
+
+    @Test
+    public void testInitializeAllShouldInitializeMixedTestClasses() {
+        Fixture fixture = new Fixture();
+        EasyMockAnnotationStaticInitializeTest other = new EasyMockAnnotationStaticInitializeTest();
+
+        EasyMockAnnotations.initializeAll(fixture, other, new Fixture());
+
+        assertInitialized(Arrays.asList(fixture));
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testInitializeAllShouldThrowExceptionWhenParallelInitializationFails() {
+        List<Object> testClasses = new ArrayList<Object>(createFixtures());
+        testClasses.add(new MockControlAnnotationNegativeIntegrationTest());
+
+        EasyMockAnnotations.initializeAll(executor, testClasses);
+    }
+
+    @Test(expected = LinkageError.class)
+    public void testInitializeAllShouldThrowErrorWhenParallelInitializationFailsWithError() {
+        List<Object> testClasses = new ArrayList<Object>(createFixtures());
+        testClasses.add(new FixtureWithFailingTestedClass());
+
+        EasyMockAnnotations.initializeAll(executor, testClasses);
+    }
+
+    private List<Fixture> createFixtures() {
+        List<Fixture> fixtures = new ArrayList<Fixture>();
+        for (int i = 0; i < INSTANCES; i++) {
+            fixtures.add(new Fixture());
+        }
+        return fixtures;
+    }
+
+    private void assertInitialized(List<Fixture> fixtures) {
+        Fixture previous = null;
+        for (Fixture fixture : fixtures) {
+            assertNotNull(fixture.control);
+            assertSame(fixture.component1, fixture.underTest.getThirdLevelClassA());
+            assertSame(fixture.component2, fixture.underTest.getIndependentObject());
+            if (previous != null) {
+                assertNotSame(previous.control, fixture.control);
+                assertNotSame(previous.component1, fixture.component1);
+            }
+            previous = fixture;
+        }
+    }
+
+    private static class Fixture {
+
+        @MockControl
+        private IMocksControl control;
+        @Mock
+        private ThirdLevelClassA component1;
+        @Mock
+        private IndependentObject component2;
+        @Injected
+        private FacadeWithNonRelatedComponents underTest;
+    }
+
+    private static class FixtureWithFailingTestedClass {
+
+        @Mock
+        private IndependentObject component;
+        @Injected
+        private FailingTestedClass underTest;
+    }
+
+    private static class FailingTestedClass {
+
+        static {
+            if (true) {
+                throw new IllegalStateException("Tested class cannot be initialized!");
+            }
+        }
+    }
+}
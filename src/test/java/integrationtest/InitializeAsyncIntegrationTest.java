@@ -0,0 +1,88 @@
+/* 
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package integrationtest;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import integrationtest.annotations.MockControlAnnotationNegativeIntegrationTest;
+import integrationtest.support.FacadeWithNonRelatedComponents;
+import integrationtest.support.IndependentObject;
+import integrationtest.support.ThirdLevelClassA;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.easymock.IMocksControl;
+
+import org.easymock.annotation.EasyMockAnnotations;
+import org.easymock.annotation.Injected;
+import org.easymock.annotation.Mock;
+import org.easymock.annotation.MockControl;
+
+/**
+ * Integration test for {@link EasyMockAnnotations#initializeAsync(Object, java.util.concurrent.Executor)}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class InitializeAsyncIntegrationTest {
+
+    @MockControl
+    private IMocksControl control;
+    @Mock
+    private ThirdLevelClassA component1;
+    @Mock
+    private IndependentObject component2;
+    @Injected
+    private FacadeWithNonRelatedComponents underTest;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception {
+        executor = Executors.newSingleThreadExecutor();
+        Future<Void> initialization = EasyMockAnnotations.initializeAsync(this, executor);
+        initialization.get();
+    }
+
+    @After
+    public void cleanUp() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testInitializeAsyncShouldCreateMockAndInjectThem() {
+        assertNotNull(control);
+        assertSame(component1, underTest.getThirdLevelClassA());
+        assertSame(component2, underTest.getIndependentObject());
+    }
+
+    @Test
+    public void testMocksCreatedAsyncShouldBeUsableOnTestThread() {
+        control.replay();
+        control.verify();
+    }
+
+    @Test(expected = ExecutionException.class)
+    public void testInitializeAsyncShouldFailWhenInitializationFails() throws Exception {
+        EasyMockAnnotations.initializeAsync(new MockControlAnnotationNegativeIntegrationTest(), executor).get();
+    }
+}
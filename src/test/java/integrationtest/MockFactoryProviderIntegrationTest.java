@@ -0,0 +1,125 @@
+/* 
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package integrationtest;
+
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import integrationtest.support.InMemoryRepository;
+import integrationtest.support.NiceMockFactoryProvider;
+import integrationtest.support.Repository;
+import org.junit.Test;
+
+import org.easymock.IMocksControl;
+
+import org.easymock.annotation.EasyMockAnnotations;
+import org.easymock.annotation.Mock;
+import org.easymock.annotation.MockControl;
+
+/**
+ * Integration test for {@link org.easymock.annotation.spi.MockFactoryProvider} discovered by
+ * {@link java.util.ServiceLoader}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class MockFactoryProviderIntegrationTest {
+
+    @Test
+    public void testInitializeShouldCreateMocksByProvidedFactory() {
+        ProvidedFixture fixture = new ProvidedFixture();
+        EasyMockAnnotations.initialize(fixture);
+        replay(fixture.repository);
+
+        assertNull(fixture.repository.find("key"));
+        assertEquals(0, fixture.repository.count());
+        verify(fixture.repository);
+    }
+
+    @Test
+    public void testInitializeShouldCreateControlledMocksByControl() {
+        ControlledFixture fixture = new ControlledFixture();
+        EasyMockAnnotations.initialize(fixture);
+        fixture.control.replay();
+
+        try {
+            fixture.repository.count();
+            fail("AssertionError expected!");
+        } catch (AssertionError expected) {
+        }
+    }
+
+    @Test
+    public void testInitializeShouldUseDefaultFactoryWhenProviderDoesNotSupportTestClass() {
+        DefaultFixture fixture = new DefaultFixture();
+        EasyMockAnnotations.initialize(fixture);
+        replay(fixture.repository);
+
+        try {
+            fixture.repository.count();
+            fail("AssertionError expected!");
+        } catch (AssertionError expected) {
+        }
+    }
+
+    @Test
+    public void testInitializeShouldCreatePartialMocksByDefaultFactoryWhenProvidedFactoryCannot() {
+        PartialFixture fixture = new PartialFixture();
+        EasyMockAnnotations.initialize(fixture);
+        replay(fixture.repository);
+
+        assertEquals(2, fixture.repository.count());
+        try {
+            fixture.repository.find("a");
+            fail("AssertionError expected!");
+        } catch (AssertionError expected) {
+        }
+    }
+
+    public static class ProvidedFixture implements NiceMockFactoryProvider.NiceMocks {
+
+        @Mock
+        private Repository repository;
+    }
+
+    public static class ControlledFixture implements NiceMockFactoryProvider.NiceMocks {
+
+        @MockControl
+        private IMocksControl control;
+        @Mock
+        private Repository repository;
+    }
+
+    public static class DefaultFixture {
+
+        @Mock
+        private Repository repository;
+    }
+
+    public static class PartialFixture implements NiceMockFactoryProvider.NiceMocks {
+
+        @Mock(constructorArgs = "repositoryArgs", mockedMethods = "find")
+        private InMemoryRepository repository;
+
+        private Object[] repositoryArgs() {
+            return new Object[]{Arrays.asList("a", "b")};
+        }
+    }
+}
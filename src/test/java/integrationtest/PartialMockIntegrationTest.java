@@ -0,0 +1,136 @@
+/* 
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package integrationtest;
+
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import integrationtest.support.InMemoryRepository;
+import integrationtest.support.Repository;
+import org.junit.Test;
+
+import org.easymock.IMocksControl;
+
+import org.easymock.annotation.EasyMockAnnotations;
+import org.easymock.annotation.Mock;
+import org.easymock.annotation.MockControl;
+import org.easymock.annotation.MockScope;
+
+/**
+ * Integration test for partial mocks created by {@link Mock#mockedMethods()}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class PartialMockIntegrationTest {
+
+    @Test
+    public void testInitializeShouldMockOnlyGivenMethods() {
+        PartialFixture fixture = new PartialFixture();
+        EasyMockAnnotations.initialize(fixture);
+        expect(fixture.repository.count()).andReturn(0);
+        replay(fixture.repository);
+
+        assertTrue(fixture.repository.isEmpty());
+        verify(fixture.repository);
+    }
+
+    @Test
+    public void testInitializeShouldResolveOverloadedMethodByParameterTypes() {
+        OverloadedFixture fixture = new OverloadedFixture();
+        EasyMockAnnotations.initialize(fixture);
+        fixture.repository.save("value");
+        expectLastCall().times(2);
+        replay(fixture.repository);
+
+        fixture.repository.save("value", 2);
+
+        verify(fixture.repository);
+    }
+
+    @Test
+    public void testInitializeShouldCreatePartialMockByNamedControl() {
+        ControlledFixture fixture = new ControlledFixture();
+        EasyMockAnnotations.initialize(fixture);
+        expect(fixture.repository.count()).andReturn(1);
+        expect(fixture.scoped.count()).andReturn(2);
+        fixture.control.replay();
+        replay(fixture.scoped);
+
+        assertFalse(fixture.repository.isEmpty());
+        assertEquals(2, fixture.scoped.count());
+        fixture.control.verify();
+    }
+
+    @Test
+    public void testInitializeShouldFailWhenOverloadedMethodIsGivenByName() {
+        try {
+            EasyMockAnnotations.initialize(new AmbiguousFixture());
+            fail("RuntimeException expected!");
+        } catch (RuntimeException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("is overloaded"));
+        }
+    }
+
+    @Test
+    public void testInitializeShouldFailWhenPartialMockIsInterface() {
+        try {
+            EasyMockAnnotations.initialize(new InterfaceFixture());
+            fail("RuntimeException expected!");
+        } catch (RuntimeException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().startsWith("Partial mock must be a class"));
+        }
+    }
+
+    public static class PartialFixture {
+
+        @Mock(mockedMethods = "count")
+        private InMemoryRepository repository;
+    }
+
+    public static class OverloadedFixture {
+
+        @Mock(mockedMethods = "save(java.lang.String)")
+        private InMemoryRepository repository;
+    }
+
+    public static class ControlledFixture {
+
+        @MockControl
+        private IMocksControl control;
+        @Mock(control = "control", mockedMethods = {"count"})
+        private InMemoryRepository repository;
+        @Mock(scope = MockScope.CLASS, mockedMethods = {"count()"})
+        private InMemoryRepository scoped;
+    }
+
+    public static class AmbiguousFixture {
+
+        @Mock(mockedMethods = "save")
+        private InMemoryRepository repository;
+    }
+
+    public static class InterfaceFixture {
+
+        @Mock(mockedMethods = "count")
+        private Repository repository;
+    }
+}
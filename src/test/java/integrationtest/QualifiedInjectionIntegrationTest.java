@@ -0,0 +1,141 @@
+/* 
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package integrationtest;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.Callable;
+
+import integrationtest.support.Repository;
+import integrationtest.support.ServiceWithTwoRepositories;
+import org.junit.Test;
+
+import org.easymock.annotation.EasyMockAnnotations;
+import org.easymock.annotation.Injected;
+import org.easymock.annotation.Mock;
+import org.easymock.annotation.Stub;
+
+/**
+ * Integration test for the injection of mocks by their {@link Mock#name()}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class QualifiedInjectionIntegrationTest {
+
+    @Test
+    public void testInitializeShouldInjectMocksIntoFieldsWithSameName() {
+        NamedFixture fixture = new NamedFixture();
+
+        EasyMockAnnotations.initialize(fixture);
+
+        assertSame(fixture.primaryRepository, fixture.underTest.getPrimary());
+        assertSame(fixture.fallbackRepository, fixture.underTest.getFallback());
+    }
+
+    @Test
+    public void testInitializeShouldInjectMocksBySetterWithSameName() {
+        NamedFixture fixture = new NamedFixture();
+
+        EasyMockAnnotations.initialize(fixture);
+
+        assertSame(fixture.auditRepository, fixture.underTest.getAuditRepository());
+    }
+
+    @Test
+    public void testInitializeShouldPreferMockDeclaredWithExactType() {
+        ExactTypeFixture fixture = new ExactTypeFixture();
+
+        EasyMockAnnotations.initialize(fixture);
+
+        assertSame(fixture.primary, fixture.underTest.getPrimary());
+    }
+
+    @Test
+    public void testInitializeShouldInjectByTypeWhenMocksAreAmbiguous() {
+        AmbiguousFixture fixture = new AmbiguousFixture();
+
+        EasyMockAnnotations.initialize(fixture);
+
+        Repository primary = fixture.underTest.getPrimary();
+        assertTrue(primary == fixture.first || primary == fixture.second);
+    }
+
+    @Test
+    public void testInitializeShouldNotInjectNamedMockIntoFieldWithOtherGenericType() {
+        GenericFixture fixture = new GenericFixture();
+
+        EasyMockAnnotations.initialize(fixture);
+
+        assertSame(fixture.integerHandler, fixture.underTest.getHandler());
+    }
+
+    public static class NamedFixture {
+
+        @Mock(name = "fallback")
+        private Repository fallbackRepository;
+        @Mock(name = "primary")
+        private Repository primaryRepository;
+        @Stub(name = "audit")
+        private Repository auditRepository;
+        @Injected
+        private ServiceWithTwoRepositories underTest;
+    }
+
+    public static class ExactTypeFixture {
+
+        @Mock(name = "primary")
+        private CachingRepository cachingRepository;
+        @Mock(name = "primary")
+        private Repository primary;
+        @Injected
+        private ServiceWithTwoRepositories underTest;
+    }
+
+    public static class AmbiguousFixture {
+
+        @Mock(name = "primary")
+        private Repository first;
+        @Mock(name = "primary")
+        private Repository second;
+        @Injected
+        private ServiceWithTwoRepositories underTest;
+    }
+
+    public static class GenericFixture {
+
+        @Mock(name = "handler")
+        private Callable<String> stringHandler;
+        @Mock
+        private Callable<Integer> integerHandler;
+        @Injected
+        private IntegerHandlerService underTest;
+    }
+
+    public static class IntegerHandlerService {
+
+        private Callable<Integer> handler;
+
+        public Callable<Integer> getHandler() {
+            return handler;
+        }
+    }
+
+    public interface CachingRepository extends Repository {
+
+        void evict(String key);
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package integrationtest;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import integrationtest.support.InMemoryRepository;
+import integrationtest.support.IndependentObject;
+import integrationtest.support.Repository;
+import integrationtest.support.ServiceWithRepository;
+import org.junit.Test;
+
+import org.easymock.IMocksControl;
+
+import org.easymock.annotation.EasyMockAnnotations;
+import org.easymock.annotation.Injected;
+import org.easymock.annotation.Mock;
+import org.easymock.annotation.MockControl;
+
+/**
+ * Integration test for {@link EasyMockAnnotations#reinitialize(Object)}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class ReinitializeIntegrationTest {
+
+    @Test
+    public void testReinitializeShouldKeepEverythingWhenNothingChanged() {
+        TestClass testClass = new TestClass();
+        EasyMockAnnotations.initialize(testClass);
+        Repository repository = testClass.repository;
+        IndependentObject independentObject = testClass.independentObject;
+        ServiceWithRepository service = testClass.service;
+
+        EasyMockAnnotations.reinitialize(testClass);
+
+        assertSame(repository, testClass.repository);
+        assertSame(independentObject, testClass.independentObject);
+        assertSame(service, testClass.service);
+        assertSame(repository, service.getRepository());
+    }
+
+    @Test
+    public void testReinitializeShouldInjectMockReplacedByTest() {
+        TestClass testClass = new TestClass();
+        EasyMockAnnotations.initialize(testClass);
+        IndependentObject independentObject = testClass.independentObject;
+        Repository repository = new InMemoryRepository();
+        testClass.repository = repository;
+
+        EasyMockAnnotations.reinitialize(testClass);
+
+        assertSame(repository, testClass.repository);
+        assertSame(repository, testClass.service.getRepository());
+        assertSame(independentObject, testClass.independentObject);
+        assertSame(independentObject, testClass.service.getIndependentObject());
+    }
+
+    @Test
+    public void testReinitializeShouldCreateOnlyMissingMock() {
+        TestClass testClass = new TestClass();
+        EasyMockAnnotations.initialize(testClass);
+        Repository repository = testClass.repository;
+        IndependentObject independentObject = testClass.independentObject;
+        testClass.repository = null;
+
+        EasyMockAnnotations.reinitialize(testClass);
+
+        assertNotNull(testClass.repository);
+        assertNotSame(repository, testClass.repository);
+        assertSame(testClass.repository, testClass.service.getRepository());
+        assertSame(independentObject, testClass.independentObject);
+    }
+
+    @Test
+    public void testReinitializeShouldInstantiateMissingTestedClass() {
+        TestClass testClass = new TestClass();
+        EasyMockAnnotations.initialize(testClass);
+        ServiceWithRepository service = testClass.service;
+        testClass.service = null;
+
+        EasyMockAnnotations.reinitialize(testClass);
+
+        assertNotSame(service, testClass.service);
+        assertSame(testClass.repository, testClass.service.getRepository());
+        assertSame(testClass.independentObject, testClass.service.getIndependentObject());
+    }
+
+    @Test
+    public void testReinitializeShouldInjectReplacedMockBySetter() {
+        SetterTestClass testClass = new SetterTestClass();
+        EasyMockAnnotations.initialize(testClass);
+        Repository repository = createMock(Repository.class);
+        testClass.repository = repository;
+        int calls = testClass.service.setterCalls;
+
+        EasyMockAnnotations.reinitialize(testClass);
+
+        assertSame(repository, testClass.service.repository);
+        assertEquals(calls + 1, testClass.service.setterCalls);
+    }
+
+    @Test
+    public void testReinitializeShouldRecreateMocksOfMissingControl() {
+        ControlledTestClass testClass = new ControlledTestClass();
+        EasyMockAnnotations.initialize(testClass);
+        IMocksControl control = testClass.control;
+        Repository repository = testClass.repository;
+        testClass.control = null;
+
+        EasyMockAnnotations.reinitialize(testClass);
+
+        assertNotSame(control, testClass.control);
+        assertNotSame(repository, testClass.repository);
+        assertSame(testClass.repository, testClass.service.getRepository());
+        expect(testClass.repository.count()).andReturn(1);
+        testClass.control.replay();
+        assertEquals(1, testClass.repository.count());
+        testClass.control.verify();
+    }
+
+    @Test
+    public void testReinitializeShouldInitializeTestClassWhichWasNotInitialized() {
+        TestClass testClass = new TestClass();
+
+        EasyMockAnnotations.reinitialize(testClass);
+
+        assertNotNull(testClass.repository);
+        assertSame(testClass.repository, testClass.service.getRepository());
+    }
+
+    @Test
+    public void testReinitializeShouldInitializeReleasedTestClass() {
+        TestClass testClass = new TestClass();
+        EasyMockAnnotations.initialize(testClass);
+        EasyMockAnnotations.release(testClass);
+
+        EasyMockAnnotations.reinitialize(testClass);
+
+        assertNotNull(testClass.repository);
+        assertNotNull(testClass.service);
+        assertSame(testClass.repository, testClass.service.getRepository());
+    }
+
+    public static class TestClass {
+
+        @Mock
+        private Repository repository;
+        @Mock
+        private IndependentObject independentObject;
+        @Injected
+        private ServiceWithRepository service;
+    }
+
+    public static class ControlledTestClass {
+
+        @MockControl
+        private IMocksControl control;
+        @Mock
+        private Repository repository;
+        @Mock
+        private IndependentObject independentObject;
+        @Injected
+        private ServiceWithRepository service;
+    }
+
+    public static class SetterTestClass {
+
+        @Mock
+        private Repository repository;
+        @Injected
+        private CountingService service;
+    }
+
+    public static class CountingService {
+
+        private Repository repository;
+        private int setterCalls;
+
+        public void setRepository(Repository repository) {
+            this.repository = repository;
+            setterCalls++;
+        }
+    }
+}
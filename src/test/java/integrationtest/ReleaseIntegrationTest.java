@@ -0,0 +1,201 @@
+/* 
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package integrationtest;
+
+import static org.easymock.EasyMock.expect;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.lang.ref.WeakReference;
+
+import integrationtest.support.FacadeWithNonRelatedComponents;
+import integrationtest.support.IndependentObject;
+import integrationtest.support.Repository;
+import integrationtest.support.ServiceWithRepository;
+import integrationtest.support.ThirdLevelClassA;
+import org.junit.Test;
+import org.junit.runners.model.Statement;
+
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.easymock.IMocksControl;
+
+import org.easymock.annotation.EasyMockAnnotations;
+import org.easymock.annotation.Injected;
+import org.easymock.annotation.Mock;
+import org.easymock.annotation.MockControl;
+import org.easymock.annotation.ReleaseMocksRule;
+import org.easymock.annotation.Stub;
+
+/**
+ * Integration test for {@link EasyMockAnnotations#release(Object)} and {@link ReleaseMocksRule}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class ReleaseIntegrationTest {
+
+    @Test
+    public void testReleaseShouldClearInitializedFields() {
+        Fixture fixture = new Fixture();
+        EasyMockAnnotations.initialize(fixture);
+
+        EasyMockAnnotations.release(fixture);
+
+        assertReleased(fixture);
+    }
+
+    @Test
+    public void testReleaseShouldKeepTestedClassCreatedByTestClass() {
+        Fixture fixture = new Fixture();
+        ServiceWithRepository service = new ServiceWithRepository();
+        fixture.service = service;
+        EasyMockAnnotations.initialize(fixture);
+
+        EasyMockAnnotations.release(fixture);
+
+        assertNull(fixture.facade);
+        assertSame(service, fixture.service);
+    }
+
+    @Test
+    public void testReleaseShouldClearMocksOfTestClassWhichWasNotInitialized() {
+        Fixture fixture = new Fixture();
+        fixture.component2 = new IndependentObject();
+        fixture.service = new ServiceWithRepository();
+
+        EasyMockAnnotations.release(fixture);
+
+        assertNull(fixture.component2);
+        assertNotNull(fixture.service);
+    }
+
+    @Test
+    public void testReleaseShouldAllowReinitialization() {
+        Fixture fixture = new Fixture();
+        EasyMockAnnotations.initialize(fixture);
+        EasyMockAnnotations.release(fixture);
+
+        EasyMockAnnotations.initialize(fixture);
+
+        assertNotNull(fixture.control);
+        assertSame(fixture.component1, fixture.facade.getThirdLevelClassA());
+        assertSame(fixture.repository, fixture.service.getRepository());
+    }
+
+    @Test
+    public void testRuleShouldReleaseAfterTest() throws Throwable {
+        final Fixture fixture = new Fixture();
+
+        new ReleaseMocksRule().apply(new Statement() {
+            @Override
+            public void evaluate() {
+                EasyMockAnnotations.initialize(fixture);
+            }
+        }, null, fixture).evaluate();
+
+        assertReleased(fixture);
+    }
+
+    @Test
+    public void testRuleShouldReleaseAfterFailedTest() throws Throwable {
+        final Fixture fixture = new Fixture();
+
+        try {
+            new ReleaseMocksRule().apply(new Statement() {
+                @Override
+                public void evaluate() {
+                    EasyMockAnnotations.initialize(fixture);
+                    throw new IllegalStateException();
+                }
+            }, null, fixture).evaluate();
+            fail("Failure of the test should be propagated");
+        } catch (IllegalStateException ex) {
+            assertReleased(fixture);
+        }
+    }
+
+    @Test
+    public void testInitializeShouldNotKeepTestClassReferencedByItsTestedClassAndMocks() throws InterruptedException {
+        WeakReference<SelfReferencingFixture> fixture = initializeSelfReferencingFixture();
+
+        for (int i = 0; i < 10 && fixture.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10L);
+        }
+
+        assertNull(fixture.get());
+    }
+
+    private WeakReference<SelfReferencingFixture> initializeSelfReferencingFixture() {
+        final SelfReferencingFixture fixture = new SelfReferencingFixture();
+        fixture.owner = new Owner(fixture);
+        EasyMockAnnotations.initialize(fixture);
+        expect(fixture.repository.find("key")).andAnswer(new IAnswer<String>() {
+            @Override
+            public String answer() {
+                return fixture.toString();
+            }
+        });
+        // EasyMock keeps the control of the last recorded call of the thread
+        EasyMock.createMock(Repository.class).count();
+        return new WeakReference<SelfReferencingFixture>(fixture);
+    }
+
+    private void assertReleased(Fixture fixture) {
+        assertNull(fixture.control);
+        assertNull(fixture.component1);
+        assertNull(fixture.component2);
+        assertNull(fixture.repository);
+        assertNull(fixture.facade);
+        assertNull(fixture.service);
+    }
+
+    private static class Fixture {
+
+        @MockControl
+        private IMocksControl control;
+        @Mock
+        private ThirdLevelClassA component1;
+        @Mock
+        private IndependentObject component2;
+        @Stub
+        private Repository repository;
+        @Injected
+        private FacadeWithNonRelatedComponents facade;
+        @Injected
+        private ServiceWithRepository service;
+    }
+
+    private static class SelfReferencingFixture {
+
+        @Mock
+        private Repository repository;
+        @Injected
+        private Owner owner;
+    }
+
+    private static class Owner {
+
+        private final Object testClass;
+        private Repository repository;
+
+        Owner(Object testClass) {
+            this.testClass = testClass;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package integrationtest;
+
+import static org.easymock.EasyMock.expect;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import integrationtest.support.IndependentObject;
+import integrationtest.support.Repository;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.easymock.IMocksControl;
+
+import org.easymock.annotation.EasyMockAnnotations;
+import org.easymock.annotation.Mock;
+import org.easymock.annotation.MockControl;
+import org.easymock.annotation.MockScope;
+import org.easymock.annotation.Stub;
+
+/**
+ * Integration test for {@link EasyMockAnnotations#replay(Object)} and {@link EasyMockAnnotations#verify(Object)}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class ReplayVerifyIntegrationTest {
+
+    @MockControl
+    private IMocksControl control;
+    @MockControl
+    private IMocksControl otherControl;
+    @Mock(control = "control")
+    private Repository repository;
+    @Mock(control = "control")
+    private IndependentObject independentObject;
+    @Mock(control = "otherControl")
+    private Runnable runnable;
+    @Stub
+    private Comparable<String> stub;
+
+    @Before
+    public void setUp() {
+        EasyMockAnnotations.initialize(this);
+    }
+
+    @Test
+    public void testReplayShouldReplayEverySharedControlOnce() {
+        expect(repository.find("key")).andReturn("value");
+        runnable.run();
+
+        EasyMockAnnotations.replay(this);
+
+        assertEquals("value", repository.find("key"));
+        runnable.run();
+        EasyMockAnnotations.verify(this);
+    }
+
+    @Test
+    public void testVerifyShouldFailWhenExpectationIsMissing() {
+        runnable.run();
+        EasyMockAnnotations.replay(this);
+
+        try {
+            EasyMockAnnotations.verify(this);
+            fail("AssertionError expected!");
+        } catch (AssertionError expected) {
+        }
+    }
+
+    @Test
+    public void testReplayShouldNotAffectStubs() {
+        EasyMockAnnotations.replay(this);
+
+        assertEquals(0, stub.compareTo("value"));
+        EasyMockAnnotations.verify(this);
+    }
+
+    @Test
+    public void testReplayShouldReplayMocksWithoutControl() {
+        UncontrolledFixture fixture = new UncontrolledFixture();
+        EasyMockAnnotations.initialize(fixture);
+        expect(fixture.repository.count()).andReturn(1);
+        fixture.runnable.run();
+
+        EasyMockAnnotations.replay(fixture);
+
+        assertEquals(1, fixture.repository.count());
+        fixture.runnable.run();
+        EasyMockAnnotations.verify(fixture);
+    }
+
+    public static class UncontrolledFixture {
+
+        @Mock
+        private Repository repository;
+        @Mock(scope = MockScope.CLASS)
+        private Runnable runnable;
+    }
+}
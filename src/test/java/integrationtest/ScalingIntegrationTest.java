@@ -0,0 +1,121 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package integrationtest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import integrationtest.support.FixtureGenerator;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.easymock.annotation.EasyMockAnnotations;
+
+/**
+ * Integration test for the initialization of large generated fixtures. The growth of the initialization time is
+ * measured and guarded by the {@code ScalingBenchmark} of the benchmark profile, this test checks that every mock is
+ * injected into every target.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class ScalingIntegrationTest {
+
+    @Before
+    public void setUp() {
+        assumeTrue(FixtureGenerator.isSupported());
+    }
+
+    @Test
+    public void testInitializeShouldInjectEveryMockIntoEveryTargetOfWideFixture() throws Exception {
+        assertFullyInjected(new FixtureGenerator(60, 1, 0, 8));
+    }
+
+    @Test
+    public void testInitializeShouldInjectMocksOfDeepFixture() throws Exception {
+        assertFullyInjected(new FixtureGenerator(30, 6, 0, 2));
+    }
+
+    @Test
+    public void testInitializeShouldInjectGenericMocks() throws Exception {
+        assertFullyInjected(new FixtureGenerator(10, 2, 20, 2));
+    }
+
+    @Test
+    public void testInitializeShouldInitializeManyInstancesOfGeneratedFixture() throws Exception {
+        FixtureGenerator generator = new FixtureGenerator(40, 3, 10, 4);
+        Class<?> testClass = generator.generate();
+
+        for (int i = 0; i < 10; i++) {
+            assertInjected(generator, initialize(testClass));
+        }
+    }
+
+    @Test
+    public void testGenerateSourcesShouldCreateClassesOfShape() {
+        Map<String, String> sources = new FixtureGenerator(3, 2, 1, 2).generateSources();
+
+        assertEquals(3 + 2 + 2, sources.size());
+        assertNotNull(sources.get("FixtureLevel0"));
+        assertNotNull(sources.get(FixtureGenerator.TEST_CLASS));
+    }
+
+    private void assertFullyInjected(FixtureGenerator generator) throws Exception {
+        assertInjected(generator, initialize(generator.generate()));
+    }
+
+    private Object initialize(Class<?> testClass) throws Exception {
+        Object fixture = testClass.newInstance();
+        EasyMockAnnotations.initialize(fixture);
+        return fixture;
+    }
+
+    private void assertInjected(FixtureGenerator generator, Object fixture) throws Exception {
+        Map<String, Object> mocks = new HashMap<String, Object>();
+        List<String> mockNames = generator.getMockNames();
+        for (String name : mockNames) {
+            Object mock = read(fixture, name);
+            assertNotNull(name, mock);
+            mocks.put(name, mock);
+        }
+        for (String targetName : generator.getTargetNames()) {
+            Object target = read(fixture, targetName);
+            assertNotNull(targetName, target);
+            for (String name : mockNames) {
+                assertSame(targetName + "." + name, mocks.get(name), read(target, name));
+            }
+        }
+    }
+
+    private static Object read(Object object, String name) throws Exception {
+        for (Class<?> type = object.getClass(); type != null; type = type.getSuperclass()) {
+            try {
+                Field field = type.getDeclaredField(name);
+                field.setAccessible(true);
+                return field.get(object);
+            } catch (NoSuchFieldException ex) {
+                continue;
+            }
+        }
+        throw new NoSuchFieldException(name);
+    }
+}
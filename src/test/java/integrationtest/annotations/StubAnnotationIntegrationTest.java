@@ -0,0 +1,91 @@
+/* 
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package integrationtest.annotations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import integrationtest.support.IndependentObject;
+import integrationtest.support.Repository;
+import integrationtest.support.ServiceWithRepository;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.easymock.annotation.EasyMockAnnotations;
+import org.easymock.annotation.Injected;
+import org.easymock.annotation.Stub;
+import org.easymock.annotation.Stubs;
+
+/**
+ * Integration test for fields annotated with {@link Stub @Stub}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class StubAnnotationIntegrationTest {
+
+    @Stub
+    private Repository repository;
+    @Stub
+    private IndependentObject independentObject;
+    @Injected
+    private ServiceWithRepository underTest;
+
+    @Before
+    public void setUp() {
+        EasyMockAnnotations.initialize(this);
+    }
+
+    @Test
+    public void testInitializeShouldCreateStubsAndInjectThem() {
+        assertSame(repository, underTest.getRepository());
+        assertSame(independentObject, underTest.getIndependentObject());
+    }
+
+    @Test
+    public void testStubShouldReturnDefaultValuesWithoutReplay() {
+        assertNull(repository.find("key"));
+        assertEquals(0, repository.count());
+        assertFalse(repository.isEmpty());
+        repository.save("value");
+    }
+
+    @Test
+    public void testClassStubShouldReturnDefaultValuesWithoutReplay() {
+        assertNull(independentObject.createObject());
+    }
+
+    @Test
+    public void testStubReturnShouldSetFixedValue() {
+        Stubs.stubReturn(repository, "count", 42);
+
+        assertEquals(42, repository.count());
+    }
+
+    @Test
+    public void testStubShouldImplementObjectMethods() {
+        assertNotNull(repository.toString());
+        assertEquals(repository, repository);
+        assertEquals(System.identityHashCode(repository), repository.hashCode());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testStubReturnShouldRejectIncompatibleValue() {
+        Stubs.stubReturn(repository, "count", "text");
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package integrationtest.support;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+/**
+ * Generates test classes of a given shape for scaling tests. The generated test class has {@code mockCount} mocks of
+ * distinct interfaces and {@code genericFieldCount} mocks of {@code Callable<CollaboratorN>}. Both are spread over
+ * {@code inheritanceDepth} levels of test class hierarchy. The test class has {@code targetWidth} {@code @Injected}
+ * objects, every one of them with a field and a setter for each mock.
+ * <p>
+ * The sources are compiled by the system Java compiler into a temporary directory and loaded by a new class loader,
+ * so the generator needs a JDK.
+ * <p>
+ * @author Balazs Berkes
+ */
+public final class FixtureGenerator {
+
+    /**
+     * Package of the generated classes.
+     */
+    public static final String PACKAGE = "generated";
+    /**
+     * Simple name of the generated test class.
+     */
+    public static final String TEST_CLASS = "GeneratedFixture";
+
+    private final int mockCount;
+    private final int inheritanceDepth;
+    private final int genericFieldCount;
+    private final int targetWidth;
+
+    public FixtureGenerator(int mockCount, int inheritanceDepth, int genericFieldCount, int targetWidth) {
+        if (mockCount < 1 || inheritanceDepth < 1 || genericFieldCount < 0 || targetWidth < 0) {
+            throw new IllegalArgumentException("Invalid fixture shape: mocks=" + mockCount + ", depth="
+                    + inheritanceDepth + ", generics=" + genericFieldCount + ", targets=" + targetWidth);
+        }
+        this.mockCount = mockCount;
+        this.inheritanceDepth = inheritanceDepth;
+        this.genericFieldCount = genericFieldCount;
+        this.targetWidth = targetWidth;
+    }
+
+    /**
+     * Returns whether the fixtures can be generated, i.e. the system Java compiler is available.
+     * <p>
+     * @return {@code true} if the generator can be used
+     */
+    public static boolean isSupported() {
+        return ToolProvider.getSystemJavaCompiler() != null;
+    }
+
+    /**
+     * Generates, compiles and loads the test class.
+     * <p>
+     * @return the generated test class, it has a public default constructor
+     * @throws RuntimeException if the sources cannot be compiled
+     */
+    public Class<?> generate() {
+        try {
+            File directory = createTempDirectory();
+            List<String> files = new ArrayList<String>();
+            for (Map.Entry<String, String> source : generateSources().entrySet()) {
+                files.add(write(directory, source.getKey(), source.getValue()));
+            }
+            compile(directory, files);
+            ClassLoader classLoader = new URLClassLoader(new URL[]{directory.toURI().toURL()},
+                    FixtureGenerator.class.getClassLoader());
+            return Class.forName(PACKAGE + "." + TEST_CLASS, true, classLoader);
+        } catch (IOException ex) {
+            throw new RuntimeException("Cannot generate fixture " + this, ex);
+        } catch (ClassNotFoundException ex) {
+            throw new RuntimeException("Cannot load fixture " + this, ex);
+        }
+    }
+
+    /**
+     * Generates the sources of the fixture.
+     * <p>
+     * @return simple class name &#8594; source, in the order of declaration
+     */
+    public Map<String, String> generateSources() {
+        Map<String, String> sources = new LinkedHashMap<String, String>();
+        for (int i = 0; i < mockCount; i++) {
+            sources.put(collaborator(i), header() + "public interface " + collaborator(i) + " {\n\n"
+                    + "    Object call();\n}\n");
+        }
+        for (int i = 0; i < targetWidth; i++) {
+            sources.put(target(i), generateTarget(i));
+        }
+        for (int level = 0; level < inheritanceDepth; level++) {
+            sources.put(level(level), generateLevel(level));
+        }
+        return sources;
+    }
+
+    /**
+     * Returns the names of the mock fields, which are also the names of the fields of the injected objects.
+     * <p>
+     * @return names of the mock fields
+     */
+    public List<String> getMockNames() {
+        List<String> names = new ArrayList<String>();
+        for (int i = 0; i < mockCount; i++) {
+            names.add(mock(i));
+        }
+        for (int i = 0; i < genericFieldCount; i++) {
+            names.add(generic(i));
+        }
+        return names;
+    }
+
+    /**
+     * Returns the names of the {@code @Injected} fields of the test class.
+     * <p>
+     * @return names of the injected fields
+     */
+    public List<String> getTargetNames() {
+        List<String> names = new ArrayList<String>();
+        for (int i = 0; i < targetWidth; i++) {
+            names.add(targetField(i));
+        }
+        return names;
+    }
+
+    private String generateTarget(int index) {
+        StringBuilder fields = new StringBuilder();
+        StringBuilder setters = new StringBuilder();
+        for (int i = 0; i < mockCount; i++) {
+            appendProperty(fields, setters, collaborator(i), mock(i));
+        }
+        for (int i = 0; i < genericFieldCount; i++) {
+            appendProperty(fields, setters, genericType(i), generic(i));
+        }
+        return header() + "public class " + target(index) + " {\n\n" + fields + setters + "}\n";
+    }
+
+    private static void appendProperty(StringBuilder fields, StringBuilder setters, String type, String name) {
+        fields.append("    private ").append(type).append(' ').append(name).append(";\n");
+        setters.append("\n    public void set").append(Character.toUpperCase(name.charAt(0))).append(name.substring(1))
+                .append('(').append(type).append(' ').append(name).append(") {\n        this.").append(name)
+                .append(" = ").append(name).append(";\n    }\n");
+    }
+
+    private String generateLevel(int level) {
+        StringBuilder source = new StringBuilder(header()).append("public class ").append(level(level));
+        if (level > 0) {
+            source.append(" extends ").append(level(level - 1));
+        }
+        source.append(" {\n\n");
+        for (int i = level; i < mockCount; i += inheritanceDepth) {
+            source.append("    @org.easymock.annotation.Mock\n    private ").append(collaborator(i)).append(' ')
+                    .append(mock(i)).append(";\n");
+        }
+        for (int i = level; i < genericFieldCount; i += inheritanceDepth) {
+            source.append("    @org.easymock.annotation.Mock\n    private ").append(genericType(i)).append(' ')
+                    .append(generic(i)).append(";\n");
+        }
+        if (level == inheritanceDepth - 1) {
+            for (int i = 0; i < targetWidth; i++) {
+                source.append("    @org.easymock.annotation.Injected\n    private ").append(target(i)).append(' ')
+                        .append(targetField(i)).append(";\n");
+            }
+        }
+        return source.append("}\n").toString();
+    }
+
+    private void compile(File directory, List<String> files) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new RuntimeException("Fixtures can be generated only by a JDK!");
+        }
+        List<String> arguments = new ArrayList<String>(Arrays.asList("-nowarn", "-d", directory.getPath(),
+                "-classpath", System.getProperty("java.class.path")));
+        arguments.addAll(files);
+        if (compiler.run(null, null, null, arguments.toArray(new String[arguments.size()])) != 0) {
+            throw new RuntimeException("Cannot compile fixture " + this);
+        }
+    }
+
+    private static String write(File directory, String className, String source) throws IOException {
+        File file = new File(new File(directory, PACKAGE), className + ".java");
+        file.getParentFile().mkdirs();
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(source);
+        } finally {
+            writer.close();
+        }
+        return file.getPath();
+    }
+
+    private static File createTempDirectory() throws IOException {
+        File directory = File.createTempFile("fixture", "");
+        if (!directory.delete() || !directory.mkdir()) {
+            throw new IOException("Cannot create directory " + directory);
+        }
+        return directory;
+    }
+
+    private static String header() {
+        return "package " + PACKAGE + ";\n\n";
+    }
+
+    private static String collaborator(int index) {
+        return "Collaborator" + index;
+    }
+
+    private String genericType(int index) {
+        return "java.util.concurrent.Callable<" + collaborator(index % mockCount) + ">";
+    }
+
+    private static String mock(int index) {
+        return "collaborator" + index;
+    }
+
+    private static String generic(int index) {
+        return "generic" + index;
+    }
+
+    private static String target(int index) {
+        return "Target" + index;
+    }
+
+    private static String targetField(int index) {
+        return "target" + index;
+    }
+
+    private String level(int level) {
+        return level == inheritanceDepth - 1 ? TEST_CLASS : "FixtureLevel" + level;
+    }
+
+    @Override
+    public String toString() {
+        return "[mocks=" + mockCount + ", depth=" + inheritanceDepth + ", generics=" + genericFieldCount
+                + ", targets=" + targetWidth + "]";
+    }
+}
@@ -0,0 +1,64 @@
+/* 
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package integrationtest.support;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Dummy class for support integration testing.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class InMemoryRepository implements Repository {
+
+    private final List<String> values;
+
+    public InMemoryRepository() {
+        this.values = new ArrayList<String>();
+    }
+
+    public InMemoryRepository(Collection<String> values) {
+        this.values = new ArrayList<String>(values);
+    }
+
+    @Override
+    public String find(String key) {
+        return values.contains(key) ? key : null;
+    }
+
+    @Override
+    public int count() {
+        return values.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return count() == 0;
+    }
+
+    @Override
+    public void save(String value) {
+        values.add(value);
+    }
+
+    public void save(String value, int times) {
+        for (int i = 0; i < times; i++) {
+            save(value);
+        }
+    }
+}
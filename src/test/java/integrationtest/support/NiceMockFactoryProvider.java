@@ -0,0 +1,54 @@
+/* 
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package integrationtest.support;
+
+import org.easymock.EasyMock;
+import org.easymock.MockType;
+
+import org.easymock.annotation.spi.MockFactory;
+import org.easymock.annotation.spi.MockFactoryProvider;
+
+/**
+ * Provides a factory which creates nice mocks for test classes implementing {@link NiceMocks}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class NiceMockFactoryProvider implements MockFactoryProvider {
+
+    @Override
+    public MockFactory getMockFactory(Class<?> testClass) {
+        return NiceMocks.class.isAssignableFrom(testClass) ? new NiceMockFactory() : null;
+    }
+
+    /**
+     * Marker of the test classes whose mocks are created by the provided factory.
+     */
+    public interface NiceMocks {
+    }
+
+    private static class NiceMockFactory implements MockFactory {
+
+        @Override
+        public <T> T createMock(Class<T> clazz, MockType type) {
+            return EasyMock.createNiceMock(clazz);
+        }
+
+        @Override
+        public <T> T createMock(Class<T> clazz, MockType type, String name) {
+            return EasyMock.createNiceMock(name, clazz);
+        }
+    }
+}
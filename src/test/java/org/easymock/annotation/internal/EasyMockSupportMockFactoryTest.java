@@ -28,6 +28,8 @@ import org.junit.Test;
 import org.easymock.EasyMockSupport;
 import org.easymock.MockType;
 
+import org.easymock.annotation.spi.MockFactory;
+
 /**
  * Unit test for {@link EasyMockSupportMockFactory}.
  * <p>
@@ -0,0 +1,109 @@
+/* 
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.lang.reflect.Field;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.easymock.MockType;
+
+/**
+ * Unit test for {@link InitializationCostReport}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class InitializationCostReportTest {
+
+    private String previousDirectory;
+    private File directory;
+    private Field interfaceField;
+    private Field classField;
+
+    private InitializationCostReport underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        previousDirectory = System.getProperty(ReportFiles.DIRECTORY_PROPERTY);
+        directory = new File(System.getProperty("java.io.tmpdir"), "easymock-annotations-report-" + System.nanoTime());
+        System.setProperty(ReportFiles.DIRECTORY_PROPERTY, directory.getPath());
+        interfaceField = Fixture.class.getDeclaredField("runnable");
+        classField = Fixture.class.getDeclaredField("thread");
+        underTest = new InitializationCostReport();
+    }
+
+    @After
+    public void cleanUp() {
+        if (previousDirectory == null) {
+            System.clearProperty(ReportFiles.DIRECTORY_PROPERTY);
+        } else {
+            System.setProperty(ReportFiles.DIRECTORY_PROPERTY, previousDirectory);
+        }
+        for (File file : directory.listFiles() == null ? new File[0] : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testReportShouldSortTestClassesByTotalTime() {
+        underTest.initializationFinished(String.class, 100L);
+        underTest.initializationFinished(Integer.class, 300L);
+
+        String csv = underTest.toCsv(underTest.sortByTotalTime());
+
+        String[] lines = csv.split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[1], lines[1].startsWith("java.lang.Integer,1,300,300,0.7500,0.7500,"));
+        assertTrue(lines[2], lines[2].startsWith("java.lang.String,1,100,100,0.2500,1.0000,"));
+    }
+
+    @Test
+    public void testReportShouldCountMocksByKindAndCacheHits() {
+        underTest.mockCreated(Fixture.class, interfaceField, MockType.DEFAULT, StaticMockFactory.class);
+        underTest.mockCreated(Fixture.class, classField, MockType.NICE, StaticMockFactory.class);
+        underTest.mockCreated(Fixture.class, interfaceField, null, StubFactory.class);
+        underTest.cacheAccessed(Fixture.class, CacheType.PLAN, false);
+        underTest.cacheAccessed(Fixture.class, CacheType.PLAN, true);
+
+        String json = underTest.toJson(underTest.sortByTotalTime());
+
+        assertTrue(json, json.contains("\"interfaceMocks\": 1, \"classMocks\": 1, \"stubs\": 1"));
+        assertTrue(json, json.contains("\"planCacheHitRatio\": 0.5000, \"fixtureTemplateHitRatio\": null"));
+    }
+
+    @Test
+    public void testWriteShouldCreateReportFiles() {
+        underTest.initializationFinished(Fixture.class, 100L);
+
+        underTest.write();
+
+        assertTrue(new File(directory, InitializationCostReport.JSON_REPORT).isFile());
+        assertTrue(new File(directory, InitializationCostReport.CSV_REPORT).isFile());
+    }
+
+    private static class Fixture {
+
+        private Runnable runnable;
+        private Thread thread;
+    }
+}
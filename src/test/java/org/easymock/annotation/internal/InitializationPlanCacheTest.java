@@ -0,0 +1,85 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.easymock.annotation.Mock;
+
+/**
+ * Unit test for {@link InitializationPlanCache}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class InitializationPlanCacheTest {
+
+    private final List<Boolean> planAccesses = new ArrayList<Boolean>();
+    private final InitializationListener listener = new InitializationCostReport() {
+        @Override
+        public void cacheAccessed(Class<?> testClass, CacheType cache, boolean hit) {
+            if (testClass == Fixture.class && cache == CacheType.PLAN) {
+                planAccesses.add(hit);
+            }
+        }
+    };
+
+    private InitializationPlanCache underTest;
+
+    @Before
+    public void setUp() {
+        InitializationListeners.getSingleton().add(listener);
+        underTest = new InitializationPlanCache();
+    }
+
+    @After
+    public void cleanUp() {
+        InitializationListeners.getSingleton().remove(listener);
+    }
+
+    @Test
+    public void testGetShouldReportAccess() {
+        InitializationPlan plan = underTest.get(Fixture.class);
+
+        assertSame(plan, underTest.get(Fixture.class));
+        assertEquals(2, planAccesses.size());
+        assertEquals(Boolean.FALSE, planAccesses.get(0));
+        assertEquals(Boolean.TRUE, planAccesses.get(1));
+    }
+
+    @Test
+    public void testLookupShouldNotReportAccess() {
+        InitializationPlan plan = underTest.lookup(Fixture.class);
+
+        assertSame(plan, underTest.lookup(Fixture.class));
+        assertSame(plan, underTest.get(Fixture.class));
+        assertEquals(1, planAccesses.size());
+        assertEquals(Boolean.TRUE, planAccesses.get(0));
+    }
+
+    private static class Fixture {
+
+        @Mock
+        private Runnable runnable;
+    }
+}
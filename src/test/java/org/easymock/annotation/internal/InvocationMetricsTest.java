@@ -0,0 +1,174 @@
+/* 
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+import static org.easymock.EasyMock.createControl;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Field;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.easymock.IMocksControl;
+
+import org.easymock.annotation.internal.InvocationMetricsReport.Metrics;
+import org.easymock.annotation.internal.InvocationMetricsReport.MockMetrics;
+
+/**
+ * Unit test for {@link InvocationMetrics} and {@link InvocationMetricsReport}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class InvocationMetricsTest {
+
+    private InvocationMetricsReport report;
+    private Field first;
+    private Field second;
+
+    private InvocationMetrics underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        InitializationListeners listeners = new InitializationListeners();
+        report = new InvocationMetricsReport();
+        listeners.add(report);
+        first = Fixture.class.getDeclaredField("first");
+        second = Fixture.class.getDeclaredField("second");
+        underTest = new InvocationMetrics(listeners);
+    }
+
+    @Test
+    public void testInstrumentShouldCountInvocationsPerMockAndMethod() {
+        List<?> mock = createNiceMock(List.class);
+        underTest.instrument(mock, Fixture.class, first);
+        replay(mock);
+
+        mock.size();
+        mock.size();
+        mock.isEmpty();
+
+        List<MockMetrics> mocks = report.getMocks();
+        assertEquals(1, mocks.size());
+        assertEquals(Fixture.class.getName(), mocks.get(0).getTestClass());
+        assertEquals("first", mocks.get(0).getField());
+        assertEquals(3L, mocks.get(0).getCalls());
+        assertEquals(2L, getMethod(mocks.get(0), "size()").getCalls());
+        assertEquals(1L, getMethod(mocks.get(0), "isEmpty()").getCalls());
+    }
+
+    @Test
+    public void testInstrumentShouldIdentifyMockByTestClassAndField() {
+        List<?> mock = createNiceMock(List.class);
+        underTest.instrument(mock, Fixture.class, first);
+        replay(mock);
+
+        mock.get(1);
+
+        assertTrue(report.toCsv(report.getMocks()).contains(Fixture.class.getName() + ",first,get(int),1,"));
+    }
+
+    @Test
+    public void testInstrumentShouldDistinguishMocksOfTheSameTypeByField() {
+        List<?> firstMock = createNiceMock(List.class);
+        List<?> secondMock = createNiceMock(List.class);
+        underTest.instrument(firstMock, Fixture.class, first);
+        underTest.instrument(secondMock, Fixture.class, second);
+        replay(firstMock, secondMock);
+
+        firstMock.size();
+        secondMock.size();
+        secondMock.size();
+
+        List<MockMetrics> mocks = report.getMocks();
+        assertEquals(2, mocks.size());
+        assertTrue(report.toJson(mocks).contains("\"field\": \"second\", \"calls\": 2"));
+    }
+
+    @Test
+    public void testInstrumentShouldDistinguishMocksOfSharedControl() {
+        IMocksControl control = createControl();
+        List<?> firstMock = control.createMock(List.class);
+        List<?> secondMock = control.createMock(List.class);
+        underTest.instrument(firstMock, Fixture.class, first);
+        underTest.instrument(secondMock, SubFixture.class, first);
+        expect(firstMock.size()).andReturn(1);
+        expect(secondMock.size()).andReturn(2).times(2);
+        control.replay();
+
+        firstMock.size();
+        secondMock.size();
+        secondMock.size();
+
+        List<MockMetrics> mocks = report.getMocks();
+        assertEquals(2, mocks.size());
+        assertTrue(report.toJson(mocks).contains(
+                "{\"testClass\": \"" + SubFixture.class.getName() + "\", \"field\": \"first\", \"calls\": 2"));
+    }
+
+    @Test
+    public void testInstrumentShouldKeepEasyMockBehavior() {
+        List<?> mock = createMock(List.class);
+        underTest.instrument(mock, Fixture.class, first);
+        expect(mock.size()).andReturn(3);
+        replay(mock);
+
+        assertEquals(3, mock.size());
+        verify(mock);
+        try {
+            mock.size();
+            fail("Unexpected call should fail");
+        } catch (AssertionError ex) {
+            assertEquals(2L, report.getMocks().get(0).getCalls());
+        }
+    }
+
+    @Test
+    public void testInstrumentShouldNotCountRecording() {
+        List<?> mock = createMock(List.class);
+        underTest.instrument(mock, Fixture.class, first);
+
+        expect(mock.size()).andReturn(3);
+
+        assertTrue(report.getMocks().isEmpty());
+    }
+
+    private static Metrics getMethod(MockMetrics mock, String method) {
+        for (Metrics metrics : mock.getMethods()) {
+            if (metrics.getName().equals(method)) {
+                return metrics;
+            }
+        }
+        throw new AssertionError("No metrics of " + method);
+    }
+
+    private static class Fixture {
+
+        private List<?> first;
+        private List<?> second;
+    }
+
+    private static class SubFixture extends Fixture {
+    }
+}
@@ -0,0 +1,76 @@
+/* 
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link LatencyHistogram}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class LatencyHistogramTest {
+
+    private LatencyHistogram underTest;
+
+    @Before
+    public void setUp() {
+        underTest = new LatencyHistogram();
+    }
+
+    @Test
+    public void testGetPercentileShouldReturnZeroWhenEmpty() {
+        assertEquals(0L, underTest.getPercentile(50D));
+    }
+
+    @Test
+    public void testGetPercentileShouldReturnExactSmallValues() {
+        underTest.record(3L);
+        underTest.record(5L);
+
+        assertEquals(3L, underTest.getPercentile(50D));
+        assertEquals(5L, underTest.getPercentile(100D));
+    }
+
+    @Test
+    public void testGetPercentileShouldBeWithinBucketPrecision() {
+        for (long value = 1; value <= 1000; value++) {
+            underTest.record(value * 1000L);
+        }
+
+        assertWithinPrecision(500000L, underTest.getPercentile(50D));
+        assertWithinPrecision(990000L, underTest.getPercentile(99D));
+        assertWithinPrecision(1000000L, underTest.getPercentile(100D));
+    }
+
+    @Test
+    public void testResetShouldClearRecordedValues() {
+        underTest.record(1000L);
+
+        underTest.reset();
+
+        assertEquals(0L, underTest.getPercentile(100D));
+    }
+
+    private void assertWithinPrecision(long expected, long actual) {
+        assertTrue(actual + " < " + expected, actual >= expected);
+        assertTrue(actual + " > " + expected, actual <= expected + expected / 8);
+    }
+}
@@ -0,0 +1,133 @@
+/* 
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+import static org.easymock.EasyMock.createMock;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.easymock.annotation.Injected;
+import org.easymock.annotation.Mock;
+
+/**
+ * Unit test for {@link LeakDetector}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class LeakDetectorTest {
+
+    private Fixture fixture;
+    private InitializationRecord record;
+
+    private LeakDetector underTest;
+
+    @Before
+    public void setUp() {
+        fixture = new Fixture();
+        fixture.first = createMock(Runnable.class);
+        fixture.second = createMock(Runnable.class);
+        InitializationPlan plan = InitializationPlan.create(Fixture.class);
+        record = new InitializationRecord(plan, new boolean[1], new Object[0],
+                new Object[]{fixture.first, fixture.second}, new Object[1]);
+        underTest = new LeakDetector(true);
+        underTest.track(fixture, record, new Object[]{fixture.first, fixture.second});
+    }
+
+    @After
+    public void cleanUp() {
+        Cache.RUNNABLES.clear();
+        Singleton.INSTANCE.runnable = null;
+    }
+
+    @Test
+    public void testCheckShouldNotReportRunningTest() {
+        Cache.RUNNABLES.add(fixture.first);
+
+        assertTrue(underTest.check().isEmpty());
+    }
+
+    @Test
+    public void testCheckShouldReportMockCapturedByStaticCollection() {
+        Cache.RUNNABLES.add(fixture.first);
+        record.markReleased();
+
+        List<LeakDetector.Leak> leaks = underTest.check();
+
+        LeakDetector.Leak leak = getLeak(leaks, "first");
+        assertEquals(Fixture.class.getName(), leak.getTestClass());
+        assertEquals(1, leak.getInstances());
+        assertTrue(leak.getRetainedBy().contains(Cache.class.getName() + ".RUNNABLES"));
+    }
+
+    @Test
+    public void testCheckShouldReportMockCapturedBySingleton() {
+        Singleton.INSTANCE.runnable = fixture.second;
+        record.markReleased();
+
+        List<LeakDetector.Leak> leaks = underTest.check();
+
+        assertTrue(getLeak(leaks, "second").getRetainedBy()
+                .contains(Cache.class.getName() + ".SINGLETON.runnable"));
+        assertTrue(underTest.toCsv(leaks).contains(Fixture.class.getName() + ",second,java.lang.Runnable,1,"));
+    }
+
+    @Test
+    public void testTrackShouldDoNothingWhenDisabled() {
+        underTest = new LeakDetector(false);
+        underTest.track(new Fixture(), record, new Object[0]);
+
+        assertTrue(underTest.check().isEmpty());
+    }
+
+    private static LeakDetector.Leak getLeak(List<LeakDetector.Leak> leaks, String field) {
+        for (LeakDetector.Leak leak : leaks) {
+            if (leak.getField().equals(field)) {
+                return leak;
+            }
+        }
+        throw new AssertionError("No leak of " + field);
+    }
+
+    private static class Fixture {
+
+        @Mock
+        private Runnable first;
+        @Mock
+        private Runnable second;
+        @Injected
+        private Cache cache;
+    }
+
+    private static class Cache {
+
+        private static final List<Runnable> RUNNABLES = new ArrayList<Runnable>();
+        private static final Singleton SINGLETON = Singleton.INSTANCE;
+    }
+
+    private static final class Singleton {
+
+        private static final Singleton INSTANCE = new Singleton();
+
+        private Runnable runnable;
+    }
+}
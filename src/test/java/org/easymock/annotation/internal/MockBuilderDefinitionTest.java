@@ -0,0 +1,208 @@
+/* 
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Method;
+
+import org.junit.Test;
+
+import org.easymock.IMockBuilder;
+
+/**
+ * Unit test for {@link MockBuilderDefinition}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class MockBuilderDefinitionTest {
+
+    @Test
+    public void testCreateShouldResolveMethodByName() throws Exception {
+        MockBuilderDefinition underTest = MockBuilderDefinition.create(Fixture.class, new String[]{"load"});
+
+        assertArrayEquals(new Method[]{Fixture.class.getDeclaredMethod("load")}, underTest.getMockedMethods());
+    }
+
+    @Test
+    public void testCreateShouldResolveParameterTypes() throws Exception {
+        MockBuilderDefinition underTest = MockBuilderDefinition.create(Fixture.class,
+                new String[]{"save(String, int)", " save ( java.lang.String[] ) ", "save()"});
+
+        assertArrayEquals(new Method[]{Fixture.class.getDeclaredMethod("save", String.class, int.class),
+            Fixture.class.getDeclaredMethod("save", String[].class), Fixture.class.getDeclaredMethod("save")},
+                underTest.getMockedMethods());
+    }
+
+    @Test
+    public void testCreateShouldResolveInheritedMethod() throws Exception {
+        MockBuilderDefinition underTest = MockBuilderDefinition.create(SubFixture.class, new String[]{"load"});
+
+        assertArrayEquals(new Method[]{Fixture.class.getDeclaredMethod("load")}, underTest.getMockedMethods());
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testCreateShouldFailWhenMethodDoesNotExist() {
+        MockBuilderDefinition.create(Fixture.class, new String[]{"delete"});
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testCreateShouldFailWhenMethodIsFinal() {
+        MockBuilderDefinition.create(Fixture.class, new String[]{"finalMethod"});
+    }
+
+    @Test
+    public void testCreateShouldFailWhenParameterTypeCannotBeResolved() {
+        try {
+            MockBuilderDefinition.create(Fixture.class, new String[]{"save(Unknown)"});
+            fail("RuntimeException expected!");
+        } catch (RuntimeException ex) {
+            assertArrayEquals(new Object[]{"Cannot resolve parameter type Unknown!"}, new Object[]{ex.getMessage()});
+        }
+    }
+
+    @Test
+    public void testBindShouldReturnSameDefinitionWithoutProvider() {
+        MockBuilderDefinition underTest = MockBuilderDefinition.create(Fixture.class, new String[]{"load"});
+
+        assertSame(underTest, underTest.bind(new ArgsProvider()));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testConfigureShouldUseConstructorMatchingProvidedArguments() throws Exception {
+        ArgsProvider provider = new ArgsProvider();
+        provider.args = new Object[]{"value", 1};
+        MockBuilderDefinition underTest = MockBuilderDefinition.create(Fixture.class, new String[0],
+                ArgsProvider.class, "args");
+        IMockBuilder<Fixture> builder = createMock(IMockBuilder.class);
+        expect(builder.withConstructor(Fixture.class.getDeclaredConstructor(String.class, int.class)))
+                .andReturn(builder);
+        expect(builder.withArgs("value", 1)).andReturn(builder);
+        replay(builder);
+
+        underTest.bind(provider).configure(builder);
+
+        verify(builder);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testConfigureShouldResolveConstructorAgainWhenArgumentTypesChange() throws Exception {
+        ArgsProvider provider = new ArgsProvider();
+        MockBuilderDefinition underTest = MockBuilderDefinition.create(Fixture.class, new String[0],
+                ArgsProvider.class, "args");
+        underTest.bind(provider);
+        provider.args = new Object[]{null, 2};
+        IMockBuilder<Fixture> builder = createMock(IMockBuilder.class);
+        expect(builder.withConstructor(Fixture.class.getDeclaredConstructor(String.class, int.class)))
+                .andReturn(builder);
+        expect(builder.withArgs(null, 2)).andReturn(builder);
+        replay(builder);
+
+        underTest.bind(provider).configure(builder);
+
+        verify(builder);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testConfigureShouldUseConstructorOfBoundArgumentsWhenOtherArgumentsAreBoundLater() throws Exception {
+        ArgsProvider provider = new ArgsProvider();
+        provider.args = new Object[]{"value"};
+        MockBuilderDefinition underTest = MockBuilderDefinition.create(Fixture.class, new String[0],
+                ArgsProvider.class, "args");
+        MockBuilderDefinition bound = underTest.bind(provider);
+        provider.args = new Object[]{1};
+        underTest.bind(provider);
+        IMockBuilder<Fixture> builder = createMock(IMockBuilder.class);
+        expect(builder.withConstructor(Fixture.class.getDeclaredConstructor(String.class))).andReturn(builder);
+        expect(builder.withArgs("value")).andReturn(builder);
+        replay(builder);
+
+        bound.configure(builder);
+
+        verify(builder);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testBindShouldFailWhenConstructorsAreAmbiguous() {
+        ArgsProvider provider = new ArgsProvider();
+        provider.args = new Object[]{null};
+        MockBuilderDefinition.create(Fixture.class, new String[0], ArgsProvider.class, "args").bind(provider);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testCreateShouldFailWhenProviderDoesNotReturnArray() {
+        MockBuilderDefinition.create(Fixture.class, new String[0], ArgsProvider.class, "toString");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    @SuppressWarnings("unchecked")
+    public void testConfigureShouldFailWhenArgumentsAreNotBound() {
+        MockBuilderDefinition.create(Fixture.class, new String[0], ArgsProvider.class, "args")
+                .configure(createMock(IMockBuilder.class));
+    }
+
+    public static class Fixture {
+
+        public Fixture() {
+        }
+
+        public Fixture(String value, int count) {
+        }
+
+        public Fixture(String value) {
+        }
+
+        public Fixture(Integer value) {
+        }
+
+        public String load() {
+            return "";
+        }
+
+        public void save() {
+        }
+
+        public void save(String value, int times) {
+        }
+
+        public void save(String[] values) {
+        }
+
+        public final void finalMethod() {
+        }
+    }
+
+    public static class SubFixture extends Fixture {
+    }
+
+    public static class ArgsProvider {
+
+        private Object[] args = new Object[0];
+
+        private Object[] args() {
+            return args;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/* 
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+import static org.easymock.EasyMock.expect;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.easymock.IMocksControl;
+import org.easymock.MockType;
+
+/**
+ * Unit test for {@link MockControlPool}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class MockControlPoolTest {
+
+    private static final long IDLE_MILLIS = 1000L;
+
+    private long now;
+    private MockControlPool underTest;
+
+    @Before
+    public void setUp() {
+        now = 0L;
+        underTest = createPool(true, 1);
+    }
+
+    @Test
+    public void testCheckoutShouldReturnReleasedControlOfSameType() {
+        IMocksControl control = underTest.checkout(MockType.NICE);
+        underTest.release(MockType.NICE, control);
+
+        assertSame(control, underTest.checkout(MockType.NICE));
+    }
+
+    @Test
+    public void testCheckoutShouldNotReturnReleasedControlOfOtherType() {
+        IMocksControl control = underTest.checkout(MockType.NICE);
+        underTest.release(MockType.NICE, control);
+
+        assertNotSame(control, underTest.checkout(MockType.STRICT));
+    }
+
+    @Test
+    public void testCheckoutShouldReturnResetControl() {
+        IMocksControl control = underTest.checkout(MockType.DEFAULT);
+        Comparable<String> mock = control.createMock(Comparable.class);
+        expect(mock.compareTo("value")).andReturn(1);
+        underTest.release(MockType.DEFAULT, control);
+
+        IMocksControl pooled = underTest.checkout(MockType.DEFAULT);
+        pooled.replay();
+
+        pooled.verify();
+    }
+
+    @Test
+    public void testReleaseShouldDropControlWhenPoolIsFull() {
+        IMocksControl first = underTest.checkout(MockType.DEFAULT);
+        IMocksControl second = underTest.checkout(MockType.DEFAULT);
+        underTest.release(MockType.DEFAULT, first);
+        underTest.release(MockType.DEFAULT, second);
+
+        assertSame(first, underTest.checkout(MockType.DEFAULT));
+        assertNotSame(second, underTest.checkout(MockType.DEFAULT));
+    }
+
+    @Test
+    public void testCheckoutShouldNotReturnControlsOfIdlePool() {
+        IMocksControl control = underTest.checkout(MockType.DEFAULT);
+        underTest.release(MockType.DEFAULT, control);
+        now += IDLE_MILLIS + 1;
+
+        assertNotSame(control, underTest.checkout(MockType.DEFAULT));
+    }
+
+    @Test
+    public void testCheckoutShouldNotReturnControlsReleasedOnOtherThread() throws InterruptedException {
+        final IMocksControl control = underTest.checkout(MockType.DEFAULT);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                underTest.release(MockType.DEFAULT, control);
+            }
+        });
+        thread.start();
+        thread.join();
+
+        assertNotSame(control, underTest.checkout(MockType.DEFAULT));
+    }
+
+    @Test
+    public void testReleaseShouldEvictIdlePoolOfOtherThread() throws InterruptedException {
+        final AtomicReference<WeakReference<IMocksControl>> pooled
+                = new AtomicReference<WeakReference<IMocksControl>>();
+        final CountDownLatch released = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(1);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                pooled.set(checkoutAndRelease());
+                released.countDown();
+                awaitQuietly(finished);
+            }
+        });
+        thread.start();
+        released.await();
+        now += IDLE_MILLIS + 1;
+
+        underTest.release(MockType.DEFAULT, underTest.checkout(MockType.DEFAULT));
+
+        try {
+            for (int i = 0; i < 10 && pooled.get().get() != null; i++) {
+                System.gc();
+                Thread.sleep(10L);
+            }
+            assertNull(pooled.get().get());
+        } finally {
+            finished.countDown();
+            thread.join();
+        }
+    }
+
+    @Test
+    public void testCheckoutShouldCreateNewControlWhenPoolIsDisabled() {
+        underTest = createPool(false, 1);
+        IMocksControl control = underTest.checkout(MockType.DEFAULT);
+        underTest.release(MockType.DEFAULT, control);
+
+        assertNotSame(control, underTest.checkout(MockType.DEFAULT));
+    }
+
+    private WeakReference<IMocksControl> checkoutAndRelease() {
+        IMocksControl control = underTest.checkout(MockType.DEFAULT);
+        underTest.release(MockType.DEFAULT, control);
+        return new WeakReference<IMocksControl>(control);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private MockControlPool createPool(boolean enabled, int size) {
+        return new MockControlPool(new IMockControlFactory(), enabled, size, IDLE_MILLIS) {
+            @Override
+            long currentTimeMillis() {
+                return now;
+            }
+        };
+    }
+}
@@ -0,0 +1,69 @@
+/* 
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import org.easymock.annotation.spi.MockFactory;
+import org.easymock.annotation.spi.MockFactoryProvider;
+
+/**
+ * Unit test for {@link MockFactoryProviders}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class MockFactoryProvidersTest {
+
+    private final MockFactory factory = new StaticMockFactory();
+    private final MockFactory otherFactory = new StaticMockFactory();
+
+    @Test
+    public void testGetMockFactoryShouldReturnNullWithoutProviders() {
+        MockFactoryProviders underTest = new MockFactoryProviders(Collections.<MockFactoryProvider>emptyList());
+
+        assertNull(underTest.getMockFactory(String.class));
+    }
+
+    @Test
+    public void testGetMockFactoryShouldReturnFactoryOfFirstSupportingProvider() {
+        MockFactoryProviders underTest = new MockFactoryProviders(Arrays.asList(provider(Integer.class, otherFactory),
+                provider(String.class, factory), provider(String.class, otherFactory)));
+
+        assertSame(factory, underTest.getMockFactory(String.class));
+    }
+
+    @Test
+    public void testGetMockFactoryShouldReturnNullWhenNoProviderSupportsTestClass() {
+        MockFactoryProviders underTest = new MockFactoryProviders(Arrays.asList(provider(Integer.class, factory)));
+
+        assertNull(underTest.getMockFactory(String.class));
+    }
+
+    private MockFactoryProvider provider(final Class<?> supported, final MockFactory providedFactory) {
+        return new MockFactoryProvider() {
+            @Override
+            public MockFactory getMockFactory(Class<?> testClass) {
+                return testClass == supported ? providedFactory : null;
+            }
+        };
+    }
+}
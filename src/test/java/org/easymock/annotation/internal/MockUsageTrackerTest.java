@@ -0,0 +1,150 @@
+/* 
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+import static org.easymock.EasyMock.createControl;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Field;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.easymock.IMocksControl;
+
+/**
+ * Unit test for {@link MockUsageTracker}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class MockUsageTrackerTest {
+
+    private Field firstField;
+    private Field secondField;
+
+    private MockUsageTracker underTest;
+
+    @Before
+    public void setUp() throws Exception {
+        firstField = Fixture.class.getDeclaredField("first");
+        secondField = Fixture.class.getDeclaredField("second");
+        underTest = new MockUsageTracker(true);
+    }
+
+    @Test
+    public void testTrackShouldReportMockWithoutUsage() {
+        underTest.track(Fixture.class, firstField, createMock(List.class));
+
+        assertEquals("testClass,field,type,initializations\n"
+                + Fixture.class.getName() + ",first,java.util.List,1\n", underTest.toCsv(underTest.getUnusedMocks()));
+    }
+
+    @Test
+    public void testTrackShouldNotReportMockWithRecordedExpectation() {
+        List<?> mock = createMock(List.class);
+        underTest.track(Fixture.class, firstField, mock);
+
+        expect(mock.size()).andReturn(1);
+
+        assertTrue(underTest.getUnusedMocks().isEmpty());
+    }
+
+    @Test
+    public void testTrackShouldNotReportMockInvokedInReplayState() {
+        List<?> mock = createNiceMock(List.class);
+        underTest.track(Fixture.class, firstField, mock);
+        replay(mock);
+
+        mock.size();
+
+        assertTrue(underTest.getUnusedMocks().isEmpty());
+    }
+
+    @Test
+    public void testTrackShouldNotReportMockReplayedIndividually() {
+        List<?> mock = createMock(List.class);
+        underTest.track(Fixture.class, firstField, mock);
+
+        replay(mock);
+
+        assertTrue(underTest.getUnusedMocks().isEmpty());
+    }
+
+    @Test
+    public void testTrackShouldReportMockOfSharedControlWhichIsOnlyReplayed() {
+        IMocksControl control = createControl();
+        List<?> first = control.createMock(List.class);
+        underTest.track(Fixture.class, firstField, first);
+        underTest.track(Fixture.class, secondField, control.createMock(List.class));
+        expect(first.size()).andReturn(1);
+
+        control.replay();
+
+        assertEquals(1, underTest.getUnusedMocks().size());
+        assertTrue(underTest.toJson(underTest.getUnusedMocks()).contains("\"field\": \"second\""));
+    }
+
+    @Test
+    public void testTrackShouldReportFieldOnlyIfUnusedInEveryInitialization() {
+        underTest.track(Fixture.class, firstField, createMock(List.class));
+        List<?> used = createMock(List.class);
+        underTest.track(Fixture.class, firstField, used);
+
+        replay(used);
+
+        assertTrue(underTest.getUnusedMocks().isEmpty());
+    }
+
+    @Test
+    public void testTrackedMockShouldKeepEasyMockBehavior() {
+        List<?> mock = createMock(List.class);
+        underTest.track(Fixture.class, firstField, mock);
+        expect(mock.size()).andReturn(3);
+        replay(mock);
+
+        assertEquals(3, mock.size());
+        verify(mock);
+        try {
+            mock.size();
+            fail("Unexpected call should fail");
+        } catch (AssertionError ex) {
+            assertTrue(ex.getMessage().contains("size()"));
+        }
+    }
+
+    @Test
+    public void testTrackShouldDoNothingWhenDisabled() {
+        underTest = new MockUsageTracker(false);
+
+        underTest.track(Fixture.class, firstField, createMock(List.class));
+
+        assertTrue(underTest.getUnusedMocks().isEmpty());
+    }
+
+    private static class Fixture {
+
+        private List<?> first;
+        private List<?> second;
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.junit.Test;
+
+import org.easymock.annotation.Mock;
+import org.easymock.annotation.internal.QualifiedMockIndex.TargetInjection;
+
+/**
+ * Unit test for {@link QualifiedMockIndex}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class QualifiedMockIndexTest {
+
+    private final Runnable primary = new NamedRunnable();
+    private final Runnable fallback = new NamedRunnable();
+    private final Runnable audit = new NamedRunnable();
+
+    @Test
+    public void testGetInjectionShouldResolveFieldsAndSettersByName() {
+        TargetInjection injection = getInjection(NamedFixture.class, NamedTarget.class);
+        NamedTarget target = new NamedTarget();
+
+        injection.injectTo(target, new Object[]{primary, fallback, audit});
+
+        assertTrue(injection.isComplete());
+        assertSame(primary, target.primary);
+        assertSame(fallback, target.fallback);
+        assertEquals(Arrays.asList(audit), target.audits);
+    }
+
+    @Test
+    public void testGetInjectionShouldBeIncompleteWhenFieldCanReceiveUnnamedMock() {
+        TargetInjection injection = getInjection(NamedFixture.class, TargetWithUnnamedField.class);
+        TargetWithUnnamedField target = new TargetWithUnnamedField();
+
+        injection.injectTo(target, new Object[]{primary, fallback, audit});
+
+        assertFalse(injection.isComplete());
+        assertSame(primary, target.primary);
+        assertNull(target.other);
+    }
+
+    @Test
+    public void testGetInjectionShouldBeIncompleteWhenFieldIsObject() {
+        assertFalse(getInjection(NamedFixture.class, TargetWithObjectField.class).isComplete());
+    }
+
+    @Test
+    public void testGetInjectionShouldLeaveAmbiguousFieldToInjectionByType() {
+        TargetInjection injection = getInjection(AmbiguousFixture.class, NamedTarget.class);
+        NamedTarget target = new NamedTarget();
+
+        injection.injectTo(target, new Object[]{primary, fallback});
+
+        assertFalse(injection.isComplete());
+        assertNull(target.primary);
+    }
+
+    @Test
+    public void testGetInjectionShouldResolveFieldWithSameGenericType() {
+        TargetInjection injection = getInjection(GenericFixture.class, StringHandlerTarget.class);
+        StringHandlerTarget target = new StringHandlerTarget();
+        Callable<String> handler = new StringHandler();
+
+        injection.injectTo(target, new Object[]{handler});
+
+        assertTrue(injection.isComplete());
+        assertSame(handler, target.handler);
+    }
+
+    @Test
+    public void testGetInjectionShouldLeaveFieldWithOtherGenericTypeToInjectionByType() {
+        TargetInjection injection = getInjection(GenericFixture.class, IntegerHandlerTarget.class);
+        IntegerHandlerTarget target = new IntegerHandlerTarget();
+
+        injection.injectTo(target, new Object[]{new StringHandler()});
+
+        assertFalse(injection.isComplete());
+        assertNull(target.handler);
+    }
+
+    @Test
+    public void testGetInjectionShouldResolveTypeOnce() {
+        QualifiedMockIndex index = InitializationPlan.create(NamedFixture.class).getQualifiedMocks();
+
+        assertSame(index.getInjection(NamedTarget.class), index.getInjection(NamedTarget.class));
+    }
+
+    private static TargetInjection getInjection(Class<?> testClass, Class<?> targetType) {
+        return InitializationPlan.create(testClass).getQualifiedMocks().getInjection(targetType);
+    }
+
+    private static class NamedFixture {
+
+        @Mock(name = "primary")
+        private Runnable first;
+        @Mock(name = "fallback")
+        private Runnable second;
+        @Mock(name = "audit")
+        private Runnable third;
+    }
+
+    private static class AmbiguousFixture {
+
+        @Mock(name = "primary")
+        private Runnable first;
+        @Mock(name = "primary")
+        private Runnable second;
+    }
+
+    private static class GenericFixture {
+
+        @Mock(name = "handler")
+        private Callable<String> stringHandler;
+    }
+
+    public static class NamedTarget {
+
+        private final List<Runnable> audits = new ArrayList<Runnable>();
+        private Runnable primary;
+        private Runnable fallback;
+        private String label;
+        private int count;
+
+        public void setAudit(Runnable audit) {
+            audits.add(audit);
+        }
+    }
+
+    private static class TargetWithUnnamedField {
+
+        private Runnable primary;
+        private Runnable other;
+    }
+
+    private static class TargetWithObjectField {
+
+        private Runnable primary;
+        private Object listener;
+    }
+
+    private static class StringHandlerTarget {
+
+        private Callable<String> handler;
+    }
+
+    private static class IntegerHandlerTarget {
+
+        private Callable<Integer> handler;
+    }
+
+    private static class StringHandler implements Callable<String> {
+
+        @Override
+        public String call() {
+            return "handler";
+        }
+    }
+
+    private static class NamedRunnable implements Runnable {
+
+        @Override
+        public void run() {
+        }
+    }
+}
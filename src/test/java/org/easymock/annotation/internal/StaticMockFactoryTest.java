@@ -22,6 +22,8 @@ import org.junit.Test;
 
 import org.easymock.MockType;
 
+import org.easymock.annotation.spi.MockFactory;
+
 /**
  * Unit test for {@link StaticMockFactory}.
  * <p>
@@ -0,0 +1,102 @@
+/* 
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link StubFactory}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class StubFactoryTest {
+
+    private static final String STUB_NAME = "stubname";
+
+    private StubFactory underTest;
+
+    @Before
+    public void setUp() {
+        underTest = new StubFactory();
+    }
+
+    @Test
+    public void testCreateStubShouldCreateProxyForInterface() {
+        List<?> actual = underTest.createStub(List.class, "");
+
+        assertTrue(Proxy.isProxyClass(actual.getClass()));
+        assertEquals(0, actual.size());
+        assertFalse(actual.isEmpty());
+        assertNull(actual.get(0));
+    }
+
+    @Test
+    public void testCreateStubShouldReuseProxyClass() {
+        List<?> first = underTest.createStub(List.class, "");
+        List<?> second = underTest.createStub(List.class, "");
+
+        assertNotSame(first, second);
+        assertSame(first.getClass(), second.getClass());
+    }
+
+    @Test
+    public void testCreateStubShouldUseName() {
+        List<?> actual = underTest.createStub(List.class, STUB_NAME);
+
+        assertEquals(STUB_NAME, actual.toString());
+    }
+
+    @Test
+    public void testStubReturnShouldNotAffectOtherStubs() {
+        List<?> stubbed = underTest.createStub(List.class, "");
+        List<?> other = underTest.createStub(List.class, "");
+
+        underTest.stubReturn(stubbed, "size", 3);
+
+        assertEquals(3, stubbed.size());
+        assertEquals(0, other.size());
+    }
+
+    @Test
+    public void testCreateStubShouldCreateReplayedNiceMockForClass() {
+        ArrayList<?> actual = underTest.createStub(ArrayList.class, "");
+
+        assertNull(actual.get(0));
+        assertEquals(0, actual.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testStubReturnShouldRejectUnknownMethod() {
+        underTest.stubReturn(underTest.createStub(List.class, ""), "unknown", null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testStubReturnShouldRejectNonStub() {
+        underTest.stubReturn(new Object(), "toString", "");
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2013 Balazs Berkes.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.easymock.annotation.nativeimage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.easymock.IMocksControl;
+
+import org.easymock.annotation.ExpectationTemplate;
+import org.easymock.annotation.Injected;
+import org.easymock.annotation.Mock;
+import org.easymock.annotation.MockControl;
+import org.easymock.annotation.Stub;
+
+/**
+ * Unit test for {@link NativeImageMetadataGenerator}.
+ * <p>
+ * @author Balazs Berkes
+ */
+public class NativeImageMetadataGeneratorTest {
+
+    private static final String PREFIX = NativeImageMetadataGeneratorTest.class.getName() + "$";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testCreateProxyConfigShouldContainMockedAndStubbedInterfaces() {
+        NativeImageMetadataGenerator underTest = new NativeImageMetadataGenerator().add(Fixture.class);
+
+        assertEquals("[\n"
+                + "  {\"interfaces\": [\"java.util.List\"]},\n"
+                + "  {\"interfaces\": [\"" + PREFIX + "Repository\"]}\n"
+                + "]\n", underTest.createProxyConfig());
+    }
+
+    @Test
+    public void testCreateReflectConfigShouldContainAnnotatedFieldsAndMethodsOfTestClass() {
+        String reflectConfig = new NativeImageMetadataGenerator().add(Fixture.class).createReflectConfig();
+
+        assertTrue(reflectConfig, reflectConfig.contains("  {\n"
+                + "    \"name\": \"" + PREFIX + "BaseFixture\",\n"
+                + "    \"fields\": [{\"name\": \"control\", \"allowWrite\": true}]\n"
+                + "  }"));
+        assertTrue(reflectConfig, reflectConfig.contains("  {\n"
+                + "    \"name\": \"" + PREFIX + "Fixture\",\n"
+                + "    \"fields\": [{\"name\": \"items\", \"allowWrite\": true}, "
+                + "{\"name\": \"repository\", \"allowWrite\": true}, "
+                + "{\"name\": \"service\", \"allowWrite\": true}, "
+                + "{\"name\": \"worker\", \"allowWrite\": true}],\n"
+                + "    \"methods\": [{\"name\": \"expectations\", \"parameterTypes\": []}, "
+                + "{\"name\": \"workerArgs\", \"parameterTypes\": []}]\n"
+                + "  }"));
+    }
+
+    @Test
+    public void testCreateReflectConfigShouldContainConstructorsFieldsAndSettersOfInjectedTypes() {
+        String reflectConfig = new NativeImageMetadataGenerator().add(Fixture.class).createReflectConfig();
+
+        assertTrue(reflectConfig, reflectConfig.contains("  {\n"
+                + "    \"name\": \"" + PREFIX + "Service\",\n"
+                + "    \"allDeclaredConstructors\": true,\n"
+                + "    \"allDeclaredFields\": true,\n"
+                + "    \"methods\": [{\"name\": \"setNames\", \"parameterTypes\": [\"java.lang.String[]\"]}, "
+                + "{\"name\": \"setRepository\", \"parameterTypes\": [\"" + PREFIX + "Repository\"]}]\n"
+                + "  }"));
+        assertTrue(reflectConfig, reflectConfig.contains("  {\n"
+                + "    \"name\": \"" + PREFIX + "BaseService\",\n"
+                + "    \"allDeclaredConstructors\": true,\n"
+                + "    \"allDeclaredFields\": true\n"
+                + "  }"));
+        assertFalse(reflectConfig, reflectConfig.contains("\"java.lang.Object\""));
+    }
+
+    @Test
+    public void testCreateReflectConfigShouldContainMockedTypes() {
+        String reflectConfig = new NativeImageMetadataGenerator().add(Fixture.class).createReflectConfig();
+
+        assertTrue(reflectConfig, reflectConfig.contains("  {\n"
+                + "    \"name\": \"" + PREFIX + "Repository\",\n"
+                + "    \"allPublicMethods\": true\n"
+                + "  }"));
+        assertTrue(reflectConfig, reflectConfig.contains("  {\n"
+                + "    \"name\": \"" + PREFIX + "Worker\",\n"
+                + "    \"allDeclaredConstructors\": true,\n"
+                + "    \"allDeclaredMethods\": true,\n"
+                + "    \"allPublicMethods\": true\n"
+                + "  }"));
+        assertTrue(reflectConfig, reflectConfig.contains("  {\n"
+                + "    \"name\": \"org.easymock.internal.MocksControl\",\n"
+                + "    \"fields\": [{\"name\": \"behavior\", \"allowWrite\": true}, "
+                + "{\"name\": \"state\", \"allowWrite\": true}]\n"
+                + "  }"));
+    }
+
+    @Test
+    public void testCreateReflectConfigShouldMergeEntriesOfTestClasses() {
+        NativeImageMetadataGenerator underTest = new NativeImageMetadataGenerator().add(Fixture.class)
+                .add(OtherFixture.class);
+
+        String reflectConfig = underTest.createReflectConfig();
+
+        assertEquals(reflectConfig.indexOf("\"name\": \"" + PREFIX + "Repository\""),
+                reflectConfig.lastIndexOf("\"name\": \"" + PREFIX + "Repository\""));
+        assertTrue(reflectConfig, reflectConfig.contains("\"name\": \"" + PREFIX + "OtherFixture\""));
+    }
+
+    @Test
+    public void testCreateConfigShouldBeEmptyWithoutTestClasses() {
+        NativeImageMetadataGenerator underTest = new NativeImageMetadataGenerator();
+
+        assertEquals("[\n]\n", underTest.createReflectConfig());
+        assertEquals("[\n]\n", underTest.createProxyConfig());
+    }
+
+    @Test
+    public void testMainShouldWriteMetadataIntoNativeImageDirectory() throws Exception {
+        File output = folder.getRoot();
+
+        NativeImageMetadataGenerator.main(new String[]{output.getPath(), Fixture.class.getName()});
+
+        NativeImageMetadataGenerator expected = new NativeImageMetadataGenerator().add(Fixture.class);
+        File directory = new File(output, "META-INF/native-image");
+        assertEquals(expected.createReflectConfig(), read(new File(directory, "reflect-config.json")));
+        assertEquals(expected.createProxyConfig(), read(new File(directory, "proxy-config.json")));
+    }
+
+    private static String read(File file) throws IOException {
+        Reader reader = new InputStreamReader(new FileInputStream(file), "UTF-8");
+        try {
+            StringBuilder content = new StringBuilder();
+            char[] buffer = new char[1024];
+            for (int read = reader.read(buffer); read >= 0; read = reader.read(buffer)) {
+                content.append(buffer, 0, read);
+            }
+            return content.toString();
+        } finally {
+            reader.close();
+        }
+    }
+
+    public interface Repository {
+
+        String find(String key);
+    }
+
+    public static class Worker {
+
+        public void work() {
+        }
+    }
+
+    public static class BaseService {
+
+        private Worker worker;
+    }
+
+    public static class Service extends BaseService {
+
+        private Repository repository;
+
+        public void setRepository(Repository repository) {
+            this.repository = repository;
+        }
+
+        public void setNames(String[] names) {
+        }
+
+        public static void setDefault(Service service) {
+        }
+    }
+
+    public static class BaseFixture {
+
+        @MockControl
+        private IMocksControl control;
+    }
+
+    public static class Fixture extends BaseFixture {
+
+        @Mock
+        private Repository repository;
+        @Mock(constructorArgs = "workerArgs", mockedMethods = "work")
+        private Worker worker;
+        @Stub
+        private List<String> items;
+        @Injected
+        private Service service;
+
+        private Object[] workerArgs() {
+            return new Object[0];
+        }
+
+        @ExpectationTemplate
+        public void expectations() {
+        }
+    }
+
+    public static class OtherFixture {
+
+        @Mock
+        private Repository repository;
+    }
+}